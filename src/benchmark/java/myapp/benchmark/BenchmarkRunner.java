@@ -0,0 +1,167 @@
+package myapp.benchmark;
+
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and, on demand, compares their results with the baseline.
+ * <p>
+ * Configured with system properties, set by the {@code benchmark} Maven profile:
+ * <ul>
+ *     <li>{@code benchmark.include}: the regular expression of the benchmarks to run;</li>
+ *     <li>{@code benchmark.result}: the file the results are written to, in the JSON format of JMH;</li>
+ *     <li>{@code benchmark.baseline}: the results to compare with;</li>
+ *     <li>{@code benchmark.tolerance}: the relative change of a score above which it is a regression, if it also exceeds
+ *     the error of both scores;</li>
+ *     <li>{@code benchmark.compare}: whether the results are compared with the baseline;</li>
+ *     <li>{@code benchmark.update-baseline}: whether the results replace the baseline instead of being compared.</li>
+ * </ul>
+ * When compared, the process exits with status 1 if a benchmark regressed, so the build fails. The scores only mean something
+ * on the host the baseline was recorded on: it is written without the paths of the JVM and its arguments, but with the
+ * processor, the operating system and the JDK of the host.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path result = Path.of(System.getProperty("benchmark.result", "target/benchmark/result.json"));
+        Path baseline = Path.of(System.getProperty("benchmark.baseline", "src/benchmark/baseline.json"));
+        double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.20"));
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Options options = new OptionsBuilder()
+            .include(System.getProperty("benchmark.include", ".*"))
+            .resultFormat(ResultFormatType.JSON)
+            .result(result.toString())
+            .build();
+        new Runner(options).run();
+
+        if (Boolean.getBoolean("benchmark.update-baseline")) {
+            writeBaseline(result, baseline);
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+        if (!Boolean.getBoolean("benchmark.compare")) {
+            System.out.println("Results written to " + result + ", compared with the baseline with -Dbenchmark.compare=true");
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.println("No baseline to compare with: " + baseline);
+            return;
+        }
+        JsonNode baselineHost = new ObjectMapper().readTree(baseline.toFile()).path(0).path("host");
+        if (!baselineHost.equals(host())) {
+            System.out.println("The baseline was recorded on another host, the scores may not be comparable: " + baselineHost);
+        }
+        List<String> regressions = compare(scores(baseline), scores(result), tolerance);
+        if (!regressions.isEmpty()) {
+            System.out.println("Regressions above " + Math.round(tolerance * 100) + "%: " + regressions);
+            System.exit(1);
+        }
+    }
+
+    private static List<String> compare(Map<String, Score> baseline, Map<String, Score> current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%n%-90s %14s %14s %8s%n", "Benchmark", "Baseline", "Current", "Change");
+        current.forEach((name, score) -> {
+            Score before = baseline.get(name);
+            if (before == null || !before.unit().equals(score.unit())) {
+                System.out.printf("%-90s %14s %14.3f %8s%n", name, "-", score.value(), "new");
+                return;
+            }
+            double change = (score.value() - before.value()) / before.value();
+            // the time per operation should go down, the throughput up, beyond the error of both runs
+            boolean regressed = score.higherIsBetter()
+                ? change < -tolerance && score.value() + score.error() < before.value() - before.error()
+                : change > tolerance && score.value() - score.error() > before.value() + before.error();
+            if (regressed) {
+                regressions.add(name);
+            }
+            System.out.printf(
+                "%-90s %14.3f %14.3f %+7.1f%%%s %s%n",
+                name,
+                before.value(),
+                score.value(),
+                change * 100,
+                regressed ? " !" : "",
+                score.unit()
+            );
+        });
+        return regressions;
+    }
+
+    /**
+     * Writes the results as the baseline, without what only holds on this machine (the path of the JVM, the arguments with
+     * the paths of the files) but with the host they were measured on.
+     */
+    private static void writeBaseline(Path result, Path baseline) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode runs = mapper.readTree(result.toFile());
+        for (JsonNode run : runs) {
+            ((ObjectNode) run).remove(List.of("jvm", "jvmArgs"));
+            ((ObjectNode) run).set("host", host());
+        }
+        // indented as JMH does
+        DefaultIndenter indenter = new DefaultIndenter("    ", "\n");
+        mapper
+            .writer(new DefaultPrettyPrinter().withObjectIndenter(indenter).withArrayIndenter(indenter))
+            .writeValue(baseline.toFile(), runs);
+    }
+
+    private static ObjectNode host() throws IOException {
+        ObjectNode host = new ObjectMapper().createObjectNode();
+        host.put("cpu", cpuModel());
+        host.put("cpus", Runtime.getRuntime().availableProcessors());
+        host.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        host.put("jdk", System.getProperty("java.vm.name") + " " + System.getProperty("java.vm.version"));
+        return host;
+    }
+
+    private static String cpuModel() throws IOException {
+        Path cpuInfo = Path.of("/proc/cpuinfo");
+        if (!Files.isReadable(cpuInfo)) {
+            return "unknown";
+        }
+        try (Stream<String> lines = Files.lines(cpuInfo)) {
+            return lines
+                .filter(line -> line.startsWith("model name"))
+                .map(line -> line.substring(line.indexOf(':') + 1).trim())
+                .findFirst()
+                .orElse("unknown");
+        }
+    }
+
+    private static Map<String, Score> scores(Path file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            // the same benchmark is run once per combination of parameters
+            String name = run.path("benchmark").asText() + (run.has("params") ? " " + run.get("params") : "");
+            JsonNode metric = run.path("primaryMetric");
+            boolean higherIsBetter = "thrpt".equals(run.path("mode").asText());
+            scores.put(
+                name,
+                new Score(metric.path("score").asDouble(), metric.path("scoreError").asDouble(), metric.path("scoreUnit").asText(), higherIsBetter)
+            );
+        }
+        return scores;
+    }
+
+    private record Score(double value, double error, String unit, boolean higherIsBetter) {}
+}
@@ -0,0 +1,96 @@
+package myapp.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import myapp.domain.Category;
+import myapp.domain.Customer;
+import myapp.domain.Order;
+import myapp.domain.Product;
+import myapp.domain.WishList;
+import myapp.domain.enumeration.CategoryStatus;
+import myapp.domain.enumeration.OrderStatus;
+import myapp.domain.enumeration.ProductStatus;
+
+/**
+ * Entities shaped like the ones the REST resources return, for the benchmarks.
+ */
+public final class EntityFixtures {
+
+    private static final Instant DATE = Instant.parse("2026-10-17T10:00:00Z");
+
+    private EntityFixtures() {}
+
+    /**
+     * A product with its wish list, order and categories.
+     *
+     * @param id the id of the product.
+     * @return the product.
+     */
+    public static Product product(long id) {
+        Product product = new Product()
+            .title("Product " + id)
+            .description("A product used by the benchmarks, with a description long enough to be valid.")
+            .price(new BigDecimal("42.50"))
+            .status(ProductStatus.IN_STOCK)
+            .dateAdded(DATE)
+            .wishList(new WishList().title("Wish list"))
+            .order(new Order().status(OrderStatus.NEW));
+        product.setId(id);
+        product.setVersion(1);
+        product.setKeywords("benchmark, product");
+        product.setRating(4);
+        product.setQuantityInStock(10);
+        product.setDimensions("10x20x30");
+        for (long categoryId = 1; categoryId <= 3; categoryId++) {
+            product.addCategory(category(categoryId, 0));
+        }
+        return product;
+    }
+
+    /**
+     * An order with its customer and products.
+     *
+     * @param products the number of products.
+     * @return the order.
+     */
+    public static Order order(int products) {
+        Customer customer = new Customer().firstName("Ann");
+        customer.setId(1L);
+        customer.setLastName("Lee");
+        customer.setEmail("ann.lee@example.com");
+        Order order = new Order().status(OrderStatus.CONFIRMED).customer(customer);
+        order.setId(1L);
+        order.setVersion(0);
+        order.setOrderDate(DATE);
+        order.setTotalAmount(new BigDecimal("425.00"));
+        for (long id = 1; id <= products; id++) {
+            order.addProduct(product(id));
+        }
+        return order;
+    }
+
+    /**
+     * A category with its parent and products.
+     *
+     * @param id the id of the category.
+     * @param products the number of products.
+     * @return the category.
+     */
+    public static Category category(long id, int products) {
+        Category category = new Category()
+            .description("Category " + id)
+            .dateAdded(DATE)
+            .status(CategoryStatus.AVAILABLE)
+            .parent(new Category().description("Parent category"));
+        category.setId(id);
+        category.setVersion(0);
+        category.setSortOrder((int) id);
+        for (long productId = 1; productId <= products; productId++) {
+            Product product = new Product().title("Product " + productId).price(BigDecimal.TEN).status(ProductStatus.IN_STOCK);
+            product.setId(productId);
+            product.setVersion(0);
+            category.addProduct(product);
+        }
+        return category;
+    }
+}
@@ -0,0 +1,88 @@
+package myapp.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import myapp.benchmark.EntityFixtures;
+import myapp.config.JacksonConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Benchmark of the Jackson serialization of the entities, through their {@code @JsonIgnoreProperties} graphs, with the
+ * modules the application registers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntitySerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Product product;
+
+    private String productJson;
+
+    /**
+     * An order and a category with a given number of products.
+     */
+    @State(Scope.Benchmark)
+    public static class Graphs {
+
+        @Param({ "10", "100" })
+        private int size;
+
+        private Order order;
+
+        private Category category;
+
+        @Setup
+        public void setUp() {
+            order = EntityFixtures.order(size);
+            category = EntityFixtures.category(1, size);
+        }
+    }
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        JacksonConfiguration configuration = new JacksonConfiguration();
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modules(configuration.javaTimeModule(), configuration.jdk8TimeModule(), configuration.hibernate6Module())
+            .build();
+        product = EntityFixtures.product(1);
+        productJson = objectMapper.writeValueAsString(product);
+    }
+
+    @Benchmark
+    public String serializeProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(product);
+    }
+
+    @Benchmark
+    public String serializeOrder(Graphs graphs) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(graphs.order);
+    }
+
+    @Benchmark
+    public String serializeCategory(Graphs graphs) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(graphs.category);
+    }
+
+    @Benchmark
+    public Product deserializeProduct() throws JsonProcessingException {
+        return objectMapper.readValue(productJson, Product.class);
+    }
+}
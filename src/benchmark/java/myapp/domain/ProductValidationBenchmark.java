@@ -0,0 +1,73 @@
+package myapp.domain;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import myapp.benchmark.EntityFixtures;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the bean validation of a {@link Product}, as done on the body of a request, when it is valid and when every
+ * constraint fails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+
+    private Validator validator;
+
+    private Product validProduct;
+
+    private Product invalidProduct;
+
+    @Setup
+    public void setUp() {
+        // interpolates the messages without requiring an expression language implementation
+        validatorFactory = Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validProduct = EntityFixtures.product(1);
+        invalidProduct = new Product().title("P").description("Too short").price(BigDecimal.ZERO);
+        invalidProduct.setRating(11);
+        invalidProduct.setQuantityInStock(-1);
+        invalidProduct.setWeight(-1.0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Product>> validateValidProduct() {
+        return validator.validate(validProduct);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Product>> validateInvalidProduct() {
+        return validator.validate(invalidProduct);
+    }
+}
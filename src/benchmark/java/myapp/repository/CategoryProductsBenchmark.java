@@ -0,0 +1,74 @@
+package myapp.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import myapp.domain.Category;
+import myapp.domain.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the in-memory part of {@link CategoryRepositoryWithBagRelationshipsImpl}: setting the capped products of a
+ * page of categories, once their ids and the products have been read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryProductsBenchmark {
+
+    private static final int CATEGORIES = 20;
+
+    @Param({ "10", "50" })
+    private int productsLimit;
+
+    private List<Category> categories;
+
+    private Map<Long, List<Long>> productIds;
+
+    private Map<Long, Product> products;
+
+    @Setup
+    public void setUp() {
+        categories = new ArrayList<>(CATEGORIES);
+        productIds = new HashMap<>();
+        products = new HashMap<>();
+        for (long categoryId = 1; categoryId <= CATEGORIES; categoryId++) {
+            Category category = new Category().description("Category " + categoryId);
+            category.setId(categoryId);
+            categories.add(category);
+            List<Long> ids = new ArrayList<>(productsLimit);
+            for (int i = 0; i < productsLimit; i++) {
+                // neighbouring categories share half of their products
+                long productId = categoryId * productsLimit / 2 + i;
+                ids.add(productId);
+                products.computeIfAbsent(productId, id -> {
+                    Product product = new Product().title("Product " + id).price(BigDecimal.TEN);
+                    product.setId(id);
+                    return product;
+                });
+            }
+            productIds.put(categoryId, ids);
+        }
+    }
+
+    @Benchmark
+    public List<Category> setProducts() {
+        return CategoryRepositoryWithBagRelationshipsImpl.setProducts(categories, productIds, products);
+    }
+}
@@ -0,0 +1,76 @@
+package myapp.security;
+
+import static myapp.security.SecurityUtils.AUTHORITIES_KEY;
+import static myapp.security.SecurityUtils.JWT_ALGORITHM;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+/**
+ * Benchmark of the decoding of the token sent with every API request, verified each time, and by the
+ * {@link CachingJwtDecoder} once verified.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtDecoderBenchmark {
+
+    private JwtDecoder nimbusDecoder;
+
+    private JwtDecoder cachingDecoder;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SecretKey key = new SecretKeySpec(new byte[64], JWT_ALGORITHM.getName());
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+            .issuedAt(now)
+            .expiresAt(now.plus(1, ChronoUnit.DAYS))
+            .subject("admin")
+            .claim(AUTHORITIES_KEY, "ROLE_ADMIN ROLE_USER")
+            .build();
+        token = new NimbusJwtEncoder(new ImmutableSecret<>(key))
+            .encode(JwtEncoderParameters.from(JwsHeader.with(JWT_ALGORITHM).build(), claims))
+            .getTokenValue();
+        nimbusDecoder = NimbusJwtDecoder.withSecretKey(key).macAlgorithm(JWT_ALGORITHM).build();
+        cachingDecoder = new CachingJwtDecoder(nimbusDecoder, 10000, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Jwt decodeVerified() {
+        return nimbusDecoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt decodeCached() {
+        // each request carries its own copy of the token
+        return cachingDecoder.decode(new String(token));
+    }
+}
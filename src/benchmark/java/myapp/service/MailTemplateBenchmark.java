@@ -0,0 +1,98 @@
+package myapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import myapp.domain.User;
+import myapp.service.MailTemplateService.RenderedMail;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Benchmark of the rendering of the activation email by {@link MailTemplateService}, by Thymeleaf for each user, as with
+ * {@code spring.thymeleaf.cache} disabled, and from the compiled template.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailTemplateBenchmark {
+
+    private static final String TEMPLATE = "mail/activationEmail";
+
+    private static final String TITLE_KEY = "email.activation.title";
+
+    @Param({ "100" })
+    private int size;
+
+    private MailTemplateService thymeleaf;
+
+    private MailTemplateService compiled;
+
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        thymeleaf = mailTemplateService(false);
+        compiled = mailTemplateService(true);
+        users = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setLogin("user-" + id);
+            user.setEmail("user-" + id + "@example.com");
+            user.setLangKey("en");
+            user.setActivationKey("activation" + id);
+            users.add(user);
+        }
+        if (!thymeleaf.renderAll(users, TEMPLATE, TITLE_KEY).equals(compiled.renderAll(users, TEMPLATE, TITLE_KEY))) {
+            throw new IllegalStateException("The compiled template does not render the same emails");
+        }
+    }
+
+    @Benchmark
+    public List<RenderedMail> renderWithThymeleaf() {
+        return thymeleaf.renderAll(users, TEMPLATE, TITLE_KEY);
+    }
+
+    @Benchmark
+    public List<RenderedMail> renderCompiled() {
+        return compiled.renderAll(users, TEMPLATE, TITLE_KEY);
+    }
+
+    private static MailTemplateService mailTemplateService(boolean cache) {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("i18n/messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getMail().setBaseUrl("http://127.0.0.1:8080");
+        ThymeleafProperties thymeleafProperties = new ThymeleafProperties();
+        thymeleafProperties.setCache(cache);
+        return new MailTemplateService(templateEngine, messageSource, jHipsterProperties, thymeleafProperties);
+    }
+}
@@ -0,0 +1,78 @@
+package myapp.service.mapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import myapp.domain.Authority;
+import myapp.domain.User;
+import myapp.service.dto.AdminUserDTO;
+import myapp.service.dto.UserDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the {@link UserMapper} conversions used by the user management resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    @Param({ "20", "1000" })
+    private int size;
+
+    private final UserMapper userMapper = new UserMapper();
+
+    private List<User> users;
+
+    private List<AdminUserDTO> userDTOs;
+
+    @Setup
+    public void setUp() {
+        users = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setLogin("user-" + id);
+            user.setFirstName("First " + id);
+            user.setLastName("Last " + id);
+            user.setEmail("user-" + id + "@example.com");
+            user.setActivated(true);
+            user.setLangKey("en");
+            user.setCreatedBy("system");
+            user.setCreatedDate(Instant.EPOCH);
+            user.setAuthorities(Set.of(new Authority().name("ROLE_USER"), new Authority().name("ROLE_ADMIN")));
+            users.add(user);
+        }
+        userDTOs = userMapper.usersToAdminUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<UserDTO> usersToUserDTOs() {
+        return userMapper.usersToUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<AdminUserDTO> usersToAdminUserDTOs() {
+        return userMapper.usersToAdminUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<User> userDTOsToUsers() {
+        return userMapper.userDTOsToUsers(userDTOs);
+    }
+}
@@ -0,0 +1,112 @@
+package myapp.web.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import myapp.config.ApplicationProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Benchmark of the {@link RateLimitFilter} for requests which are not throttled: matching no policy, and taking a token
+ * from the bucket of one of a thousand client IP addresses. The cost added by the filter is the difference with a filter
+ * doing nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+    private static final int CLIENTS = 1024;
+
+    private static final FilterChain CHAIN = (request, response) -> {};
+
+    private RateLimitFilter filter;
+
+    private OncePerRequestFilter emptyFilter;
+
+    private MockHttpServletRequest[] unlimitedRequests;
+
+    private MockHttpServletRequest[] limitedRequests;
+
+    private MockHttpServletResponse response;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ApplicationProperties.RateLimit.Policy authenticate = new ApplicationProperties.RateLimit.Policy();
+        authenticate.setName("authenticate");
+        authenticate.setMethod("POST");
+        authenticate.setPath("/api/authenticate");
+        ApplicationProperties.RateLimit.Policy orders = new ApplicationProperties.RateLimit.Policy();
+        orders.setName("orders");
+        orders.setMethod("POST");
+        orders.setPath("/api/orders/**");
+        // never empty at the rate of the benchmark
+        orders.setCapacity(1_000_000);
+        orders.setRefillPerSecond(1_000_000_000);
+        ApplicationProperties.RateLimit rateLimit = new ApplicationProperties.RateLimit();
+        rateLimit.setPolicies(List.of(authenticate, orders));
+        filter = new RateLimitFilter(rateLimit, new SimpleMeterRegistry(), new ObjectMapper());
+
+        unlimitedRequests = new MockHttpServletRequest[CLIENTS];
+        limitedRequests = new MockHttpServletRequest[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            unlimitedRequests[i] = request("GET", "/api/products", i);
+            limitedRequests[i] = request("POST", "/api/orders", i);
+        }
+        emptyFilter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+                filterChain.doFilter(request, response);
+            }
+        };
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public int empty() throws ServletException, IOException {
+        emptyFilter.doFilter(limitedRequests[next++ & (CLIENTS - 1)], response, CHAIN);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int unlimited() throws ServletException, IOException {
+        filter.doFilter(unlimitedRequests[next++ & (CLIENTS - 1)], response, CHAIN);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int limited() throws ServletException, IOException {
+        filter.doFilter(limitedRequests[next++ & (CLIENTS - 1)], response, CHAIN);
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, int client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0." + (client >> 8) + "." + (client & 0xff));
+        return request;
+    }
+}
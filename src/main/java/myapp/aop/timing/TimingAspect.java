@@ -0,0 +1,106 @@
+package myapp.aop.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import myapp.config.ApplicationProperties;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+
+/**
+ * Aspect timing the execution of service methods, in {@value #INVOCATIONS_METER_NAME}.
+ * <p>
+ * Timers are tagged with the class and method only, and with the simple name of the exception thrown, if any, so their
+ * number is bounded by the code. With {@code application.method-timing.sample-rate} below 1, only that share of the calls
+ * is timed; percentiles are unchanged, counts are to be scaled. Calls not timed go straight to the method without
+ * allocating anything. With {@code application.method-timing.enabled} set to {@code false}, the aspect is not registered
+ * at all, so the services are not proxied for it.
+ * <p>
+ * Repository methods are not advised, Spring Data already times them in {@code spring.data.repository.invocations}. This
+ * aspect runs before the transaction one, so the time of a service method includes its commit.
+ */
+@Aspect
+public class TimingAspect implements Ordered {
+
+    public static final String INVOCATIONS_METER_NAME = "service.method.invocations";
+    public static final String INVOCATIONS_METER_DESCRIPTION = "Times the invocations of the service methods.";
+    public static final String INVOCATIONS_METER_CLASS_DIMENSION = "class";
+    public static final String INVOCATIONS_METER_METHOD_DIMENSION = "method";
+    public static final String INVOCATIONS_METER_EXCEPTION_DIMENSION = "exception";
+
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry registry;
+
+    private final double sampleRate;
+
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public TimingAspect(MeterRegistry registry, ApplicationProperties applicationProperties) {
+        this.registry = registry;
+        this.sampleRate = applicationProperties.getMethodTiming().getSampleRate();
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("application.method-timing.sample-rate must be between 0 and 1, not " + sampleRate);
+        }
+    }
+
+    /**
+     * Pointcut that matches all services in the application's main packages.
+     */
+    @Pointcut("within(@org.springframework.stereotype.Service *) && within(myapp.service..*)")
+    public void servicePointcut() {
+        // Method is empty as this is just a Pointcut, the implementations are in the advices.
+    }
+
+    /**
+     * Advice that times a sample of the calls to a method.
+     *
+     * @param joinPoint join point for advice.
+     * @return result.
+     * @throws Throwable whatever the method throws.
+     */
+    @Around("servicePointcut()")
+    public Object timeAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return joinPoint.proceed();
+        }
+        long start = registry.config().clock().monotonicTime();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        try {
+            Object result = joinPoint.proceed();
+            timers.computeIfAbsent(method, key -> timer(key, NO_EXCEPTION)).record(elapsedSince(start), TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            // rare enough to look the timer up every time
+            timer(method, e.getClass().getSimpleName()).record(elapsedSince(start), TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private long elapsedSince(long start) {
+        return registry.config().clock().monotonicTime() - start;
+    }
+
+    private Timer timer(Method method, String exception) {
+        // the pointcut only matches methods declared by the services themselves
+        return Timer.builder(INVOCATIONS_METER_NAME)
+            .description(INVOCATIONS_METER_DESCRIPTION)
+            .tag(INVOCATIONS_METER_CLASS_DIMENSION, method.getDeclaringClass().getSimpleName())
+            .tag(INVOCATIONS_METER_METHOD_DIMENSION, method.getName())
+            .tag(INVOCATIONS_METER_EXCEPTION_DIMENSION, exception)
+            .register(registry);
+    }
+}
@@ -1,5 +1,7 @@
 package myapp.config;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -13,12 +15,66 @@ public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
 
+    private final Inventory inventory = new Inventory();
+
+    private final Idempotency idempotency = new Idempotency();
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    private final MethodTiming methodTiming = new MethodTiming();
+
+    private final MailOutbox mailOutbox = new MailOutbox();
+
+    private final JwtCache jwtCache = new JwtCache();
+
+    private final PasswordHashing passwordHashing = new PasswordHashing();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final Export export = new Export();
+
     // jhipster-needle-application-properties-property
 
     public Liquibase getLiquibase() {
         return liquibase;
     }
 
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public MethodTiming getMethodTiming() {
+        return methodTiming;
+    }
+
+    public MailOutbox getMailOutbox() {
+        return mailOutbox;
+    }
+
+    public JwtCache getJwtCache() {
+        return jwtCache;
+    }
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +89,371 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    public static class Inventory {
+
+        private int reservationTimeToLiveSeconds = 900;
+
+        private int stripes = 64;
+
+        public int getReservationTimeToLiveSeconds() {
+            return reservationTimeToLiveSeconds;
+        }
+
+        public void setReservationTimeToLiveSeconds(int reservationTimeToLiveSeconds) {
+            this.reservationTimeToLiveSeconds = reservationTimeToLiveSeconds;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+    }
+
+    public static class Idempotency {
+
+        private int timeToLiveSeconds = 86400;
+
+        private int cacheSize = 10000;
+
+        private int waitTimeoutSeconds = 30;
+
+        public int getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public int getWaitTimeoutSeconds() {
+            return waitTimeoutSeconds;
+        }
+
+        public void setWaitTimeoutSeconds(int waitTimeoutSeconds) {
+            this.waitTimeoutSeconds = waitTimeoutSeconds;
+        }
+    }
+
+    public static class SingleFlight {
+
+        private long maxWaitMillis = 500;
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public void setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+        }
+    }
+
+    public static class MethodTiming {
+
+        private boolean enabled = true;
+
+        private double sampleRate = 1.0;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    public static class MailOutbox {
+
+        private long pollIntervalMillis = 1000;
+
+        private int batchSize = 50;
+
+        private int connections = 2;
+
+        private int maxAttempts = 8;
+
+        private int initialBackoffSeconds = 30;
+
+        private int maxBackoffSeconds = 3600;
+
+        private int leaseSeconds = 300;
+
+        public long getPollIntervalMillis() {
+            return pollIntervalMillis;
+        }
+
+        public void setPollIntervalMillis(long pollIntervalMillis) {
+            this.pollIntervalMillis = pollIntervalMillis;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public void setConnections(int connections) {
+            this.connections = connections;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public int getInitialBackoffSeconds() {
+            return initialBackoffSeconds;
+        }
+
+        public void setInitialBackoffSeconds(int initialBackoffSeconds) {
+            this.initialBackoffSeconds = initialBackoffSeconds;
+        }
+
+        public int getMaxBackoffSeconds() {
+            return maxBackoffSeconds;
+        }
+
+        public void setMaxBackoffSeconds(int maxBackoffSeconds) {
+            this.maxBackoffSeconds = maxBackoffSeconds;
+        }
+
+        public int getLeaseSeconds() {
+            return leaseSeconds;
+        }
+
+        public void setLeaseSeconds(int leaseSeconds) {
+            this.leaseSeconds = leaseSeconds;
+        }
+    }
+
+    public static class JwtCache {
+
+        private boolean enabled = true;
+
+        private long maxSize = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class PasswordHashing {
+
+        private int strength = 10;
+
+        private int threads = 2;
+
+        private int queueCapacity = 4;
+
+        private long retryAfterSeconds = 1;
+
+        public int getStrength() {
+            return strength;
+        }
+
+        public void setStrength(int strength) {
+            this.strength = strength;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    public static class RateLimit {
+
+        private boolean enabled = true;
+
+        private int maxKeys = 100000;
+
+        private int stripes = 64;
+
+        private String trustedProxies;
+
+        private List<Policy> policies = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public String getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(String trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        public List<Policy> getPolicies() {
+            return policies;
+        }
+
+        public void setPolicies(List<Policy> policies) {
+            this.policies = policies;
+        }
+
+        public static class Policy {
+
+            private String name;
+
+            private String method;
+
+            private String path;
+
+            private Key key = Key.IP;
+
+            private int capacity = 10;
+
+            private double refillPerSecond = 1;
+
+            public String getName() {
+                return name;
+            }
+
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            public String getMethod() {
+                return method;
+            }
+
+            public void setMethod(String method) {
+                this.method = method;
+            }
+
+            public String getPath() {
+                return path;
+            }
+
+            public void setPath(String path) {
+                this.path = path;
+            }
+
+            public Key getKey() {
+                return key;
+            }
+
+            public void setKey(Key key) {
+                this.key = key;
+            }
+
+            public int getCapacity() {
+                return capacity;
+            }
+
+            public void setCapacity(int capacity) {
+                this.capacity = capacity;
+            }
+
+            public double getRefillPerSecond() {
+                return refillPerSecond;
+            }
+
+            public void setRefillPerSecond(double refillPerSecond) {
+                this.refillPerSecond = refillPerSecond;
+            }
+        }
+
+        public enum Key {
+            IP,
+            LOGIN,
+            SUBJECT,
+        }
+    }
+
+    public static class Export {
+
+        private long timeoutSeconds = 3600;
+
+        public long getTimeoutSeconds() {
+            return timeoutSeconds;
+        }
+
+        public void setTimeoutSeconds(long timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
@@ -0,0 +1,121 @@
+package myapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Data source bounding the number of connections borrowed at once, handing them out in the order they were asked for.
+ * <p>
+ * Threads waiting for a connection are parked on a fair semaphore, up to a timeout, before the pool is even asked: on
+ * virtual threads, they leave their carrier free meanwhile, instead of piling up in the pool. The time they wait is
+ * recorded in {@value #WAIT_METER_NAME}. The permit of a connection is released when the connection is closed.
+ */
+class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+    static final String WAIT_METER_NAME = "datasource.connections.limit.wait";
+    static final String WAIT_METER_DESCRIPTION = "Time parked waiting for a connection under the connection limit.";
+
+    private final Semaphore permits;
+
+    private final long timeoutMillis;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private volatile Timer waitTimer;
+
+    ConnectionLimitingDataSource(DataSource target, int maxConnections, long timeoutMillis, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(target);
+        this.permits = new Semaphore(maxConnections, true);
+        this.timeoutMillis = timeoutMillis;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("No connection available within " + timeoutMillis + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        } finally {
+            waitTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer waitTimer() {
+        Timer timer = waitTimer;
+        if (timer == null) {
+            // the registry is not available yet when the data source is created
+            timer = Timer.builder(WAIT_METER_NAME).description(WAIT_METER_DESCRIPTION).register(meterRegistry.getObject());
+            waitTimer = timer;
+        }
+        return timer;
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+            ConnectionProxy.class.getClassLoader(),
+            new Class<?>[] { ConnectionProxy.class },
+            (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "getTargetConnection" -> connection;
+                    case "close" -> {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                }
+        );
+    }
+}
@@ -1,8 +1,10 @@
 package myapp.config;
 
 import java.sql.SQLException;
+import org.hibernate.cfg.AvailableSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -41,6 +43,16 @@ public class DatabaseConfiguration {
         return H2ConfigurationHelper.createServer(port);
     }
 
+    /**
+     * Let Hibernate take versioned entities sent with their id only for references to existing entities.
+     *
+     * @return the customizer registering the {@link VersionedReferenceInterceptor}.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer versionedReferenceCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.INTERCEPTOR, new VersionedReferenceInterceptor());
+    }
+
     private String getValidPortForH2() {
         int port = Integer.parseInt(env.getProperty("server.port"));
         if (port < 10000) {
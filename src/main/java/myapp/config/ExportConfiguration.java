@@ -0,0 +1,53 @@
+package myapp.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configure the timeout of the {@code /_export} endpoints, whose responses are streamed asynchronously for as long as the
+ * export takes, while the other asynchronous requests keep the default timeout.
+ */
+@Configuration
+public class ExportConfiguration implements WebMvcConfigurer {
+
+    private final ApplicationProperties applicationProperties;
+
+    public ExportConfiguration(ApplicationProperties applicationProperties) {
+        this.applicationProperties = applicationProperties;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(
+            new ExportTimeoutInterceptor(TimeUnit.SECONDS.toMillis(applicationProperties.getExport().getTimeoutSeconds()))
+        );
+    }
+
+    /**
+     * Set the timeout of the asynchronous requests mapped to an {@code /_export} endpoint, before they are started.
+     */
+    static class ExportTimeoutInterceptor implements CallableProcessingInterceptor {
+
+        private final long timeoutMillis;
+
+        ExportTimeoutInterceptor(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (request instanceof AsyncWebRequest asyncRequest && pattern instanceof String path && path.endsWith("/_export")) {
+                asyncRequest.setTimeout(timeoutMillis);
+            }
+        }
+    }
+}
@@ -3,7 +3,10 @@ package myapp.config;
 import static org.springframework.security.config.Customizer.withDefaults;
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import myapp.security.*;
+import myapp.web.filter.RateLimitFilter;
 import myapp.web.filter.SpaWebFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,6 +21,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
 import org.springframework.security.oauth2.server.resource.web.access.BearerTokenAccessDeniedHandler;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
@@ -40,12 +44,25 @@ public class SecurityConfiguration {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.PasswordHashing passwordHashing = applicationProperties.getPasswordHashing();
+        return new BoundedPasswordEncoder(
+            new BCryptPasswordEncoder(passwordHashing.getStrength()),
+            passwordHashing.getThreads(),
+            passwordHashing.getQueueCapacity(),
+            passwordHashing.getRetryAfterSeconds(),
+            meterRegistry
+        );
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, MvcRequestMatcher.Builder mvc) throws Exception {
+    public SecurityFilterChain filterChain(
+        HttpSecurity http,
+        MvcRequestMatcher.Builder mvc,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        ObjectMapper objectMapper
+    ) throws Exception {
         http
             .cors(withDefaults())
             .csrf(csrf -> csrf.disable())
@@ -95,6 +112,11 @@ public class SecurityConfiguration {
         if (env.acceptsProfiles(Profiles.of(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT))) {
             http.authorizeHttpRequests(authz -> authz.requestMatchers(antMatcher("/h2-console/**")).permitAll());
         }
+        ApplicationProperties.RateLimit rateLimit = applicationProperties.getRateLimit();
+        if (rateLimit.isEnabled() && !rateLimit.getPolicies().isEmpty()) {
+            // after the token is verified, so requests can be limited by its subject
+            http.addFilterAfter(new RateLimitFilter(rateLimit, meterRegistry, objectMapper), BearerTokenAuthenticationFilter.class);
+        }
         return http.build();
     }
 
@@ -4,9 +4,11 @@ import static myapp.security.SecurityUtils.JWT_ALGORITHM;
 
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
 import com.nimbusds.jose.util.Base64;
+import io.micrometer.core.instrument.MeterRegistry;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import myapp.management.SecurityMetersService;
+import myapp.security.CachingJwtDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -26,9 +28,9 @@ public class SecurityJwtConfiguration {
     private String jwtKey;
 
     @Bean
-    public JwtDecoder jwtDecoder(SecurityMetersService metersService) {
+    public JwtDecoder jwtDecoder(SecurityMetersService metersService, ApplicationProperties applicationProperties, MeterRegistry registry) {
         NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withSecretKey(getSecretKey()).macAlgorithm(JWT_ALGORITHM).build();
-        return token -> {
+        JwtDecoder trackingDecoder = token -> {
             try {
                 return jwtDecoder.decode(token);
             } catch (Exception e) {
@@ -48,6 +50,12 @@ public class SecurityJwtConfiguration {
                 throw e;
             }
         };
+        ApplicationProperties.JwtCache jwtCache = applicationProperties.getJwtCache();
+        if (!jwtCache.isEnabled()) {
+            return trackingDecoder;
+        }
+        // invalid tokens are not cached, so they are all tracked
+        return new CachingJwtDecoder(trackingDecoder, jwtCache.getMaxSize(), registry);
     }
 
     @Bean
@@ -0,0 +1,17 @@
+package myapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import myapp.aop.timing.TimingAspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.*;
+
+@Configuration
+@EnableAspectJAutoProxy
+public class TimingAspectConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.method-timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public TimingAspect timingAspect(MeterRegistry registry, ApplicationProperties applicationProperties) {
+        return new TimingAspect(registry, applicationProperties);
+    }
+}
@@ -0,0 +1,56 @@
+package myapp.config;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import org.hibernate.Interceptor;
+
+/**
+ * Hibernate interceptor taking a versioned entity with an id but no version for a reference to an existing entity.
+ * <p>
+ * Clients refer to related entities by their id only, like {@code "customer": { "id": 1 }}, which Hibernate would otherwise
+ * reject as a detached entity with an uninitialized version. Only references are concerned: the services set the version
+ * of the entity they update before saving it, so that version is still checked.
+ */
+class VersionedReferenceInterceptor implements Interceptor, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ClassValue<Field[]> ID_AND_VERSION_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            Field id = null;
+            Field version = null;
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (id == null && field.isAnnotationPresent(Id.class)) {
+                        id = field;
+                    } else if (version == null && field.isAnnotationPresent(Version.class)) {
+                        version = field;
+                    }
+                }
+            }
+            if (id == null || version == null) {
+                return null;
+            }
+            id.setAccessible(true);
+            version.setAccessible(true);
+            return new Field[] { id, version };
+        }
+    };
+
+    @Override
+    public Boolean isTransient(Object entity) {
+        Field[] fields = ID_AND_VERSION_FIELDS.get(entity.getClass());
+        if (fields == null) {
+            return null;
+        }
+        try {
+            // null lets Hibernate decide as usual
+            return fields[0].get(entity) != null && fields[1].get(entity) == null ? Boolean.FALSE : null;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
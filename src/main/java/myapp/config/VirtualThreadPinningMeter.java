@@ -0,0 +1,55 @@
+package myapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records in {@value #PINNED_METER_NAME} the time virtual threads stay pinned to their carrier thread, by synchronized
+ * blocks or native frames, as reported by the {@code jdk.VirtualThreadPinned} JFR events.
+ * <p>
+ * Only pinning longer than {@value #THRESHOLD_MILLIS}ms is reported, the JDK default. It is to be compared with
+ * {@value ConnectionLimitingDataSource#WAIT_METER_NAME}, the time threads are parked, leaving their carrier free.
+ */
+class VirtualThreadPinningMeter implements AutoCloseable {
+
+    static final String PINNED_METER_NAME = "jvm.threads.virtual.pinned";
+    static final String PINNED_METER_DESCRIPTION = "Time virtual threads stayed pinned to their carrier thread.";
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final long THRESHOLD_MILLIS = 20;
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadPinningMeter.class);
+
+    private final RecordingStream recordingStream;
+
+    VirtualThreadPinningMeter(MeterRegistry meterRegistry) {
+        Timer pinned = Timer.builder(PINNED_METER_NAME).description(PINNED_METER_DESCRIPTION).register(meterRegistry);
+        RecordingStream stream = null;
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(THRESHOLD_MILLIS));
+            stream.onEvent(PINNED_EVENT, event -> pinned.record(event.getDuration()));
+            stream.startAsync();
+        } catch (RuntimeException e) {
+            // JFR may be unavailable or disabled in this JVM
+            LOG.warn("Pinned virtual threads cannot be metered: {}", e.getMessage());
+            if (stream != null) {
+                stream.close();
+                stream = null;
+            }
+        }
+        this.recordingStream = stream;
+    }
+
+    @Override
+    public void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+}
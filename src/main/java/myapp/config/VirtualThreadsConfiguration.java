@@ -0,0 +1,63 @@
+package myapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.embedded.undertow.UndertowDeploymentInfoCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * Configuration of the virtual thread mode, enabled by {@code spring.threads.virtual.enabled} on Java 21 and later.
+ * <p>
+ * Spring Boot then runs the {@code @Scheduled} methods on virtual threads, and {@link AsyncConfiguration} the
+ * {@code @Async} ones. This configuration also runs the requests on virtual threads instead of the Undertow worker pool,
+ * which Spring Boot does not do for Undertow. As the number of requests in progress is no longer bounded by a pool of
+ * threads, the connections borrowed from the Hikari pool are bounded by a {@link ConnectionLimitingDataSource}, which
+ * meters the time threads are parked waiting for one, and the time virtual threads stay pinned to their carrier is
+ * metered by a {@link VirtualThreadPinningMeter}.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfiguration {
+
+    @Bean
+    public UndertowDeploymentInfoCustomizer virtualThreadsDeploymentInfoCustomizer() {
+        return deploymentInfo -> deploymentInfo.setExecutor(new VirtualThreadTaskExecutor("undertow-"));
+    }
+
+    /**
+     * Bound the connections borrowed at once to the size of the Hikari pool, within its connection timeout.
+     *
+     * @param meterRegistry the registry of the wait timer, looked up once the data source is used.
+     * @return the post processor wrapping the Hikari data source.
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    // fills in the defaults of the pool size and timeout, as the pool itself does when it starts
+                    dataSource.validate();
+                    return new ConnectionLimitingDataSource(
+                        dataSource,
+                        dataSource.getMaximumPoolSize(),
+                        dataSource.getConnectionTimeout(),
+                        meterRegistry
+                    );
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public VirtualThreadPinningMeter virtualThreadPinningMeter(MeterRegistry meterRegistry) {
+        return new VirtualThreadPinningMeter(meterRegistry);
+    }
+}
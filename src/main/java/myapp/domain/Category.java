@@ -1,6 +1,8 @@
 package myapp.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
@@ -8,23 +10,30 @@ import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 import myapp.domain.enumeration.CategoryStatus;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * A Category.
  */
 @Entity
 @Table(name = "category")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
 public class Category implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categorySequenceGenerator")
+    @SequenceGenerator(name = "categorySequenceGenerator", sequenceName = "category_seq", allocationSize = 500)
     @Column(name = "id")
     private Long id;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     @NotNull
     @Size(min = 5, max = 100)
     @Column(name = "description", length = 100, nullable = false)
@@ -56,9 +65,16 @@ public class Category implements Serializable {
         joinColumns = @JoinColumn(name = "category_id"),
         inverseJoinColumns = @JoinColumn(name = "product_id")
     )
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JsonIgnoreProperties(value = { "wishList", "order", "categories" }, allowSetters = true)
     private Set<Product> products = new HashSet<>();
 
+    // set when only the first products were loaded, the category then being detached
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private boolean productsTruncated;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -74,6 +90,19 @@ public class Category implements Serializable {
         this.id = id;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public Category version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public String getDescription() {
         return this.description;
     }
@@ -175,6 +204,14 @@ public class Category implements Serializable {
         return this;
     }
 
+    public boolean isProductsTruncated() {
+        return this.productsTruncated;
+    }
+
+    public void setProductsTruncated(boolean productsTruncated) {
+        this.productsTruncated = productsTruncated;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -199,6 +236,7 @@ public class Category implements Serializable {
     public String toString() {
         return "Category{" +
             "id=" + getId() +
+            ", version=" + getVersion() +
             ", description='" + getDescription() + "'" +
             ", sortOrder=" + getSortOrder() +
             ", dateAdded='" + getDateAdded() + "'" +
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.*;
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
+import org.hibernate.annotations.BatchSize;
 
 /**
  * A Customer.
@@ -18,11 +19,15 @@ public class Customer implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customerSequenceGenerator")
+    @SequenceGenerator(name = "customerSequenceGenerator", sequenceName = "customer_seq", allocationSize = 500)
     @Column(name = "id")
     private Long id;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     @NotNull
     @Size(min = 2, max = 50)
     @Column(name = "first_name", length = 50, nullable = false)
@@ -45,14 +50,17 @@ public class Customer implements Serializable {
 
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "customer")
     @JsonIgnoreProperties(value = { "products", "customer" }, allowSetters = true)
+    @BatchSize(size = 20)
     private Set<WishList> wishLists = new HashSet<>();
 
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "customer")
     @JsonIgnoreProperties(value = { "customer" }, allowSetters = true)
+    @BatchSize(size = 20)
     private Set<Address> addresses = new HashSet<>();
 
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "customer")
     @JsonIgnoreProperties(value = { "products", "shippingAddress", "customer" }, allowSetters = true)
+    @BatchSize(size = 20)
     private Set<Order> orders = new HashSet<>();
 
     // jhipster-needle-entity-add-field - JHipster will add fields here
@@ -70,6 +78,19 @@ public class Customer implements Serializable {
         this.id = id;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public Customer version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public String getFirstName() {
         return this.firstName;
     }
@@ -239,6 +260,7 @@ public class Customer implements Serializable {
     public String toString() {
         return "Customer{" +
             "id=" + getId() +
+            ", version=" + getVersion() +
             ", firstName='" + getFirstName() + "'" +
             ", lastName='" + getLastName() + "'" +
             ", email='" + getEmail() + "'" +
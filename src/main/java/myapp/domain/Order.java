@@ -8,6 +8,7 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
+import myapp.domain.enumeration.OrderStatus;
 
 /**
  * A Order.
@@ -20,11 +21,15 @@ public class Order implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orderSequenceGenerator")
+    @SequenceGenerator(name = "orderSequenceGenerator", sequenceName = "jhi_order_seq", allocationSize = 500)
     @Column(name = "id")
     private Long id;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     @NotNull
     @Column(name = "order_date", nullable = false)
     private Instant orderDate;
@@ -33,9 +38,9 @@ public class Order implements Serializable {
     private Instant shippedDate;
 
     @NotNull
-    @Size(min = 3)
+    @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
-    private String status;
+    private OrderStatus status;
 
     @NotNull
     @DecimalMin(value = "0")
@@ -77,6 +82,19 @@ public class Order implements Serializable {
         this.id = id;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public Order version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public Instant getOrderDate() {
         return this.orderDate;
     }
@@ -103,16 +121,16 @@ public class Order implements Serializable {
         this.shippedDate = shippedDate;
     }
 
-    public String getStatus() {
+    public OrderStatus getStatus() {
         return this.status;
     }
 
-    public Order status(String status) {
+    public Order status(OrderStatus status) {
         this.setStatus(status);
         return this;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(OrderStatus status) {
         this.status = status;
     }
 
@@ -236,6 +254,7 @@ public class Order implements Serializable {
     public String toString() {
         return "Order{" +
             "id=" + getId() +
+            ", version=" + getVersion() +
             ", orderDate='" + getOrderDate() + "'" +
             ", shippedDate='" + getShippedDate() + "'" +
             ", status='" + getStatus() + "'" +
@@ -9,23 +9,30 @@ import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 import myapp.domain.enumeration.ProductStatus;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * A Product.
  */
 @Entity
 @Table(name = "product")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
 public class Product implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productSequenceGenerator")
+    @SequenceGenerator(name = "productSequenceGenerator", sequenceName = "product_seq", allocationSize = 500)
     @Column(name = "id")
     private Long id;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
     @NotNull
     @Size(min = 3, max = 100)
     @Column(name = "title", length = 100, nullable = false)
@@ -101,6 +108,19 @@ public class Product implements Serializable {
         this.id = id;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public Product version(Integer version) {
+        this.setVersion(version);
+        return this;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public String getTitle() {
         return this.title;
     }
@@ -325,6 +345,7 @@ public class Product implements Serializable {
     public String toString() {
         return "Product{" +
             "id=" + getId() +
+            ", version=" + getVersion() +
             ", title='" + getTitle() + "'" +
             ", keywords='" + getKeywords() + "'" +
             ", description='" + getDescription() + "'" +
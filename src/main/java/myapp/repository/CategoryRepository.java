@@ -27,4 +27,8 @@ public interface CategoryRepository extends CategoryRepositoryWithBagRelationshi
     default Page<Category> findAllWithEagerRelationships(Pageable pageable) {
         return this.fetchBagRelationships(this.findAll(pageable));
     }
+
+    default Page<Category> findAllWithEagerRelationships(Pageable pageable, int productsLimit) {
+        return this.fetchBagRelationships(this.findAll(pageable), productsLimit);
+    }
 }
@@ -1,6 +1,8 @@
 package myapp.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import myapp.domain.Category;
 import org.springframework.data.domain.Page;
@@ -11,4 +13,10 @@ public interface CategoryRepositoryWithBagRelationships {
     List<Category> fetchBagRelationships(List<Category> categories);
 
     Page<Category> fetchBagRelationships(Page<Category> categories);
+
+    List<Category> fetchBagRelationships(List<Category> categories, int productsLimit);
+
+    Page<Category> fetchBagRelationships(Page<Category> categories, int productsLimit);
+
+    Map<Long, List<Long>> findProductIds(Collection<Long> categoryIds, int productsLimit);
 }
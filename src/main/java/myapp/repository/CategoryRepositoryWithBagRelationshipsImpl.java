@@ -2,12 +2,21 @@ package myapp.repository;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import myapp.domain.Category;
+import myapp.domain.Product;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
@@ -16,9 +25,19 @@ import org.springframework.data.domain.PageImpl;
  */
 public class CategoryRepositoryWithBagRelationshipsImpl implements CategoryRepositoryWithBagRelationships {
 
-    private static final String ID_PARAMETER = "id";
     private static final String CATEGORIES_PARAMETER = "categories";
 
+    private static final String CATEGORY_IDS_PARAMETER = "categoryIds";
+
+    private static final String LIMIT_PARAMETER = "limit";
+
+    // the first "limit" product ids of each category, read from the join table only
+    private static final String PRODUCT_IDS_QUERY =
+        "select ranked.category_id, ranked.product_id from (" +
+        "select rel.category_id, rel.product_id, row_number() over (partition by rel.category_id order by rel.product_id) as rn " +
+        "from rel_category__product rel where rel.category_id in (:categoryIds)" +
+        ") ranked where ranked.rn <= :limit order by ranked.category_id, ranked.product_id";
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -37,24 +56,103 @@ public class CategoryRepositoryWithBagRelationshipsImpl implements CategoryRepos
         return Optional.of(categories).map(this::fetchProducts).orElse(Collections.emptyList());
     }
 
+    @Override
+    public Page<Category> fetchBagRelationships(Page<Category> categories, int productsLimit) {
+        return new PageImpl<>(
+            fetchBagRelationships(categories.getContent(), productsLimit),
+            categories.getPageable(),
+            categories.getTotalElements()
+        );
+    }
+
+    @Override
+    public List<Category> fetchBagRelationships(List<Category> categories, int productsLimit) {
+        return fetchProducts(categories, productsLimit);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, List<Long>> findProductIds(Collection<Long> categoryIds, int productsLimit) {
+        Map<Long, List<Long>> result = new LinkedHashMap<>();
+        categoryIds.forEach(categoryId -> result.put(categoryId, new ArrayList<>()));
+        if (categoryIds.isEmpty() || productsLimit <= 0) {
+            return result;
+        }
+        List<Object[]> rows = entityManager
+            .createNativeQuery(PRODUCT_IDS_QUERY)
+            .setParameter(CATEGORY_IDS_PARAMETER, categoryIds)
+            .setParameter(LIMIT_PARAMETER, productsLimit)
+            .getResultList();
+        for (Object[] row : rows) {
+            result.get(((Number) row[0]).longValue()).add(((Number) row[1]).longValue());
+        }
+        return result;
+    }
+
     Category fetchProducts(Category result) {
-        return entityManager
-            .createQuery("select category from Category category left join fetch category.products where category.id = :id", Category.class)
-            .setParameter(ID_PARAMETER, result.getId())
-            .getSingleResult();
+        // resolved through the second-level cache, including the products collection region
+        Category category = entityManager.find(Category.class, result.getId());
+        Hibernate.initialize(category.getProducts());
+        return category;
     }
 
     List<Category> fetchProducts(List<Category> categories) {
-        HashMap<Object, Integer> order = new HashMap<>();
-        IntStream.range(0, categories.size()).forEach(index -> order.put(categories.get(index).getId(), index));
-        List<Category> result = entityManager
+        if (categories.isEmpty()) {
+            return categories;
+        }
+        // initializes the collections of the managed categories in place, so the page order is kept as is
+        entityManager
             .createQuery(
                 "select category from Category category left join fetch category.products where category in :categories",
                 Category.class
             )
             .setParameter(CATEGORIES_PARAMETER, categories)
             .getResultList();
-        Collections.sort(result, (o1, o2) -> Integer.compare(order.get(o1.getId()), order.get(o2.getId())));
-        return result;
+        return categories;
+    }
+
+    List<Category> fetchProducts(List<Category> categories, int productsLimit) {
+        if (categories.isEmpty()) {
+            return categories;
+        }
+        // one more than the limit, to tell the categories that have more
+        Map<Long, List<Long>> productIds = findProductIds(categories.stream().map(Category::getId).toList(), productsLimit + 1);
+        for (Category category : categories) {
+            // detached, so that the capped collection is never flushed in place of the full association
+            entityManager.detach(category);
+            List<Long> ids = productIds.get(category.getId());
+            if (ids.size() > productsLimit) {
+                productIds.put(category.getId(), ids.subList(0, productsLimit));
+                category.setProductsTruncated(true);
+            }
+        }
+        List<Long> ids = productIds.values().stream().flatMap(List::stream).distinct().toList();
+        Map<Long, Product> products = ids.isEmpty()
+            ? Map.of()
+            : entityManager
+                .unwrap(Session.class)
+                .byMultipleIds(Product.class)
+                .multiLoad(ids)
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return setProducts(categories, productIds, products);
+    }
+
+    /**
+     * Set the products of each category, in the order of their ids, skipping the products not found.
+     */
+    static List<Category> setProducts(List<Category> categories, Map<Long, List<Long>> productIds, Map<Long, Product> products) {
+        for (Category category : categories) {
+            category.setProducts(
+                productIds
+                    .get(category.getId())
+                    .stream()
+                    .map(products::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(LinkedHashSet::new))
+            );
+        }
+        return categories;
     }
 }
@@ -1,7 +1,11 @@
 package myapp.repository;
 
+import java.util.List;
+import java.util.Optional;
 import myapp.domain.Customer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +13,11 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {}
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+    List<Customer> findAllByOrderByIdAsc(Limit limit);
+
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("select customer from Customer customer left join fetch customer.addresses where customer.id = :id")
+    Optional<Customer> findOneWithAddresses(@Param("id") Long id);
+}
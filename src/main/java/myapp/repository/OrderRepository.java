@@ -1,7 +1,14 @@
 package myapp.repository;
 
+import java.time.Instant;
+import java.util.List;
 import myapp.domain.Order;
+import myapp.domain.enumeration.OrderStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +16,38 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {}
+public interface OrderRepository extends JpaRepository<Order, Long> {
+    String OPEN_STATUSES =
+        "(myapp.domain.enumeration.OrderStatus.NEW, myapp.domain.enumeration.OrderStatus.CONFIRMED, " +
+        "myapp.domain.enumeration.OrderStatus.PROCESSING, myapp.domain.enumeration.OrderStatus.SHIPPED)";
+
+    List<Order> findAllByOrderByOrderDateAscIdAsc(Limit limit);
+
+    List<Order> findAllByCustomerIdOrderByOrderDateDescIdDesc(Long customerId, Limit limit);
+
+    @Query(
+        "select jhiOrder from Order jhiOrder" +
+        " where jhiOrder.orderDate > :orderDate or (jhiOrder.orderDate = :orderDate and jhiOrder.id > :id)" +
+        " order by jhiOrder.orderDate asc, jhiOrder.id asc"
+    )
+    List<Order> findAllAfter(@Param("orderDate") Instant orderDate, @Param("id") Long id, Limit limit);
+
+    @Query(
+        value = "select jhiOrder.id from Order jhiOrder where jhiOrder.status = :status order by jhiOrder.orderDate asc, jhiOrder.id asc",
+        countQuery = "select count(jhiOrder) from Order jhiOrder where jhiOrder.status = :status"
+    )
+    Page<Long> findIdsByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    /**
+     * Same as {@link #findIdsByStatus}, for an open status only. The open statuses are repeated as literals, matching the
+     * predicate of the partial index {@code idx_jhi_order__open_status}, so the database can prove that the index applies
+     * whatever the bound status is.
+     */
+    @Query(
+        value = "select jhiOrder.id from Order jhiOrder where jhiOrder.status = :status and jhiOrder.status in " +
+        OPEN_STATUSES +
+        " order by jhiOrder.orderDate asc, jhiOrder.id asc",
+        countQuery = "select count(jhiOrder) from Order jhiOrder where jhiOrder.status = :status and jhiOrder.status in " + OPEN_STATUSES
+    )
+    Page<Long> findIdsByOpenStatus(@Param("status") OrderStatus status, Pageable pageable);
+}
@@ -1,7 +1,13 @@
 package myapp.repository;
 
+import java.util.Collection;
+import java.util.List;
 import myapp.domain.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +15,14 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {}
+public interface ProductRepository extends JpaRepository<Product, Long> {
+    List<Product> findAllByOrderByIdAsc(Limit limit);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query(
+        "select product from Product product where product.id in " +
+        "(select categoryProduct.id from Category category join category.products categoryProduct where category.id in :categoryIds)"
+    )
+    Page<Product> findAllByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds, Pageable pageable);
+}
@@ -1,7 +1,12 @@
 package myapp.repository;
 
+import java.util.List;
 import myapp.domain.WishList;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +14,22 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface WishListRepository extends JpaRepository<WishList, Long> {}
+public interface WishListRepository extends JpaRepository<WishList, Long> {
+    List<WishList> findAllByOrderByIdAsc(Limit limit);
+
+    List<WishList> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    Page<WishList> findAllByCustomerId(Long customerId, Pageable pageable);
+
+    @Query(
+        "select new myapp.repository.WishListRepository$WishListSummary(wishList.id, wishList.title, wishList.restricted, count(product))" +
+        " from WishList wishList left join wishList.products product where wishList.customer.id = :customerId" +
+        " group by wishList.id, wishList.title, wishList.restricted order by wishList.id"
+    )
+    List<WishListSummary> findSummariesByCustomerId(@Param("customerId") Long customerId);
+
+    /**
+     * A wish list, with the number of products in it instead of the products.
+     */
+    record WishListSummary(Long id, String title, Boolean restricted, Long productCount) {}
+}
@@ -0,0 +1,125 @@
+package myapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link PasswordEncoder} hashing passwords on a pool of its own, so that however many logins, registrations and password
+ * changes come in at once, at most that many threads are busy hashing and the other requests keep their processors.
+ * <p>
+ * Callers wait for their hash. Once the queue of the pool is full, they are turned away at once with a
+ * {@link PasswordHashingBusyException}, answered with {@code 503 (Service Unavailable)} and a {@code Retry-After} header,
+ * instead of holding a request thread for longer than the hash takes. The time to hash is timed in
+ * {@value #HASHING_METER_NAME} per operation, the requests turned away are counted in {@value #REJECTED_METER_NAME}, and
+ * {@value #QUEUED_METER_NAME} gauges the queue. With a queue capacity of 0, the passwords are only hashed while a thread of
+ * the pool is free.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    public static final String HASHING_METER_NAME = "security.password.hashing";
+    public static final String HASHING_METER_DESCRIPTION = "Times the hashing of passwords, without the wait in the queue.";
+    public static final String HASHING_METER_OPERATION_DIMENSION = "operation";
+    public static final String REJECTED_METER_NAME = "security.password.hashing.rejected";
+    public static final String REJECTED_METER_DESCRIPTION = "Counts the passwords not hashed as the queue was full.";
+    public static final String QUEUED_METER_NAME = "security.password.hashing.queued";
+    public static final String QUEUED_METER_DESCRIPTION = "Number of passwords waiting to be hashed.";
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+
+    private final Timer matchesTimer;
+
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long retryAfterSeconds, MeterRegistry registry) {
+        if (threads < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException(
+                "Password hashing needs at least one thread and a queue capacity of 0 or more, not " + threads + " and " + queueCapacity
+            );
+        }
+        this.delegate = delegate;
+        // an ArrayBlockingQueue cannot be empty, a SynchronousQueue only hands the passwords over to a free thread
+        BlockingQueue<Runnable> queue = queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.encodeTimer = hashingTimer("encode", registry);
+        this.matchesTimer = hashingTimer("matches", registry);
+        this.rejected = Counter.builder(REJECTED_METER_NAME).description(REJECTED_METER_DESCRIPTION).register(registry);
+        Gauge.builder(QUEUED_METER_NAME, executor, pool -> pool.getQueue().size())
+            .description(QUEUED_METER_DESCRIPTION)
+            .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T hash(Callable<T> hashing) {
+        Future<T> result;
+        try {
+            result = executor.submit(hashing);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Timer hashingTimer(String operation, MeterRegistry registry) {
+        return Timer.builder(HASHING_METER_NAME)
+            .description(HASHING_METER_DESCRIPTION)
+            .tag(HASHING_METER_OPERATION_DIMENSION, operation)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
@@ -0,0 +1,66 @@
+package myapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * {@link JwtDecoder} remembering the tokens it has verified until they expire, so a token sent again is neither verified
+ * nor parsed again.
+ * <p>
+ * Only valid tokens with an expiry are remembered: invalid ones always go through the decoder, and are reported by it as
+ * before. Tokens are looked up by their value, which the decoded {@link Jwt} holds anyway. Hits and misses are metered as
+ * the {@value #CACHE_NAME} cache.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    public static final String CACHE_NAME = "verified-jwt";
+
+    private final JwtDecoder delegate;
+
+    private final Cache<String, Jwt> verified;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder().maximumSize(maximumSize).expireAfter(new UntilExpiry()).recordStats().build();
+        CaffeineCacheMetrics.monitor(registry, verified, CACHE_NAME);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Jwt jwt = verified.getIfPresent(token);
+        if (jwt == null) {
+            jwt = delegate.decode(token);
+            if (jwt.getExpiresAt() != null) {
+                verified.put(token, jwt);
+            }
+        }
+        return jwt;
+    }
+
+    private static final class UntilExpiry implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String token, Jwt jwt, long currentTime) {
+            // the decoder still accepts it for the allowed clock skew, then reports it as expired
+            return Math.max(Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
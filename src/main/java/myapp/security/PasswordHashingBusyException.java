@@ -0,0 +1,20 @@
+package myapp.security;
+
+/**
+ * This exception is thrown when the passwords to hash are more than {@link BoundedPasswordEncoder} can queue.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Too many passwords to check, please retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
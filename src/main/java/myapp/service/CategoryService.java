@@ -1,5 +1,8 @@
 package myapp.service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import myapp.domain.Category;
 import myapp.repository.CategoryRepository;
@@ -7,7 +10,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -21,8 +26,22 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    private final CategoryTreeService categoryTreeService;
+
+    private final SingleFlightService singleFlightService;
+
+    private final EntityTagService entityTagService;
+
+    public CategoryService(
+        CategoryRepository categoryRepository,
+        CategoryTreeService categoryTreeService,
+        SingleFlightService singleFlightService,
+        EntityTagService entityTagService
+    ) {
         this.categoryRepository = categoryRepository;
+        this.categoryTreeService = categoryTreeService;
+        this.singleFlightService = singleFlightService;
+        this.entityTagService = entityTagService;
     }
 
     /**
@@ -33,7 +52,9 @@ public class CategoryService {
      */
     public Category save(Category category) {
         LOG.debug("Request to save Category : {}", category);
-        return categoryRepository.save(category);
+        Category result = categoryRepository.save(category);
+        categoryTreeService.put(result);
+        return result;
     }
 
     /**
@@ -41,10 +62,18 @@ public class CategoryService {
      *
      * @param category the entity to save.
      * @return the persisted entity.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the category has been updated since.
      */
     public Category update(Category category) {
         LOG.debug("Request to update Category : {}", category);
-        return categoryRepository.save(category);
+        if (category.getVersion() == null) {
+            // without a version the category would be taken for a new one, it is overwritten whatever its current version
+            categoryRepository.findById(category.getId()).map(Category::getVersion).ifPresent(category::setVersion);
+        }
+        Category result = categoryRepository.save(category);
+        categoryTreeService.put(result);
+        entityTagService.invalidate(Category.class, result.getId());
+        return result;
     }
 
     /**
@@ -52,6 +81,7 @@ public class CategoryService {
      *
      * @param category the entity to update partially.
      * @return the persisted entity.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the category has been updated since.
      */
     public Optional<Category> partialUpdate(Category category) {
         LOG.debug("Request to partially update Category : {}", category);
@@ -59,6 +89,9 @@ public class CategoryService {
         return categoryRepository
             .findById(category.getId())
             .map(existingCategory -> {
+                if (category.getVersion() != null && !category.getVersion().equals(existingCategory.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(Category.class, category.getId());
+                }
                 if (category.getDescription() != null) {
                     existingCategory.setDescription(category.getDescription());
                 }
@@ -77,7 +110,12 @@ public class CategoryService {
 
                 return existingCategory;
             })
-            .map(categoryRepository::save);
+            .map(categoryRepository::save)
+            .map(result -> {
+                categoryTreeService.put(result);
+                entityTagService.invalidate(Category.class, result.getId());
+                return result;
+            });
     }
 
     /**
@@ -94,23 +132,51 @@ public class CategoryService {
 
     /**
      * Get all the categories with eager load of many-to-many relationships.
+     * <p>
+     * Only the first {@code productsLimit} products of each category, in id order, are loaded. The categories are returned
+     * detached, those that have more products {@linkplain Category#isProductsTruncated() flagged}.
      *
+     * @param pageable the pagination information.
+     * @param productsLimit the maximum number of products loaded per category.
      * @return the list of entities.
      */
-    public Page<Category> findAllWithEagerRelationships(Pageable pageable) {
-        return categoryRepository.findAllWithEagerRelationships(pageable);
+    @Transactional(readOnly = true)
+    public Page<Category> findAllWithEagerRelationships(Pageable pageable, int productsLimit) {
+        LOG.debug("Request to get all Categories with at most {} products each", productsLimit);
+        return categoryRepository.findAllWithEagerRelationships(pageable, productsLimit);
+    }
+
+    /**
+     * Get the product ids of several categories, with a single query.
+     *
+     * @param categoryIds the ids of the categories.
+     * @param productsLimit the maximum number of product ids returned per category.
+     * @return the product ids in id order, by category id.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findProductIds(Collection<Long> categoryIds, int productsLimit) {
+        LOG.debug("Request to get the product ids of Categories : {}", categoryIds);
+        return categoryRepository.findProductIds(categoryIds, productsLimit);
     }
 
     /**
      * Get one category by id.
+     * <p>
+     * Concurrent lookups of the same category share a single query, see {@link SingleFlightService}. The tag of the
+     * category is recorded, see {@link EntityTagService}.
      *
      * @param id the id of the entity.
      * @return the entity.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<Category> findOne(Long id) {
         LOG.debug("Request to get Category : {}", id);
-        return categoryRepository.findOneWithEagerRelationships(id);
+        return singleFlightService.execute("category", id, () -> {
+            long generation = entityTagService.getGeneration(Category.class);
+            Optional<Category> category = categoryRepository.findOneWithEagerRelationships(id);
+            category.ifPresent(found -> entityTagService.recordTag(Category.class, id, EntityTagService.tagOf(found), generation));
+            return category;
+        });
     }
 
     /**
@@ -121,5 +187,7 @@ public class CategoryService {
     public void delete(Long id) {
         LOG.debug("Request to delete Category : {}", id);
         categoryRepository.deleteById(id);
+        categoryTreeService.remove(id);
+        entityTagService.invalidate(Category.class, id);
     }
 }
@@ -0,0 +1,289 @@
+package myapp.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import myapp.domain.Category;
+import myapp.domain.enumeration.CategoryStatus;
+import myapp.repository.CategoryRepository;
+import myapp.service.dto.CategoryNodeDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service keeping the {@link myapp.domain.Category} hierarchy in memory.
+ * <p>
+ * The tree is an immutable snapshot holding the children and the ancestor array of every category, so that subtree and
+ * breadcrumb lookups never hit the database. It is built once the application is ready, and each committed write made
+ * through {@link CategoryService} publishes a new snapshot in which only the ancestors of the moved subtree are recomputed.
+ */
+@Service
+public class CategoryTreeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CategoryTreeService.class);
+
+    private final CategoryRepository categoryRepository;
+
+    private volatile Tree tree = Tree.EMPTY;
+
+    public CategoryTreeService(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    /**
+     * Add or replace a category in the tree.
+     * <p>
+     * When called inside a transaction, the tree is only updated once the transaction commits.
+     *
+     * @param category the entity to add.
+     */
+    public void put(Category category) {
+        Node node = Node.of(category);
+        AfterCommit.run(() -> putNow(node));
+    }
+
+    /**
+     * Remove a category from the tree, its children become roots.
+     * <p>
+     * When called inside a transaction, the tree is only updated once the transaction commits.
+     *
+     * @param id the id of the entity.
+     */
+    public void remove(Long id) {
+        AfterCommit.run(() -> removeNow(id));
+    }
+
+    /**
+     * Get the subtree rooted at a category.
+     *
+     * @param id the id of the root category.
+     * @return the subtree, or empty if the category is unknown.
+     */
+    public Optional<CategoryNodeDTO> getSubtree(Long id) {
+        Tree current = tree;
+        return Optional.ofNullable(current.nodes.get(id)).map(node -> current.toDTO(node));
+    }
+
+    /**
+     * Get the ids of a category and of all its descendants, breadth first.
+     *
+     * @param id the id of the root category.
+     * @return the ids, or an empty list if the category is unknown.
+     */
+    public List<Long> getDescendantIds(Long id) {
+        Tree current = tree;
+        if (!current.nodes.containsKey(id)) {
+            return List.of();
+        }
+        return current.descendantIds(id);
+    }
+
+    /**
+     * Get the ids of the ancestors of a category, from the root down to its parent.
+     *
+     * @param id the id of the category.
+     * @return the ids, or an empty list if the category is a root or is unknown.
+     */
+    public List<Long> getAncestorIds(Long id) {
+        long[] ancestors = tree.ancestors.get(id);
+        return ancestors == null ? List.of() : Arrays.stream(ancestors).boxed().toList();
+    }
+
+    /**
+     * Rebuild the tree from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildTree() {
+        LOG.debug("Rebuilding Category tree");
+        List<Node> nodes = categoryRepository.findAll().stream().map(Node::of).toList();
+        synchronized (this) {
+            tree = Tree.of(nodes);
+        }
+        LOG.info("Category tree rebuilt with {} categories", nodes.size());
+    }
+
+    synchronized void putNow(Node node) {
+        tree = tree.with(node);
+    }
+
+    synchronized void removeNow(Long id) {
+        tree = tree.without(id);
+    }
+
+    record Node(Long id, Long parentId, String description, Integer sortOrder, CategoryStatus status) {
+        static Node of(Category category) {
+            Long parentId = category.getParent() == null ? null : category.getParent().getId();
+            return new Node(category.getId(), parentId, category.getDescription(), category.getSortOrder(), category.getStatus());
+        }
+
+        Node asRoot() {
+            return new Node(id, null, description, sortOrder, status);
+        }
+    }
+
+    private static final class Tree {
+
+        static final Tree EMPTY = new Tree(Map.of(), Map.of(), Map.of());
+
+        final Map<Long, Node> nodes;
+
+        // parent id -> children ids in sort order, roots are not listed
+        final Map<Long, List<Long>> children;
+
+        // category id -> ancestor ids from the root down to the parent
+        final Map<Long, long[]> ancestors;
+
+        private Tree(Map<Long, Node> nodes, Map<Long, List<Long>> children, Map<Long, long[]> ancestors) {
+            this.nodes = nodes;
+            this.children = children;
+            this.ancestors = ancestors;
+        }
+
+        static Tree of(Collection<Node> all) {
+            Map<Long, Node> nodes = new HashMap<>();
+            all.forEach(node -> nodes.put(node.id(), node));
+
+            Map<Long, List<Long>> children = new HashMap<>();
+            for (Node node : nodes.values()) {
+                if (node.parentId() != null && nodes.containsKey(node.parentId())) {
+                    children.computeIfAbsent(node.parentId(), key -> new ArrayList<>()).add(node.id());
+                }
+            }
+            children.replaceAll((parentId, ids) -> sorted(ids, nodes));
+
+            Map<Long, long[]> ancestors = new HashMap<>();
+            for (Node node : nodes.values()) {
+                if (node.parentId() == null || !nodes.containsKey(node.parentId())) {
+                    computeAncestors(node.id(), nodes, children, ancestors);
+                }
+            }
+            // categories caught in a parent cycle are unreachable from any root, the cycle is broken by making one of them a root
+            for (Long id : List.copyOf(nodes.keySet())) {
+                if (!ancestors.containsKey(id)) {
+                    Node node = nodes.get(id);
+                    LOG.warn("Category {} is part of a parent cycle, it is kept as a root", id);
+                    detach(children, node.parentId(), id);
+                    nodes.put(id, node.asRoot());
+                    computeAncestors(id, nodes, children, ancestors);
+                }
+            }
+            return new Tree(Map.copyOf(nodes), Map.copyOf(children), Map.copyOf(ancestors));
+        }
+
+        Tree with(Node node) {
+            Map<Long, Node> nodes = new HashMap<>(this.nodes);
+            Map<Long, List<Long>> children = new HashMap<>(this.children);
+            Map<Long, long[]> ancestors = new HashMap<>(this.ancestors);
+
+            Long parentId = node.parentId();
+            if (parentId != null && (parentId.equals(node.id()) || contains(this.ancestors.get(parentId), node.id()))) {
+                LOG.warn("Category {} cannot be moved under its own descendant {}, it is kept as a root", node.id(), parentId);
+                node = node.asRoot();
+                parentId = null;
+            }
+            Node previous = nodes.put(node.id(), node);
+            if (previous != null && previous.parentId() != null) {
+                detach(children, previous.parentId(), node.id());
+            }
+            if (parentId != null && nodes.containsKey(parentId)) {
+                List<Long> siblings = new ArrayList<>(children.getOrDefault(parentId, List.of()));
+                siblings.add(node.id());
+                children.put(parentId, sorted(siblings, nodes));
+            }
+            if (previous == null || !Objects.equals(previous.parentId(), node.parentId())) {
+                computeAncestors(node.id(), nodes, children, ancestors);
+            }
+            return new Tree(Map.copyOf(nodes), Map.copyOf(children), Map.copyOf(ancestors));
+        }
+
+        Tree without(Long id) {
+            Node previous = nodes.get(id);
+            if (previous == null) {
+                return this;
+            }
+            Map<Long, Node> nodes = new HashMap<>(this.nodes);
+            Map<Long, List<Long>> children = new HashMap<>(this.children);
+            Map<Long, long[]> ancestors = new HashMap<>(this.ancestors);
+
+            nodes.remove(id);
+            ancestors.remove(id);
+            if (previous.parentId() != null) {
+                detach(children, previous.parentId(), id);
+            }
+            // the children become roots
+            for (Long childId : children.getOrDefault(id, List.of())) {
+                computeAncestors(childId, nodes, children, ancestors);
+            }
+            children.remove(id);
+            return new Tree(Map.copyOf(nodes), Map.copyOf(children), Map.copyOf(ancestors));
+        }
+
+        List<Long> descendantIds(Long id) {
+            List<Long> result = new ArrayList<>();
+            Deque<Long> queue = new ArrayDeque<>();
+            queue.add(id);
+            while (!queue.isEmpty()) {
+                Long current = queue.poll();
+                result.add(current);
+                queue.addAll(children.getOrDefault(current, List.of()));
+            }
+            return result;
+        }
+
+        CategoryNodeDTO toDTO(Node node) {
+            List<CategoryNodeDTO> dtos = children.getOrDefault(node.id(), List.of()).stream().map(id -> toDTO(nodes.get(id))).toList();
+            return new CategoryNodeDTO(node.id(), node.parentId(), node.description(), node.sortOrder(), node.status(), dtos);
+        }
+
+        // recomputes the ancestor arrays of a category and of its whole subtree, from the arrays of its parent
+        private static void computeAncestors(Long id, Map<Long, Node> nodes, Map<Long, List<Long>> children, Map<Long, long[]> ancestors) {
+            Deque<Long> queue = new ArrayDeque<>();
+            queue.add(id);
+            while (!queue.isEmpty()) {
+                Long current = queue.poll();
+                Long parentId = nodes.get(current).parentId();
+                long[] parentAncestors = parentId == null ? null : ancestors.get(parentId);
+                if (parentAncestors == null || !nodes.containsKey(parentId)) {
+                    ancestors.put(current, new long[0]);
+                } else {
+                    long[] path = Arrays.copyOf(parentAncestors, parentAncestors.length + 1);
+                    path[parentAncestors.length] = parentId;
+                    ancestors.put(current, path);
+                }
+                queue.addAll(children.getOrDefault(current, List.of()));
+            }
+        }
+
+        private static void detach(Map<Long, List<Long>> children, Long parentId, Long id) {
+            List<Long> siblings = children.get(parentId);
+            if (siblings != null) {
+                List<Long> remaining = siblings.stream().filter(siblingId -> !siblingId.equals(id)).toList();
+                if (remaining.isEmpty()) {
+                    children.remove(parentId);
+                } else {
+                    children.put(parentId, remaining);
+                }
+            }
+        }
+
+        private static List<Long> sorted(List<Long> ids, Map<Long, Node> nodes) {
+            Comparator<Long> bySortOrder = Comparator.comparing(id -> nodes.get(id).sortOrder(), Comparator.nullsLast(Comparator.naturalOrder()));
+            return ids.stream().sorted(bySortOrder.thenComparing(Comparator.naturalOrder())).toList();
+        }
+
+        private static boolean contains(long[] ids, long id) {
+            return ids != null && Arrays.stream(ids).anyMatch(value -> value == id);
+        }
+    }
+}
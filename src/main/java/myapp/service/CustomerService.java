@@ -1,12 +1,21 @@
 package myapp.service;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import myapp.domain.Address;
 import myapp.domain.Customer;
+import myapp.domain.Order;
 import myapp.repository.CustomerRepository;
+import myapp.repository.OrderRepository;
+import myapp.repository.WishListRepository;
+import myapp.service.dto.CustomerOverviewDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,10 +28,22 @@ public class CustomerService {
 
     private static final Logger LOG = LoggerFactory.getLogger(CustomerService.class);
 
+    private static final int RECENT_ORDERS = 10;
+
     private final CustomerRepository customerRepository;
 
-    public CustomerService(CustomerRepository customerRepository) {
+    private final OrderRepository orderRepository;
+
+    private final WishListRepository wishListRepository;
+
+    public CustomerService(
+        CustomerRepository customerRepository,
+        OrderRepository orderRepository,
+        WishListRepository wishListRepository
+    ) {
         this.customerRepository = customerRepository;
+        this.orderRepository = orderRepository;
+        this.wishListRepository = wishListRepository;
     }
 
     /**
@@ -41,9 +62,14 @@ public class CustomerService {
      *
      * @param customer the entity to save.
      * @return the persisted entity.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the customer has been updated since.
      */
     public Customer update(Customer customer) {
         LOG.debug("Request to update Customer : {}", customer);
+        if (customer.getVersion() == null) {
+            // without a version the customer would be taken for a new one, it is overwritten whatever its current version
+            customerRepository.findById(customer.getId()).map(Customer::getVersion).ifPresent(customer::setVersion);
+        }
         return customerRepository.save(customer);
     }
 
@@ -52,6 +78,7 @@ public class CustomerService {
      *
      * @param customer the entity to update partially.
      * @return the persisted entity.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the customer has been updated since.
      */
     public Optional<Customer> partialUpdate(Customer customer) {
         LOG.debug("Request to partially update Customer : {}", customer);
@@ -59,6 +86,9 @@ public class CustomerService {
         return customerRepository
             .findById(customer.getId())
             .map(existingCustomer -> {
+                if (customer.getVersion() != null && !customer.getVersion().equals(existingCustomer.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(Customer.class, customer.getId());
+                }
                 if (customer.getFirstName() != null) {
                     existingCustomer.setFirstName(customer.getFirstName());
                 }
@@ -89,6 +119,22 @@ public class CustomerService {
         return customerRepository.findAll(pageable);
     }
 
+    /**
+     * Get a slice of the customers ordered by id, using keyset pagination.
+     *
+     * @param afterId the id of the last customer of the previous slice, or {@code null} for the first slice.
+     * @param size the maximum number of entities to return.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public List<Customer> findAllAfter(Long afterId, int size) {
+        LOG.debug("Request to get a slice of Customers after {}", afterId);
+        if (afterId == null) {
+            return customerRepository.findAllByOrderByIdAsc(Limit.of(size));
+        }
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+    }
+
     /**
      * Get one customer by id.
      *
@@ -101,6 +147,44 @@ public class CustomerService {
         return customerRepository.findById(id);
     }
 
+    /**
+     * Get the overview of one customer: its addresses, its {@value #RECENT_ORDERS} most recent orders, and its wish lists
+     * with the number of products in each.
+     * <p>
+     * This takes three statements whatever the number of addresses, orders and wish lists: one for the customer with its
+     * addresses, one for the recent orders, and one counting the products of the wish lists.
+     *
+     * @param id the id of the customer.
+     * @return the overview, or empty if the customer is unknown.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CustomerOverviewDTO> findOverview(Long id) {
+        LOG.debug("Request to get the overview of Customer : {}", id);
+        return customerRepository
+            .findOneWithAddresses(id)
+            .map(customer ->
+                new CustomerOverviewDTO(
+                    customer.getId(),
+                    customer.getFirstName(),
+                    customer.getLastName(),
+                    customer.getEmail(),
+                    customer.getTelephone(),
+                    customer
+                        .getAddresses()
+                        .stream()
+                        .sorted(Comparator.comparing(Address::getId))
+                        .map(CustomerService::toSummary)
+                        .toList(),
+                    orderRepository
+                        .findAllByCustomerIdOrderByOrderDateDescIdDesc(id, Limit.of(RECENT_ORDERS))
+                        .stream()
+                        .map(CustomerService::toSummary)
+                        .toList(),
+                    wishListRepository.findSummariesByCustomerId(id).stream().map(CustomerService::toSummary).toList()
+                )
+            );
+    }
+
     /**
      * Delete the customer by id.
      *
@@ -110,4 +194,30 @@ public class CustomerService {
         LOG.debug("Request to delete Customer : {}", id);
         customerRepository.deleteById(id);
     }
+
+    private static CustomerOverviewDTO.AddressSummary toSummary(Address address) {
+        return new CustomerOverviewDTO.AddressSummary(
+            address.getId(),
+            address.getAddress1(),
+            address.getAddress2(),
+            address.getCity(),
+            address.getPostcode(),
+            address.getCountry()
+        );
+    }
+
+    private static CustomerOverviewDTO.OrderSummary toSummary(Order order) {
+        return new CustomerOverviewDTO.OrderSummary(
+            order.getId(),
+            order.getOrderDate(),
+            order.getShippedDate(),
+            order.getStatus(),
+            order.getTotalAmount(),
+            order.getTrackingNumber()
+        );
+    }
+
+    private static CustomerOverviewDTO.WishListSummary toSummary(WishListRepository.WishListSummary wishList) {
+        return new CustomerOverviewDTO.WishListSummary(wishList.id(), wishList.title(), wishList.restricted(), wishList.productCount());
+    }
 }
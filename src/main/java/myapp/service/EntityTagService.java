@@ -0,0 +1,169 @@
+package myapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import myapp.domain.Category;
+import myapp.domain.Customer;
+import myapp.domain.Order;
+import myapp.domain.Product;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Service remembering the tags of the last read {@link Product} and {@link Category}, so a conditional request can be
+ * answered without loading the entity.
+ * <p>
+ * A tag changes whenever the entity, as it is serialized, changes: the tag of a product is made of its id and version, the
+ * tag of a category also of the versions of its products. Tags are recorded by reads and dropped once a write commits. A
+ * read which may have started before a write committed does not record its tag, so a dropped tag is never brought back
+ * with stale data. Tags are also dropped after {@value #TIME_TO_LIVE_MINUTES} minutes, which bounds how long an update
+ * made behind the back of the application can go unnoticed.
+ */
+@Service
+public class EntityTagService {
+
+    private static final int MAX_TAGS = 10000;
+
+    private static final int TIME_TO_LIVE_MINUTES = 5;
+
+    private final Map<Class<?>, Tags> tagsByType = new ConcurrentHashMap<>();
+
+    /**
+     * Get the tag of a product.
+     *
+     * @param product the product, with its version.
+     * @return the tag.
+     */
+    public static String tagOf(Product product) {
+        return product.getId() + "-" + product.getVersion();
+    }
+
+    /**
+     * Get the tag of a category. Product versions only increase, so the sum of the versions of the products changes
+     * whenever one of them is updated; adding or removing a product updates the version of the category.
+     *
+     * @param category the category, with its version and, if they are to be serialized, its products.
+     * @return the tag.
+     */
+    public static String tagOf(Category category) {
+        if (!Hibernate.isInitialized(category.getProducts())) {
+            return category.getId() + "-" + category.getVersion();
+        }
+        long productVersions = category.getProducts().stream().mapToLong(Product::getVersion).sum();
+        return category.getId() + "-" + category.getVersion() + "-" + productVersions;
+    }
+
+    /**
+     * Get the tag of an order. Its products and customer are serialized as references only.
+     *
+     * @param order the order, with its version.
+     * @return the tag.
+     */
+    public static String tagOf(Order order) {
+        return order.getId() + "-" + order.getVersion();
+    }
+
+    /**
+     * Get the tag of a customer.
+     *
+     * @param customer the customer, with its version.
+     * @return the tag.
+     */
+    public static String tagOf(Customer customer) {
+        return customer.getId() + "-" + customer.getVersion();
+    }
+
+    /**
+     * Get the tag last recorded for an entity.
+     *
+     * @param type the type of the entity.
+     * @param id the id of the entity.
+     * @return the tag, or empty if it is unknown.
+     */
+    public Optional<String> getTag(Class<?> type, Long id) {
+        return Optional.ofNullable(tags(type).byId.getIfPresent(id));
+    }
+
+    /**
+     * Get the current generation of the tags of a type, to be read before loading an entity whose tag is then recorded.
+     *
+     * @param type the type of the entity.
+     * @return the generation.
+     */
+    public long getGeneration(Class<?> type) {
+        return tags(type).generation;
+    }
+
+    /**
+     * Record the tag of an entity just read, unless a write has committed since the read started. Entities read by a
+     * transaction which may write are never recorded, as they can see uncommitted changes.
+     *
+     * @param type the type of the entity.
+     * @param id the id of the entity.
+     * @param tag the tag of the entity.
+     * @param generation the generation of the tags of the type when the read started.
+     */
+    public void recordTag(Class<?> type, Long id, String tag, long generation) {
+        if (
+            TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        ) {
+            return;
+        }
+        Tags tags = tags(type);
+        synchronized (tags) {
+            if (tags.generation == generation) {
+                tags.byId.put(id, tag);
+            }
+        }
+    }
+
+    /**
+     * Drop the tag of an entity once the current transaction commits.
+     *
+     * @param type the type of the entity.
+     * @param id the id of the entity.
+     */
+    public void invalidate(Class<?> type, Long id) {
+        Tags tags = tags(type);
+        AfterCommit.run(() -> {
+            synchronized (tags) {
+                tags.generation++;
+                tags.byId.invalidate(id);
+            }
+        });
+    }
+
+    /**
+     * Drop the tags of all the entities of a type once the current transaction commits.
+     *
+     * @param type the type of the entities.
+     */
+    public void invalidateAll(Class<?> type) {
+        Tags tags = tags(type);
+        AfterCommit.run(() -> {
+            synchronized (tags) {
+                tags.generation++;
+                tags.byId.invalidateAll();
+            }
+        });
+    }
+
+    private Tags tags(Class<?> type) {
+        return tagsByType.computeIfAbsent(type, key -> new Tags());
+    }
+
+    private static final class Tags {
+
+        private final Cache<Long, String> byId = Caffeine.newBuilder()
+            .maximumSize(MAX_TAGS)
+            .expireAfterWrite(Duration.ofMinutes(TIME_TO_LIVE_MINUTES))
+            .build();
+
+        private volatile long generation;
+    }
+}
@@ -0,0 +1,271 @@
+package myapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import myapp.domain.Order;
+import myapp.domain.Product;
+import myapp.domain.WishList;
+import myapp.domain.enumeration.OrderStatus;
+import myapp.domain.enumeration.ProductStatus;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for exporting {@link myapp.domain.Order}, {@link myapp.domain.Product} and {@link myapp.domain.WishList} as a stream.
+ * <p>
+ * Rows are read through a forward-only cursor fetching {@value #FETCH_SIZE} rows at a time, written as soon as they are
+ * read, and the persistence context is cleared every {@value #FETCH_SIZE} rows, so memory use does not depend on the
+ * number of exported rows.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExportService.class);
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final List<String> ORDER_COLUMNS = List.of(
+        "id",
+        "orderDate",
+        "shippedDate",
+        "status",
+        "totalAmount",
+        "shippingCost",
+        "trackingNumber",
+        "customerId",
+        "shippingAddressId"
+    );
+
+    private static final List<String> PRODUCT_COLUMNS = List.of(
+        "id",
+        "title",
+        "keywords",
+        "description",
+        "rating",
+        "price",
+        "quantityInStock",
+        "status",
+        "weight",
+        "dimensions",
+        "dateAdded",
+        "dateModified"
+    );
+
+    private static final List<String> WISH_LIST_COLUMNS = List.of("id", "title", "restricted", "customerId");
+
+    private final EntityManager entityManager;
+
+    private final ObjectWriter jsonWriter;
+
+    private final CsvMapper csvMapper;
+
+    public ExportService(EntityManager entityManager, ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.jsonWriter = objectMapper
+            .writer()
+            .without(SerializationFeature.INDENT_OUTPUT)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .withRootValueSeparator("\n");
+        this.csvMapper = CsvMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build();
+    }
+
+    /**
+     * Export the orders, in id order.
+     *
+     * @param from the lowest order date included, or {@code null}.
+     * @param to the highest order date excluded, or {@code null}.
+     * @param status the status of the orders, or {@code null} for all of them.
+     * @param format the format of the export.
+     * @param output the stream to write to, it is not closed.
+     * @return the number of exported orders.
+     * @throws IOException if the export cannot be written.
+     */
+    public long exportOrders(Instant from, Instant to, OrderStatus status, FileFormat format, OutputStream output) throws IOException {
+        LOG.debug("Request to export Orders from {} to {} with status {} as {}", from, to, status, format);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add("jhiOrder.orderDate >= :from");
+            parameters.put("from", from);
+        }
+        if (to != null) {
+            conditions.add("jhiOrder.orderDate < :to");
+            parameters.put("to", to);
+        }
+        if (status != null) {
+            conditions.add("jhiOrder.status = :status");
+            parameters.put("status", status);
+        }
+        TypedQuery<Order> query = query("select jhiOrder from Order jhiOrder", conditions, "jhiOrder.id", Order.class, parameters);
+        try (Stream<Order> orders = query.getResultStream()) {
+            return write(orders, ORDER_COLUMNS, ExportService::orderRow, format, output);
+        }
+    }
+
+    /**
+     * Export the products, in id order.
+     *
+     * @param from the lowest date added included, or {@code null}.
+     * @param to the highest date added excluded, or {@code null}.
+     * @param status the status of the products, or {@code null} for all of them.
+     * @param format the format of the export.
+     * @param output the stream to write to, it is not closed.
+     * @return the number of exported products.
+     * @throws IOException if the export cannot be written.
+     */
+    public long exportProducts(Instant from, Instant to, ProductStatus status, FileFormat format, OutputStream output)
+        throws IOException {
+        LOG.debug("Request to export Products from {} to {} with status {} as {}", from, to, status, format);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> conditions = new ArrayList<>();
+        if (from != null) {
+            conditions.add("product.dateAdded >= :from");
+            parameters.put("from", from);
+        }
+        if (to != null) {
+            conditions.add("product.dateAdded < :to");
+            parameters.put("to", to);
+        }
+        if (status != null) {
+            conditions.add("product.status = :status");
+            parameters.put("status", status);
+        }
+        TypedQuery<Product> query = query("select product from Product product", conditions, "product.id", Product.class, parameters);
+        try (Stream<Product> products = query.getResultStream()) {
+            return write(products, PRODUCT_COLUMNS, ExportService::productRow, format, output);
+        }
+    }
+
+    /**
+     * Export the wish lists, in id order.
+     *
+     * @param customerId the id of the customer owning the wish lists, or {@code null} for all of them.
+     * @param format the format of the export.
+     * @param output the stream to write to, it is not closed.
+     * @return the number of exported wish lists.
+     * @throws IOException if the export cannot be written.
+     */
+    public long exportWishLists(Long customerId, FileFormat format, OutputStream output) throws IOException {
+        LOG.debug("Request to export WishLists of Customer {} as {}", customerId, format);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> conditions = new ArrayList<>();
+        if (customerId != null) {
+            conditions.add("wishList.customer.id = :customerId");
+            parameters.put("customerId", customerId);
+        }
+        TypedQuery<WishList> query = query("select wishList from WishList wishList", conditions, "wishList.id", WishList.class, parameters);
+        try (Stream<WishList> wishLists = query.getResultStream()) {
+            return write(wishLists, WISH_LIST_COLUMNS, ExportService::wishListRow, format, output);
+        }
+    }
+
+    private <T> TypedQuery<T> query(String select, List<String> conditions, String orderBy, Class<T> type, Map<String, Object> parameters) {
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+        TypedQuery<T> query = entityManager
+            .createQuery(select + where + " order by " + orderBy, type)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private <T> long write(
+        Stream<T> entities,
+        List<String> columns,
+        Function<T, Map<String, Object>> toRow,
+        FileFormat format,
+        OutputStream output
+    ) throws IOException {
+        long count = 0;
+        try (SequenceWriter writer = writer(columns, format).writeValues(output)) {
+            Iterator<T> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                writer.write(toRow.apply(iterator.next()));
+                if (++count % FETCH_SIZE == 0) {
+                    // detaches the exported entities and the lazy proxies they reference
+                    entityManager.clear();
+                }
+            }
+        }
+        LOG.debug("Exported {} rows", count);
+        return count;
+    }
+
+    private ObjectWriter writer(List<String> columns, FileFormat format) {
+        if (format == FileFormat.NDJSON) {
+            return jsonWriter;
+        }
+        CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+        columns.forEach(schema::addColumn);
+        return csvMapper.writer(schema.build());
+    }
+
+    private static Map<String, Object> orderRow(Order order) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", order.getId());
+        row.put("orderDate", order.getOrderDate());
+        row.put("shippedDate", order.getShippedDate());
+        row.put("status", order.getStatus());
+        row.put("totalAmount", order.getTotalAmount());
+        row.put("shippingCost", order.getShippingCost());
+        row.put("trackingNumber", order.getTrackingNumber());
+        // reading the id of a lazy association does not load it
+        row.put("customerId", order.getCustomer() == null ? null : order.getCustomer().getId());
+        row.put("shippingAddressId", order.getShippingAddress() == null ? null : order.getShippingAddress().getId());
+        return row;
+    }
+
+    private static Map<String, Object> productRow(Product product) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", product.getId());
+        row.put("title", product.getTitle());
+        row.put("keywords", product.getKeywords());
+        row.put("description", product.getDescription());
+        row.put("rating", product.getRating());
+        row.put("price", product.getPrice());
+        row.put("quantityInStock", product.getQuantityInStock());
+        row.put("status", product.getStatus());
+        row.put("weight", product.getWeight());
+        row.put("dimensions", product.getDimensions());
+        row.put("dateAdded", product.getDateAdded());
+        row.put("dateModified", product.getDateModified());
+        return row;
+    }
+
+    private static Map<String, Object> wishListRow(WishList wishList) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", wishList.getId());
+        row.put("title", wishList.getTitle());
+        row.put("restricted", wishList.getRestricted());
+        row.put("customerId", wishList.getCustomer() == null ? null : wishList.getCustomer().getId());
+        return row;
+    }
+}
@@ -0,0 +1,39 @@
+package myapp.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The file formats used to import and export entities.
+ */
+public enum FileFormat {
+    /** Comma-separated values, with a header row naming the fields. */
+    CSV("text/csv"),
+    /** One JSON object per line. */
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    FileFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get a format from its file extension, ignoring case.
+     *
+     * @param extension the file extension, such as {@code csv}.
+     * @return the format, or empty if it is unknown.
+     */
+    public static Optional<FileFormat> fromExtension(String extension) {
+        return Arrays.stream(values()).filter(format -> format.getExtension().equalsIgnoreCase(extension)).findFirst();
+    }
+}
@@ -0,0 +1,10 @@
+package myapp.service;
+
+public class IdempotencyKeyInUseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyInUseException() {
+        super("A request with the same Idempotency-Key is still in progress!");
+    }
+}
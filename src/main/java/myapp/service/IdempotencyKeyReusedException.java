@@ -0,0 +1,10 @@
+package myapp.service;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyReusedException() {
+        super("The Idempotency-Key has already been used for a different request!");
+    }
+}
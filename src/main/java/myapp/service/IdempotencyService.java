@@ -0,0 +1,321 @@
+package myapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import myapp.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * Service making the creation requests sent with an {@value #IDEMPOTENCY_KEY_HEADER} header safe to retry.
+ * <p>
+ * The response to the first request made with a key is stored in the {@code idempotency_key} table, in the same
+ * transaction as the entity it creates, and returned again to any later request with the same key and body without
+ * creating anything. Responses are kept for {@code application.idempotency.time-to-live-seconds}, and the most recent
+ * ones also in memory.
+ * <p>
+ * A key is claimed by inserting its row before creating the entity, so a duplicate sent while the first request is in
+ * progress waits on that row lock, on any node, until the first request commits its response or rolls back; databases
+ * reporting the duplicate right away, like H2, are polled instead. Duplicates arriving on the same node wait for the
+ * request in flight instead, so they do not each hold a connection.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final String CLAIM =
+        "insert into idempotency_key (request_key, fingerprint, created_date, expires_at) values (?, ?, ?, ?)";
+
+    private static final String COMPLETE =
+        "update idempotency_key set status_code = ?, response_headers = ?, response_body = ? where request_key = ?";
+
+    private static final String SELECT =
+        "select fingerprint, status_code, response_headers, response_body, expires_at from idempotency_key " +
+        "where request_key = ? and status_code is not null";
+
+    private static final long CLAIM_RETRY_DELAY_MILLIS = 50;
+
+    private static final TypeReference<Map<String, List<String>>> HEADERS_TYPE = new TypeReference<>() {};
+
+    /**
+     * The creation of an entity, returning the response to send.
+     *
+     * @param <T> the type of the response body.
+     * @param <E> the type of checked exception thrown.
+     */
+    @FunctionalInterface
+    public interface Creation<T, E extends Exception> {
+        ResponseEntity<T> create() throws E;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate claimJdbcTemplate;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration timeToLive;
+
+    private final Duration waitTimeout;
+
+    private final Cache<String, StoredResponse> responses;
+
+    private final Map<String, CompletableFuture<StoredResponse>> requestsInFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.Idempotency properties = applicationProperties.getIdempotency();
+        this.jdbcTemplate = jdbcTemplate;
+        // bounds the wait on the row lock of a key claimed by another node
+        this.claimJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.claimJdbcTemplate.setQueryTimeout(properties.getWaitTimeoutSeconds());
+        this.transactionManager = transactionManager;
+        this.objectMapper = objectMapper;
+        this.timeToLive = Duration.ofSeconds(properties.getTimeToLiveSeconds());
+        this.waitTimeout = Duration.ofSeconds(properties.getWaitTimeoutSeconds());
+        this.responses = Caffeine.newBuilder().maximumSize(properties.getCacheSize()).expireAfterWrite(timeToLive).build();
+    }
+
+    /**
+     * Create an entity once per idempotency key.
+     *
+     * @param scope the kind of entity created, keys of different scopes never collide.
+     * @param key the idempotency key sent by the client, or {@code null} to always create.
+     * @param request the body of the request, a key can only be reused with the same body.
+     * @param type the type of the response body.
+     * @param creation the creation, run in a transaction, only if the key has not been used yet.
+     * @return the response to the creation, or the response to the first request made with the key.
+     * @throws E if the creation fails, the key is then released.
+     * @throws IdempotencyKeyReusedException if the key has already been used with a different body.
+     * @throws IdempotencyKeyInUseException if the first request made with the key is still in progress after the wait timeout.
+     */
+    public <T, E extends Exception> ResponseEntity<T> execute(
+        String scope,
+        String key,
+        Object request,
+        Class<T> type,
+        Creation<T, E> creation
+    ) throws E {
+        if (key == null || key.isBlank()) {
+            return creation.create();
+        }
+        // hashed so that keys of any length fit the column
+        String requestKey = scope + ":" + sha256(key.getBytes(StandardCharsets.UTF_8));
+        String fingerprint = sha256(toJson(request).getBytes(StandardCharsets.UTF_8));
+        Instant deadline = Instant.now().plus(waitTimeout);
+        while (true) {
+            StoredResponse stored = responses.getIfPresent(requestKey);
+            if (stored != null && stored.expiresAt().isAfter(Instant.now())) {
+                return replay(stored, fingerprint, type);
+            }
+            CompletableFuture<StoredResponse> inFlight = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> first = requestsInFlight.putIfAbsent(requestKey, inFlight);
+            if (first != null) {
+                stored = await(first, deadline);
+                if (stored != null) {
+                    return replay(stored, fingerprint, type);
+                }
+                // the first request failed, this one may succeed
+                continue;
+            }
+            try {
+                Optional<ResponseEntity<T>> response = claimAndCreate(requestKey, fingerprint, type, creation, inFlight);
+                if (response.isPresent()) {
+                    return response.orElseThrow();
+                }
+            } finally {
+                inFlight.complete(null);
+                requestsInFlight.remove(requestKey, inFlight);
+            }
+            if (Instant.now().isAfter(deadline)) {
+                throw new IdempotencyKeyInUseException();
+            }
+            // databases not waiting on the row of a key claimed by another node report it as a duplicate right away
+            pause();
+        }
+    }
+
+    /**
+     * Expired keys are deleted.
+     * <p>
+     * This is scheduled to get fired every hour, at 30 minutes past.
+     */
+    @Scheduled(cron = "0 30 * * * ?")
+    public void removeExpiredKeys() {
+        int removed = jdbcTemplate.update("delete from idempotency_key where expires_at <= ?", toDatabase(Instant.now()));
+        LOG.debug("Deleted {} expired idempotency keys", removed);
+    }
+
+    /**
+     * Claim the key and create the entity, or replay the response stored for the key once it is no longer locked.
+     * Empty when the key was neither claimed nor replayed: its lock timed out, or its row had expired.
+     */
+    private <T, E extends Exception> Optional<ResponseEntity<T>> claimAndCreate(
+        String requestKey,
+        String fingerprint,
+        Class<T> type,
+        Creation<T, E> creation,
+        CompletableFuture<StoredResponse> inFlight
+    ) throws E {
+        Instant now = Instant.now();
+        TransactionStatus transaction = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+        try {
+            claimJdbcTemplate.update(CLAIM, requestKey, fingerprint, toDatabase(now), toDatabase(now.plus(timeToLive)));
+        } catch (DuplicateKeyException e) {
+            transactionManager.rollback(transaction);
+            Optional<StoredResponse> stored = find(requestKey);
+            if (stored.isPresent() && stored.orElseThrow().expiresAt().isAfter(now)) {
+                responses.put(requestKey, stored.orElseThrow());
+                inFlight.complete(stored.orElseThrow());
+                return Optional.of(replay(stored.orElseThrow(), fingerprint, type));
+            }
+            jdbcTemplate.update("delete from idempotency_key where request_key = ? and expires_at <= ?", requestKey, toDatabase(now));
+            return Optional.empty();
+        } catch (QueryTimeoutException | PessimisticLockingFailureException e) {
+            transactionManager.rollback(transaction);
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            transactionManager.rollback(transaction);
+            throw e;
+        }
+        try {
+            ResponseEntity<T> response = creation.create();
+            StoredResponse stored = new StoredResponse(
+                fingerprint,
+                response.getStatusCode().value(),
+                toJson(response.getHeaders()),
+                toJson(response.getBody()),
+                now.plus(timeToLive)
+            );
+            jdbcTemplate.update(COMPLETE, stored.status(), stored.headers(), stored.body(), requestKey);
+            transactionManager.commit(transaction);
+            responses.put(requestKey, stored);
+            inFlight.complete(stored);
+            return Optional.of(response);
+        } catch (Throwable e) {
+            if (!transaction.isCompleted()) {
+                transactionManager.rollback(transaction);
+            }
+            throw e;
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> first, Instant deadline) {
+        try {
+            return first.get(Math.max(Duration.between(Instant.now(), deadline).toMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInUseException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInUseException();
+        } catch (ExecutionException e) {
+            // never completed exceptionally
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(CLAIM_RETRY_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInUseException();
+        }
+    }
+
+    private Optional<StoredResponse> find(String requestKey) {
+        return jdbcTemplate
+            .query(
+                SELECT,
+                (resultSet, rowNum) ->
+                    new StoredResponse(
+                        resultSet.getString("fingerprint"),
+                        resultSet.getInt("status_code"),
+                        resultSet.getString("response_headers"),
+                        resultSet.getString("response_body"),
+                        resultSet.getObject("expires_at", LocalDateTime.class).toInstant(ZoneOffset.UTC)
+                    ),
+                requestKey
+            )
+            .stream()
+            .findFirst();
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String fingerprint, Class<T> type) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException();
+        }
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            objectMapper.readValue(stored.headers(), HEADERS_TYPE).forEach(headers::addAll);
+            headers.set(REPLAYED_HEADER, "true");
+            return ResponseEntity.status(stored.status()).headers(headers).body(objectMapper.readValue(stored.body(), type));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sha256(byte[] value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static LocalDateTime toDatabase(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private record StoredResponse(String fingerprint, int status, String headers, String body, Instant expiresAt) {}
+}
@@ -0,0 +1,10 @@
+package myapp.service;
+
+public class InsufficientStockException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientStockException() {
+        super("Not enough stock left for this product!");
+    }
+}
@@ -0,0 +1,12 @@
+package myapp.service;
+
+import myapp.domain.enumeration.OrderStatus;
+
+public class InvalidOrderStatusTransitionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidOrderStatusTransitionException(OrderStatus from, OrderStatus to) {
+        super("An order cannot go from " + from + " to " + to + "!");
+    }
+}
@@ -0,0 +1,356 @@
+package myapp.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import myapp.config.ApplicationProperties;
+import myapp.domain.Category;
+import myapp.domain.Product;
+import myapp.domain.enumeration.ProductStatus;
+import myapp.service.dto.InventoryReservationDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for reserving the stock of {@link myapp.domain.Product}.
+ * <p>
+ * Stock is taken with a conditional decrement, so it can never go below zero nor lose a concurrent update. Reservations
+ * of the same product are coalesced: the thread holding the lock of the product applies every pending reservation with
+ * a single {@code UPDATE}, and falls back to one decrement per reservation only when they do not all fit in the stock
+ * left. A product whose stock reaches zero is flipped to {@link ProductStatus#OUT_OF_STOCK}.
+ * <p>
+ * Pending reservations are stored in the {@code inventory_reservation} table, inserted in the transaction taking their
+ * stock, so any node can commit or release them and a restart does not lose the stock they hold. They are deleted once
+ * committed, released, or expired after {@code application.inventory.reservation-time-to-live-seconds}; the node deleting
+ * the row is the one giving the stock back.
+ */
+@Service
+public class InventoryService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InventoryService.class);
+
+    private static final String DECREMENT_STOCK =
+        "update product set quantity_in_stock = quantity_in_stock - ?, version = version + 1, " +
+        "status = case when quantity_in_stock = ? and status = ? then ? else status end " +
+        "where id = ? and quantity_in_stock >= ?";
+
+    private static final String INCREMENT_STOCK =
+        "update product set quantity_in_stock = quantity_in_stock + ?, version = version + 1, " +
+        "status = case when status = ? then ? else status end " +
+        "where id = ?";
+
+    private static final String INSERT_RESERVATION =
+        "insert into inventory_reservation (id, product_id, quantity, expires_at) values (?, ?, ?, ?)";
+
+    private static final String SELECT_RESERVATION = "select product_id, quantity, expires_at from inventory_reservation where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final EntityTagService entityTagService;
+
+    private final long reservationTimeToLiveSeconds;
+
+    private final ReentrantLock[] locks;
+
+    // product id -> reservations waiting for the lock of the product, removed once drained
+    private final Map<Long, Queue<PendingReservation>> queues = new ConcurrentHashMap<>();
+
+    public InventoryService(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        EntityManagerFactory entityManagerFactory,
+        EntityTagService entityTagService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityTagService = entityTagService;
+        ApplicationProperties.Inventory inventory = applicationProperties.getInventory();
+        this.reservationTimeToLiveSeconds = inventory.getReservationTimeToLiveSeconds();
+        this.locks = new ReentrantLock[Integer.highestOneBit(Math.max(1, inventory.getStripes()))];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Reserve stock of a product.
+     * <p>
+     * The stock is taken right away, in its own transaction storing the reservation, and given back if the reservation is
+     * released or expires.
+     *
+     * @param productId the id of the product.
+     * @param quantity the quantity to reserve, at least 1.
+     * @return the reservation.
+     * @throws InsufficientStockException if the product does not exist or has not enough stock left.
+     */
+    public InventoryReservationDTO reserve(Long productId, int quantity) {
+        LOG.debug("Request to reserve {} of Product : {}", quantity, productId);
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must be at least 1");
+        }
+        PendingReservation pending = new PendingReservation(
+            new InventoryReservationDTO(
+                UUID.randomUUID(),
+                productId,
+                quantity,
+                // as stored by any database
+                Instant.now().plusSeconds(reservationTimeToLiveSeconds).truncatedTo(ChronoUnit.MILLIS)
+            )
+        );
+        Queue<PendingReservation> queue = queues.computeIfAbsent(productId, key -> new ConcurrentLinkedQueue<>());
+        queue.add(pending);
+
+        ReentrantLock lock = lockFor(productId);
+        lock.lock();
+        try {
+            // a previous holder of the lock may already have applied this reservation with its own batch
+            if (!pending.result.isDone()) {
+                // the queue this reservation was added to, even if it was removed from the map in the meantime
+                drain(productId, queue);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (!awaitResult(pending)) {
+            throw new InsufficientStockException();
+        }
+        return pending.reservation;
+    }
+
+    /**
+     * Commit a reservation, the reserved stock is then definitely taken.
+     *
+     * @param id the id of the reservation.
+     * @return the committed reservation, or empty if it is unknown or has expired.
+     */
+    public Optional<InventoryReservationDTO> commit(UUID id) {
+        LOG.debug("Request to commit InventoryReservation : {}", id);
+        Instant now = Instant.now();
+        Optional<InventoryReservationDTO> reservation = transactionTemplate.execute(status ->
+            take(id).map(taken -> {
+                if (taken.expiresAt().isBefore(now)) {
+                    increment(taken);
+                }
+                return taken;
+            })
+        );
+        if (reservation.isEmpty()) {
+            return Optional.empty();
+        }
+        if (reservation.orElseThrow().expiresAt().isBefore(now)) {
+            evict(reservation.orElseThrow().productId());
+            return Optional.empty();
+        }
+        return reservation;
+    }
+
+    /**
+     * Release a reservation, the reserved stock is given back to the product.
+     *
+     * @param id the id of the reservation.
+     * @return the released reservation, or empty if it is unknown.
+     */
+    public Optional<InventoryReservationDTO> release(UUID id) {
+        LOG.debug("Request to release InventoryReservation : {}", id);
+        Optional<InventoryReservationDTO> reservation = transactionTemplate.execute(status ->
+            take(id).map(taken -> {
+                increment(taken);
+                return taken;
+            })
+        );
+        reservation.ifPresent(released -> evict(released.productId()));
+        return reservation;
+    }
+
+    /**
+     * Expired reservations are released.
+     * <p>
+     * This is scheduled to get fired every minute.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void releaseExpiredReservations() {
+        releaseExpiredReservations(Instant.now());
+    }
+
+    void releaseExpiredReservations(Instant now) {
+        List<UUID> expired = transactionTemplate.execute(status ->
+            jdbcTemplate.query(
+                "select id from inventory_reservation where expires_at < ?",
+                (resultSet, rowNum) -> UUID.fromString(resultSet.getString(1)),
+                toDatabase(now)
+            )
+        );
+        for (UUID id : expired) {
+            // another node may be releasing it as well, only the one deleting the row gives the stock back
+            if (release(id).isPresent()) {
+                LOG.debug("Released expired InventoryReservation : {}", id);
+            }
+        }
+    }
+
+    private void drain(Long productId, Queue<PendingReservation> queue) {
+        List<PendingReservation> batch = new ArrayList<>();
+        for (PendingReservation next = queue.poll(); next != null; next = queue.poll()) {
+            batch.add(next);
+        }
+        if (queue.isEmpty()) {
+            // a reservation added from now on to this queue is drained by its own caller, which holds the lock next
+            queues.remove(productId, queue);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Boolean> results = transactionTemplate.execute(status -> {
+                List<Boolean> decremented = decrement(productId, batch);
+                insert(batch, decremented);
+                return decremented;
+            });
+            evict(productId);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+        }
+    }
+
+    private List<Boolean> decrement(Long productId, List<PendingReservation> batch) {
+        long total = batch.stream().mapToLong(pending -> pending.reservation.quantity()).sum();
+        if (batch.size() > 1 && total <= Integer.MAX_VALUE && decrement(productId, (int) total)) {
+            return batch.stream().map(pending -> Boolean.TRUE).toList();
+        }
+        // not everything fits, serve the reservations in arrival order
+        List<Boolean> results = new ArrayList<>(batch.size());
+        for (PendingReservation pending : batch) {
+            results.add(decrement(productId, pending.reservation.quantity()));
+        }
+        return results;
+    }
+
+    private boolean decrement(Long productId, int quantity) {
+        int updated = jdbcTemplate.update(
+            DECREMENT_STOCK,
+            quantity,
+            quantity,
+            ProductStatus.IN_STOCK.name(),
+            ProductStatus.OUT_OF_STOCK.name(),
+            productId,
+            quantity
+        );
+        return updated == 1;
+    }
+
+    private void insert(List<PendingReservation> batch, List<Boolean> decremented) {
+        List<InventoryReservationDTO> reserved = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (Boolean.TRUE.equals(decremented.get(i))) {
+                reserved.add(batch.get(i).reservation);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION, reserved, reserved.size(), (statement, reservation) -> {
+            statement.setString(1, reservation.id().toString());
+            statement.setLong(2, reservation.productId());
+            statement.setInt(3, reservation.quantity());
+            statement.setObject(4, toDatabase(reservation.expiresAt()));
+        });
+    }
+
+    /**
+     * Delete a reservation, in the transaction of the caller.
+     *
+     * @return the deleted reservation, or empty if it is unknown or was deleted concurrently.
+     */
+    private Optional<InventoryReservationDTO> take(UUID id) {
+        List<InventoryReservationDTO> found = jdbcTemplate.query(
+            SELECT_RESERVATION,
+            (resultSet, rowNum) ->
+                new InventoryReservationDTO(
+                    id,
+                    resultSet.getLong("product_id"),
+                    resultSet.getInt("quantity"),
+                    resultSet.getObject("expires_at", LocalDateTime.class).toInstant(ZoneOffset.UTC)
+                ),
+            id.toString()
+        );
+        if (found.isEmpty() || jdbcTemplate.update("delete from inventory_reservation where id = ?", id.toString()) != 1) {
+            return Optional.empty();
+        }
+        return Optional.of(found.get(0));
+    }
+
+    private void increment(InventoryReservationDTO reservation) {
+        jdbcTemplate.update(
+            INCREMENT_STOCK,
+            reservation.quantity(),
+            ProductStatus.OUT_OF_STOCK.name(),
+            ProductStatus.IN_STOCK.name(),
+            reservation.productId()
+        );
+    }
+
+    // stock is updated behind Hibernate's back, so the cached product and its tags must not be served anymore
+    private void evict(Long productId) {
+        entityManagerFactory.getCache().evict(Product.class, productId);
+        entityTagService.invalidate(Product.class, productId);
+        entityTagService.invalidateAll(Category.class);
+    }
+
+    private ReentrantLock lockFor(Long productId) {
+        int hash = productId.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+
+    private static boolean awaitResult(PendingReservation pending) {
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static LocalDateTime toDatabase(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static final class PendingReservation {
+
+        private final InventoryReservationDTO reservation;
+
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private PendingReservation(InventoryReservationDTO reservation) {
+            this.reservation = reservation;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package myapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import myapp.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Service sending the emails written to the mail outbox by {@link MailService}.
+ * <p>
+ * Emails due are claimed in batches of {@code application.mail-outbox.batch-size}, by pushing their next attempt a lease
+ * ahead, so several nodes never send the same email. Each batch is split between
+ * {@code application.mail-outbox.connections} threads, each sending its share over a single SMTP connection, opened for
+ * that share and closed after it. Sent emails are deleted; failed ones are retried with an exponential backoff, and given
+ * up on after {@code application.mail-outbox.max-attempts}.
+ * <p>
+ * Emails dispatched are counted in {@value #DISPATCHED_METER_NAME} per outcome, the time from their queuing to their
+ * sending is timed in {@value #DELIVERY_LAG_METER_NAME}, and {@value #PENDING_METER_NAME} and
+ * {@value #OLDEST_PENDING_METER_NAME} gauge the backlog as of the last poll.
+ */
+@Service
+public class MailOutboxDispatcher {
+
+    public static final String DISPATCHED_METER_NAME = "mail.outbox.dispatched";
+    public static final String DISPATCHED_METER_DESCRIPTION = "Counts the emails dispatched from the outbox.";
+    public static final String DISPATCHED_METER_OUTCOME_DIMENSION = "outcome";
+    public static final String DELIVERY_LAG_METER_NAME = "mail.outbox.delivery.lag";
+    public static final String DELIVERY_LAG_METER_DESCRIPTION = "Times the emails from their queuing to their sending.";
+    public static final String PENDING_METER_NAME = "mail.outbox.pending";
+    public static final String PENDING_METER_DESCRIPTION = "Number of emails waiting to be sent.";
+    public static final String OLDEST_PENDING_METER_NAME = "mail.outbox.oldest.pending.age";
+    public static final String OLDEST_PENDING_METER_DESCRIPTION = "Age in seconds of the oldest email waiting to be sent.";
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    private static final String SELECT_DUE =
+        "select id, recipient, subject, content, multipart, html, attempts, created_date from mail_outbox " +
+        "where next_attempt_at <= ? order by next_attempt_at, id";
+
+    private static final String CLAIM = "update mail_outbox set next_attempt_at = ? where id = ? and next_attempt_at <= ?";
+
+    private static final String RESCHEDULE = "update mail_outbox set attempts = ?, last_error = ?, next_attempt_at = ? where id = ?";
+
+    private static final String BACKLOG = "select count(*), min(created_date) from mail_outbox where next_attempt_at is not null";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate batchJdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JavaMailSender javaMailSender;
+
+    private final JHipsterProperties jHipsterProperties;
+
+    private final int batchSize;
+
+    private final int connections;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Duration lease;
+
+    private final ExecutorService senders;
+
+    private final Counter sent;
+
+    private final Counter retried;
+
+    private final Counter abandoned;
+
+    private final Timer deliveryLag;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private volatile Instant oldestPending;
+
+    public MailOutboxDispatcher(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        JavaMailSender javaMailSender,
+        JHipsterProperties jHipsterProperties,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.MailOutbox properties = applicationProperties.getMailOutbox();
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.batchJdbcTemplate.setMaxRows(properties.getBatchSize());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.javaMailSender = javaMailSender;
+        this.jHipsterProperties = jHipsterProperties;
+        this.batchSize = properties.getBatchSize();
+        this.connections = properties.getConnections();
+        this.maxAttempts = properties.getMaxAttempts();
+        this.initialBackoff = Duration.ofSeconds(properties.getInitialBackoffSeconds());
+        this.maxBackoff = Duration.ofSeconds(properties.getMaxBackoffSeconds());
+        this.lease = Duration.ofSeconds(properties.getLeaseSeconds());
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sent = dispatched(meterRegistry, "sent");
+        this.retried = dispatched(meterRegistry, "retried");
+        this.abandoned = dispatched(meterRegistry, "abandoned");
+        this.deliveryLag = Timer.builder(DELIVERY_LAG_METER_NAME).description(DELIVERY_LAG_METER_DESCRIPTION).register(meterRegistry);
+        Gauge.builder(PENDING_METER_NAME, pending, AtomicLong::get).description(PENDING_METER_DESCRIPTION).register(meterRegistry);
+        Gauge.builder(OLDEST_PENDING_METER_NAME, this, MailOutboxDispatcher::oldestPendingAgeSeconds)
+            .description(OLDEST_PENDING_METER_DESCRIPTION)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Emails due are sent, batch after batch, until none is left.
+     * <p>
+     * This is scheduled to get fired every {@code application.mail-outbox.poll-interval-millis}.
+     */
+    @Scheduled(fixedDelayString = "${application.mail-outbox.poll-interval-millis:1000}")
+    public synchronized void dispatch() {
+        while (dispatchBatch() == batchSize) {
+            // more emails may be due
+        }
+        refreshBacklog();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private int dispatchBatch() {
+        Instant now = Instant.now();
+        // committed before sending, so the emails are not claimed again while they are sent
+        List<OutboxMail> batch = transactionTemplate.execute(status -> claimDue(now));
+        if (!batch.isEmpty()) {
+            LOG.debug("Sending {} emails from the outbox", batch.size());
+            Map<OutboxMail, Exception> failures = send(batch);
+            transactionTemplate.executeWithoutResult(status -> complete(batch, failures));
+        }
+        return batch.size();
+    }
+
+    private List<OutboxMail> claimDue(Instant now) {
+        List<OutboxMail> due = batchJdbcTemplate.query(
+            SELECT_DUE,
+            (resultSet, rowNum) ->
+                new OutboxMail(
+                    resultSet.getLong("id"),
+                    resultSet.getString("recipient"),
+                    resultSet.getString("subject"),
+                    resultSet.getString("content"),
+                    resultSet.getBoolean("multipart"),
+                    resultSet.getBoolean("html"),
+                    resultSet.getInt("attempts"),
+                    resultSet.getObject("created_date", LocalDateTime.class).toInstant(ZoneOffset.UTC)
+                ),
+            toDatabase(now)
+        );
+        if (due.isEmpty()) {
+            return due;
+        }
+        // an email already claimed by another node is no longer due
+        int[] claimed = jdbcTemplate.batchUpdate(CLAIM, due, due.size(), (statement, mail) -> {
+            statement.setObject(1, toDatabase(now.plus(lease)));
+            statement.setLong(2, mail.id());
+            statement.setObject(3, toDatabase(now));
+        })[0];
+        List<OutboxMail> batch = new ArrayList<>(due.size());
+        for (int i = 0; i < due.size(); i++) {
+            if (claimed[i] != 0) {
+                batch.add(due.get(i));
+            }
+        }
+        return batch;
+    }
+
+    private Map<OutboxMail, Exception> send(List<OutboxMail> batch) {
+        int chunkSize = (batch.size() + connections - 1) / connections;
+        List<Future<Map<OutboxMail, Exception>>> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            List<OutboxMail> chunk = batch.subList(from, Math.min(from + chunkSize, batch.size()));
+            chunks.add(senders.submit(() -> sendChunk(chunk)));
+        }
+        Map<OutboxMail, Exception> failures = new IdentityHashMap<>();
+        for (Future<Map<OutboxMail, Exception>> chunk : chunks) {
+            try {
+                failures.putAll(chunk.get());
+            } catch (InterruptedException e) {
+                // the claimed emails are retried once their lease expires
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return failures;
+    }
+
+    private void complete(List<OutboxMail> batch, Map<OutboxMail, Exception> failures) {
+        Instant now = Instant.now();
+        List<OutboxMail> delivered = batch.stream().filter(mail -> !failures.containsKey(mail)).toList();
+        if (!delivered.isEmpty()) {
+            jdbcTemplate.batchUpdate("delete from mail_outbox where id = ?", delivered, delivered.size(), (statement, mail) ->
+                statement.setLong(1, mail.id())
+            );
+            delivered.forEach(mail -> deliveryLag.record(Duration.between(mail.createdDate(), now)));
+            sent.increment(delivered.size());
+        }
+        if (!failures.isEmpty()) {
+            reschedule(failures, now);
+        }
+    }
+
+    private void reschedule(Map<OutboxMail, Exception> failures, Instant now) {
+        List<Object[]> updates = new ArrayList<>(failures.size());
+        failures.forEach((mail, exception) -> {
+            int attempts = mail.attempts() + 1;
+            String error = String.valueOf(exception.getMessage());
+            LocalDateTime nextAttempt = null;
+            if (attempts < maxAttempts) {
+                nextAttempt = toDatabase(now.plus(backoff(attempts)));
+                retried.increment();
+            } else {
+                LOG.warn("Email could not be sent to user '{}', giving up after {} attempts", mail.recipient(), attempts, exception);
+                abandoned.increment();
+            }
+            updates.add(
+                new Object[] {
+                    attempts,
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                    nextAttempt,
+                    mail.id(),
+                }
+            );
+        });
+        jdbcTemplate.batchUpdate(RESCHEDULE, updates, new int[] { Types.INTEGER, Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT });
+    }
+
+    /**
+     * Send emails over a single connection.
+     *
+     * @return the emails which could not be sent, with the reason.
+     */
+    private Map<OutboxMail, Exception> sendChunk(List<OutboxMail> chunk) {
+        Map<OutboxMail, Exception> failures = new IdentityHashMap<>();
+        Map<MimeMessage, OutboxMail> messages = new IdentityHashMap<>();
+        for (OutboxMail mail : chunk) {
+            try {
+                messages.put(toMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+                failures.put(mail, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        try {
+            javaMailSender.send(messages.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                // not telling which emails failed, so none is known to be sent
+                messages.values().forEach(mail -> failures.put(mail, e));
+            } else {
+                // the other emails were sent
+                e.getFailedMessages().forEach((message, exception) -> failures.put(messages.get(message), exception));
+            }
+        } catch (MailException e) {
+            messages.values().forEach(mail -> failures.put(mail, e));
+        }
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(OutboxMail mail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, mail.multipart(), StandardCharsets.UTF_8.name());
+        message.setTo(mail.recipient());
+        message.setFrom(jHipsterProperties.getMail().getFrom());
+        message.setSubject(mail.subject());
+        message.setText(mail.content(), mail.html());
+        return mimeMessage;
+    }
+
+    private Duration backoff(int attempts) {
+        // doubled per failed attempt, without overflowing
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private void refreshBacklog() {
+        jdbcTemplate.query(BACKLOG, resultSet -> {
+            pending.set(resultSet.getLong(1));
+            LocalDateTime oldest = resultSet.getObject(2, LocalDateTime.class);
+            oldestPending = oldest == null ? null : oldest.toInstant(ZoneOffset.UTC);
+        });
+    }
+
+    private double oldestPendingAgeSeconds() {
+        Instant oldest = oldestPending;
+        return oldest == null ? 0 : Math.max(Duration.between(oldest, Instant.now()).toMillis(), 0) / 1000.0;
+    }
+
+    private static Counter dispatched(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder(DISPATCHED_METER_NAME)
+            .description(DISPATCHED_METER_DESCRIPTION)
+            .tag(DISPATCHED_METER_OUTCOME_DIMENSION, outcome)
+            .register(meterRegistry);
+    }
+
+    private static LocalDateTime toDatabase(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private record OutboxMail(
+        long id,
+        String recipient,
+        String subject,
+        String content,
+        boolean multipart,
+        boolean html,
+        int attempts,
+        Instant createdDate
+    ) {}
+}
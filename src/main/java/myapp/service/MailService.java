@@ -1,118 +1,106 @@
 package myapp.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import java.nio.charset.StandardCharsets;
-import java.util.Locale;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
 import myapp.domain.User;
+import myapp.service.MailTemplateService.RenderedMail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.MessageSource;
-import org.springframework.mail.MailException;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
-import tech.jhipster.config.JHipsterProperties;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Service for sending emails asynchronously.
+ * Service for sending emails through the mail outbox.
  * <p>
- * We use the {@link Async} annotation to send emails asynchronously.
+ * Emails are rendered and written to the {@code mail_outbox} table, in the transaction of the caller if there is one, so
+ * an email is sent if and only if what it notifies of is committed. {@link MailOutboxDispatcher} sends them afterwards,
+ * retrying those which fail.
  */
 @Service
+@Transactional
 public class MailService {
 
     private static final Logger LOG = LoggerFactory.getLogger(MailService.class);
 
-    private static final String USER = "user";
+    private static final String INSERT =
+        "insert into mail_outbox (recipient, subject, content, multipart, html, attempts, created_date, next_attempt_at) " +
+        "values (?, ?, ?, ?, ?, 0, ?, ?)";
 
-    private static final String BASE_URL = "baseUrl";
+    private final JdbcTemplate jdbcTemplate;
 
-    private final JHipsterProperties jHipsterProperties;
+    private final MailTemplateService mailTemplateService;
 
-    private final JavaMailSender javaMailSender;
-
-    private final MessageSource messageSource;
-
-    private final SpringTemplateEngine templateEngine;
-
-    public MailService(
-        JHipsterProperties jHipsterProperties,
-        JavaMailSender javaMailSender,
-        MessageSource messageSource,
-        SpringTemplateEngine templateEngine
-    ) {
-        this.jHipsterProperties = jHipsterProperties;
-        this.javaMailSender = javaMailSender;
-        this.messageSource = messageSource;
-        this.templateEngine = templateEngine;
+    public MailService(JdbcTemplate jdbcTemplate, MailTemplateService mailTemplateService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mailTemplateService = mailTemplateService;
     }
 
-    @Async
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        this.sendEmailSync(to, subject, content, isMultipart, isHtml);
-    }
-
-    private void sendEmailSync(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
         LOG.debug(
-            "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+            "Queue email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart,
             isHtml,
             to,
             subject,
             content
         );
-
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            LOG.debug("Sent email to User '{}'", to);
-        } catch (MailException | MessagingException e) {
-            LOG.warn("Email could not be sent to user '{}'", to, e);
-        }
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+        jdbcTemplate.update(INSERT, to, subject, content, isMultipart, isHtml, now, now);
     }
 
-    @Async
     public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
         this.sendEmailFromTemplateSync(user, templateName, titleKey);
     }
 
+    /**
+     * Send the same email to several users, rendering the template once per language.
+     *
+     * @param users the users, those without email are skipped.
+     * @param templateName the name of the template.
+     * @param titleKey the message key of the subject.
+     */
+    public void sendEmailFromTemplate(Collection<User> users, String templateName, String titleKey) {
+        List<User> recipients = users.stream().filter(user -> user.getEmail() != null).toList();
+        if (recipients.isEmpty()) {
+            return;
+        }
+        LOG.debug("Queue {} emails from template '{}'", recipients.size(), templateName);
+        List<RenderedMail> mails = mailTemplateService.renderAll(recipients, templateName, titleKey);
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(INSERT, mails, mails.size(), (statement, mail) -> {
+            statement.setString(1, mail.to());
+            statement.setString(2, mail.subject());
+            statement.setString(3, mail.content());
+            statement.setBoolean(4, false);
+            statement.setBoolean(5, true);
+            statement.setObject(6, now);
+            statement.setObject(7, now);
+        });
+    }
+
     private void sendEmailFromTemplateSync(User user, String templateName, String titleKey) {
         if (user.getEmail() == null) {
             LOG.debug("Email doesn't exist for user '{}'", user.getLogin());
             return;
         }
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
-        String content = templateEngine.process(templateName, context);
-        String subject = messageSource.getMessage(titleKey, null, locale);
-        this.sendEmailSync(user.getEmail(), subject, content, false, true);
+        RenderedMail mail = mailTemplateService.render(user, templateName, titleKey);
+        this.sendEmail(mail.to(), mail.subject(), mail.content(), false, true);
     }
 
-    @Async
     public void sendActivationEmail(User user) {
         LOG.debug("Sending activation email to '{}'", user.getEmail());
         this.sendEmailFromTemplateSync(user, "mail/activationEmail", "email.activation.title");
     }
 
-    @Async
     public void sendCreationEmail(User user) {
         LOG.debug("Sending creation email to '{}'", user.getEmail());
         this.sendEmailFromTemplateSync(user, "mail/creationEmail", "email.activation.title");
     }
 
-    @Async
     public void sendPasswordResetMail(User user) {
         LOG.debug("Sending password reset email to '{}'", user.getEmail());
         this.sendEmailFromTemplateSync(user, "mail/passwordResetEmail", "email.reset.title");
@@ -0,0 +1,265 @@
+package myapp.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import myapp.domain.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.unbescape.html.HtmlEscape;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Service rendering the email templates sent to users.
+ * <p>
+ * With {@code spring.thymeleaf.cache} enabled, a template is rendered only once per locale, for a user whose text
+ * properties are unique markers. Its output is then split around the markers into fragments, and the email of any user is
+ * made by joining the fragments with the escaped properties of the user, without evaluating the template again. The
+ * subject and locales are cached as well. A template is only compiled if it makes the same email as Thymeleaf for a user
+ * whose properties are full of characters to escape, and it is only trusted once it also did for the first
+ * {@value #CHECKED_RENDERS} users rendered with it; otherwise it is rendered by Thymeleaf from then on. Templates whose
+ * output depends on anything else than the text properties of the user are to be avoided, as they are only told apart
+ * if those first users differ. Users with one of the properties used by the template missing are rendered by Thymeleaf.
+ */
+@Service
+public class MailTemplateService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailTemplateService.class);
+
+    private static final String USER = "user";
+
+    private static final String BASE_URL = "baseUrl";
+
+    private static final int CHECKED_RENDERS = 3;
+
+    // escaped in text and attributes, and meaningful in messages and URLs
+    private static final String AWKWARD_TEXT = "<a href=\"?x=1&y=%20#top\">'{0}' Zoë</a>";
+
+    private static final List<Property> PROPERTIES = List.of(
+        new Property(User::getLogin, User::setLogin),
+        new Property(User::getFirstName, User::setFirstName),
+        new Property(User::getLastName, User::setLastName),
+        new Property(User::getEmail, User::setEmail),
+        new Property(User::getImageUrl, User::setImageUrl),
+        new Property(User::getActivationKey, User::setActivationKey),
+        new Property(User::getResetKey, User::setResetKey)
+    );
+
+    /**
+     * An email rendered for a user.
+     *
+     * @param to the email address of the user.
+     * @param subject the subject, in the language of the user.
+     * @param content the HTML content.
+     */
+    public record RenderedMail(String to, String subject, String content) {}
+
+    private final SpringTemplateEngine templateEngine;
+
+    private final MessageSource messageSource;
+
+    private final String baseUrl;
+
+    private final boolean cacheEnabled;
+
+    private final Map<String, Locale> locales = new ConcurrentHashMap<>();
+
+    // empty for a template which cannot be compiled
+    private final Map<TemplateKey, Optional<CompiledTemplate>> compiledTemplates = new ConcurrentHashMap<>();
+
+    public MailTemplateService(
+        SpringTemplateEngine templateEngine,
+        MessageSource messageSource,
+        JHipsterProperties jHipsterProperties,
+        ThymeleafProperties thymeleafProperties
+    ) {
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
+        this.baseUrl = jHipsterProperties.getMail().getBaseUrl();
+        this.cacheEnabled = thymeleafProperties.isCache();
+    }
+
+    /**
+     * Render an email for a user.
+     *
+     * @param user the user, with an email address.
+     * @param templateName the name of the template.
+     * @param titleKey the message key of the subject.
+     * @return the email.
+     */
+    public RenderedMail render(User user, String templateName, String titleKey) {
+        return render(user, templateName, titleKey, new HashMap<>());
+    }
+
+    /**
+     * Render the same email for several users, looking the template up once per language.
+     *
+     * @param users the users, with an email address.
+     * @param templateName the name of the template.
+     * @param titleKey the message key of the subject.
+     * @return the emails, in the order of the users.
+     */
+    public List<RenderedMail> renderAll(Collection<User> users, String templateName, String titleKey) {
+        Map<Locale, Optional<CompiledTemplate>> templates = new HashMap<>();
+        List<RenderedMail> mails = new ArrayList<>(users.size());
+        for (User user : users) {
+            mails.add(render(user, templateName, titleKey, templates));
+        }
+        return mails;
+    }
+
+    private RenderedMail render(User user, String templateName, String titleKey, Map<Locale, Optional<CompiledTemplate>> templates) {
+        Locale locale = locales.computeIfAbsent(user.getLangKey(), Locale::forLanguageTag);
+        if (!cacheEnabled) {
+            return new RenderedMail(user.getEmail(), messageSource.getMessage(titleKey, null, locale), process(user, templateName, locale));
+        }
+        TemplateKey key = new TemplateKey(templateName, titleKey, locale);
+        Optional<CompiledTemplate> template = templates.computeIfAbsent(locale, l -> compiledTemplate(key, user.getLangKey()));
+        String content = template.map(compiled -> compiled.apply(user)).orElse(null);
+        if (content == null) {
+            return new RenderedMail(user.getEmail(), messageSource.getMessage(titleKey, null, locale), process(user, templateName, locale));
+        }
+        CompiledTemplate compiled = template.orElseThrow();
+        if (compiled.checksLeft.get() > 0) {
+            String expected = process(user, templateName, locale);
+            if (!expected.equals(content)) {
+                LOG.debug("Template '{}' depends on more than the text properties of the user, it is no longer compiled", templateName);
+                compiledTemplates.put(key, Optional.empty());
+                templates.put(locale, Optional.empty());
+                content = expected;
+            } else {
+                compiled.checksLeft.decrementAndGet();
+            }
+        }
+        return new RenderedMail(user.getEmail(), compiled.subject, content);
+    }
+
+    private Optional<CompiledTemplate> compiledTemplate(TemplateKey key, String langKey) {
+        Optional<CompiledTemplate> template = compiledTemplates.get(key);
+        if (template == null) {
+            template = compile(key, langKey);
+            Optional<CompiledTemplate> concurrent = compiledTemplates.putIfAbsent(key, template);
+            if (concurrent != null) {
+                template = concurrent;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Compile a template, checking it against the email rendered by Thymeleaf for a user whose properties are all set with
+     * characters to escape.
+     */
+    private Optional<CompiledTemplate> compile(TemplateKey key, String langKey) {
+        String nonce = HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+        List<String> markers = new ArrayList<>(PROPERTIES.size());
+        User probe = new User();
+        probe.setLangKey(langKey);
+        User awkward = new User();
+        awkward.setLangKey(langKey);
+        for (int i = 0; i < PROPERTIES.size(); i++) {
+            // letters and digits only, so escaping leaves them as they are
+            String marker = "mailslot" + nonce + "x" + i + "x";
+            markers.add(marker);
+            PROPERTIES.get(i).setter().accept(probe, marker);
+            PROPERTIES.get(i).setter().accept(awkward, AWKWARD_TEXT + i);
+        }
+        CompiledTemplate template = split(
+            messageSource.getMessage(key.titleKey(), null, key.locale()),
+            process(probe, key.templateName(), key.locale()),
+            markers
+        );
+        if (!process(awkward, key.templateName(), key.locale()).equals(template.apply(awkward))) {
+            LOG.debug("Template '{}' depends on more than the escaped text properties of the user, it is not compiled", key.templateName());
+            return Optional.empty();
+        }
+        return Optional.of(template);
+    }
+
+    private String process(User user, String templateName, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable(USER, user);
+        context.setVariable(BASE_URL, baseUrl);
+        return templateEngine.process(templateName, context);
+    }
+
+    private static CompiledTemplate split(String subject, String output, List<String> markers) {
+        List<String> fragments = new ArrayList<>();
+        List<Function<User, String>> slots = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int next = -1;
+            int property = -1;
+            for (int i = 0; i < markers.size(); i++) {
+                int index = output.indexOf(markers.get(i), from);
+                if (index >= 0 && (next < 0 || index < next)) {
+                    next = index;
+                    property = i;
+                }
+            }
+            if (next < 0) {
+                fragments.add(output.substring(from));
+                return new CompiledTemplate(subject, fragments.toArray(String[]::new), slots);
+            }
+            fragments.add(output.substring(from, next));
+            slots.add(PROPERTIES.get(property).getter());
+            from = next + markers.get(property).length();
+        }
+    }
+
+    private record TemplateKey(String templateName, String titleKey, Locale locale) {}
+
+    private record Property(Function<User, String> getter, BiConsumer<User, String> setter) {}
+
+    /**
+     * The output of a template, with a slot for a property of the user between each of its fragments.
+     */
+    private static final class CompiledTemplate {
+
+        private final String subject;
+
+        private final String[] fragments;
+
+        private final List<Function<User, String>> slots;
+
+        // renders still to be checked against Thymeleaf before this is trusted
+        private final AtomicInteger checksLeft = new AtomicInteger(CHECKED_RENDERS);
+
+        private CompiledTemplate(String subject, String[] fragments, List<Function<User, String>> slots) {
+            this.subject = subject;
+            this.fragments = fragments;
+            this.slots = slots;
+        }
+
+        /**
+         * @return the content for the user, or {@code null} if one of the properties used is missing.
+         */
+        private String apply(User user) {
+            StringBuilder content = new StringBuilder(fragments[0].length() * 2);
+            content.append(fragments[0]);
+            for (int i = 0; i < slots.size(); i++) {
+                String value = slots.get(i).apply(user);
+                if (value == null) {
+                    return null;
+                }
+                content.append(HtmlEscape.escapeHtml4Xml(value)).append(fragments[i + 1]);
+            }
+            return content.toString();
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package myapp.service;
 
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import myapp.domain.Order;
+import myapp.domain.enumeration.OrderStatus;
 import myapp.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,10 +33,45 @@ public class OrderService {
 
     private static final Logger LOG = LoggerFactory.getLogger(OrderService.class);
 
+    /**
+     * The statuses an order can go to from each status, besides staying in its current status.
+     */
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(
+        Map.of(
+            OrderStatus.NEW,
+            EnumSet.of(OrderStatus.CONFIRMED, OrderStatus.CANCELLED),
+            OrderStatus.CONFIRMED,
+            EnumSet.of(OrderStatus.PROCESSING, OrderStatus.CANCELLED),
+            OrderStatus.PROCESSING,
+            EnumSet.of(OrderStatus.SHIPPED, OrderStatus.CANCELLED),
+            OrderStatus.SHIPPED,
+            EnumSet.of(OrderStatus.DELIVERED, OrderStatus.RETURNED),
+            OrderStatus.DELIVERED,
+            EnumSet.of(OrderStatus.RETURNED),
+            OrderStatus.CANCELLED,
+            EnumSet.noneOf(OrderStatus.class),
+            OrderStatus.RETURNED,
+            EnumSet.noneOf(OrderStatus.class)
+        )
+    );
+
+    /**
+     * The statuses of the orders still to be fulfilled, as listed by {@link OrderRepository#OPEN_STATUSES}.
+     */
+    private static final Set<OrderStatus> OPEN_STATUSES = EnumSet.of(
+        OrderStatus.NEW,
+        OrderStatus.CONFIRMED,
+        OrderStatus.PROCESSING,
+        OrderStatus.SHIPPED
+    );
+
     private final OrderRepository orderRepository;
 
-    public OrderService(OrderRepository orderRepository) {
+    private final OrderStatsService orderStatsService;
+
+    public OrderService(OrderRepository orderRepository, OrderStatsService orderStatsService) {
         this.orderRepository = orderRepository;
+        this.orderStatsService = orderStatsService;
     }
 
     /**
@@ -33,7 +82,9 @@ public class OrderService {
      */
     public Order save(Order order) {
         LOG.debug("Request to save Order : {}", order);
-        return orderRepository.save(order);
+        Order result = orderRepository.save(order);
+        orderStatsService.markStale(result);
+        return result;
     }
 
     /**
@@ -41,10 +92,27 @@ public class OrderService {
      *
      * @param order the entity to save.
      * @return the persisted entity.
+     * @throws InvalidOrderStatusTransitionException if the order cannot go from its current status to the new one.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the order has been updated since.
      */
     public Order update(Order order) {
         LOG.debug("Request to update Order : {}", order);
-        return orderRepository.save(order);
+        orderRepository
+            .findById(order.getId())
+            .ifPresent(existingOrder -> {
+                if (order.getVersion() == null) {
+                    // without a version the order would be taken for a new one, it is overwritten whatever its current version
+                    order.setVersion(existingOrder.getVersion());
+                } else if (!order.getVersion().equals(existingOrder.getVersion())) {
+                    // checked before the transition, which is from a status the client may not have seen
+                    throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+                }
+                checkTransition(existingOrder.getStatus(), order.getStatus());
+                orderStatsService.markStale(existingOrder);
+            });
+        Order result = orderRepository.save(order);
+        orderStatsService.markStale(result);
+        return result;
     }
 
     /**
@@ -52,6 +120,8 @@ public class OrderService {
      *
      * @param order the entity to update partially.
      * @return the persisted entity.
+     * @throws InvalidOrderStatusTransitionException if the order cannot go from its current status to the new one.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the order has been updated since.
      */
     public Optional<Order> partialUpdate(Order order) {
         LOG.debug("Request to partially update Order : {}", order);
@@ -59,6 +129,10 @@ public class OrderService {
         return orderRepository
             .findById(order.getId())
             .map(existingOrder -> {
+                if (order.getVersion() != null && !order.getVersion().equals(existingOrder.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+                }
+                orderStatsService.markStale(existingOrder);
                 if (order.getOrderDate() != null) {
                     existingOrder.setOrderDate(order.getOrderDate());
                 }
@@ -66,6 +140,7 @@ public class OrderService {
                     existingOrder.setShippedDate(order.getShippedDate());
                 }
                 if (order.getStatus() != null) {
+                    checkTransition(existingOrder.getStatus(), order.getStatus());
                     existingOrder.setStatus(order.getStatus());
                 }
                 if (order.getTotalAmount() != null) {
@@ -80,7 +155,11 @@ public class OrderService {
 
                 return existingOrder;
             })
-            .map(orderRepository::save);
+            .map(orderRepository::save)
+            .map(result -> {
+                orderStatsService.markStale(result);
+                return result;
+            });
     }
 
     /**
@@ -95,6 +174,48 @@ public class OrderService {
         return orderRepository.findAll(pageable);
     }
 
+    /**
+     * Get the orders with a status, ordered by order date and id.
+     * <p>
+     * The ids of the page are read from the status index alone, then only the orders of the page are read from the table.
+     *
+     * @param status the status of the orders.
+     * @param pageable the pagination information, its sort is ignored.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public Page<Order> findAllByStatus(OrderStatus status, Pageable pageable) {
+        LOG.debug("Request to get all Orders with status {}", status);
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Page<Long> ids = OPEN_STATUSES.contains(status)
+            ? orderRepository.findIdsByOpenStatus(status, unsorted)
+            : orderRepository.findIdsByStatus(status, unsorted);
+        Map<Long, Order> orders = orderRepository
+            .findAllById(ids.getContent())
+            .stream()
+            .collect(Collectors.toMap(Order::getId, Function.identity()));
+        // an order deleted in between is left out
+        List<Order> content = ids.stream().map(orders::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
+
+    /**
+     * Get a slice of the orders ordered by order date and id, using keyset pagination.
+     *
+     * @param afterOrderDate the order date of the last order of the previous slice, or {@code null} for the first slice.
+     * @param afterId the id of the last order of the previous slice, or {@code null} for the first slice.
+     * @param size the maximum number of entities to return.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public List<Order> findAllAfter(Instant afterOrderDate, Long afterId, int size) {
+        LOG.debug("Request to get a slice of Orders after {}, {}", afterOrderDate, afterId);
+        if (afterOrderDate == null || afterId == null) {
+            return orderRepository.findAllByOrderByOrderDateAscIdAsc(Limit.of(size));
+        }
+        return orderRepository.findAllAfter(afterOrderDate, afterId, Limit.of(size));
+    }
+
     /**
      * Get one order by id.
      *
@@ -114,6 +235,13 @@ public class OrderService {
      */
     public void delete(Long id) {
         LOG.debug("Request to delete Order : {}", id);
+        orderRepository.findById(id).ifPresent(orderStatsService::markStale);
         orderRepository.deleteById(id);
     }
+
+    private static void checkTransition(OrderStatus from, OrderStatus to) {
+        if (from != null && to != null && from != to && !TRANSITIONS.get(from).contains(to)) {
+            throw new InvalidOrderStatusTransitionException(from, to);
+        }
+    }
 }
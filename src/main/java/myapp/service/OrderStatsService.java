@@ -0,0 +1,282 @@
+package myapp.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import myapp.domain.Order;
+import myapp.service.dto.CustomerOrderStatsDTO;
+import myapp.service.dto.OrderStatsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service maintaining the sales rollups of {@link myapp.domain.Order}, per day (UTC) of order date and per customer.
+ * <p>
+ * Saving or deleting an order marks its day and its customer, before and after the change, as stale once the transaction
+ * commits. Stale rollups are recomputed from the orders of that day or customer every 10 seconds, and before stats are
+ * read. Every night the rollups are rebuilt from scratch, which also repairs what a crash may have left stale. Reading
+ * stats is then proportional to the number of days, not to the number of orders.
+ * <p>
+ * Rollups are merged rather than deleted and inserted again, so nodes refreshing the same rollup at once update it in turn.
+ * When reading stats, a failed refresh is logged and the rollups are read as they are, the next refresh catching up.
+ * <p>
+ * Like the queries they replace, the rollups count every order whatever its status.
+ */
+@Service
+public class OrderStatsService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrderStatsService.class);
+
+    private static final String MERGE_DAY =
+        "merge into order_daily_rollup r using (" +
+        "select cast(? as date) as order_day, count(*) as order_count, coalesce(sum(total_amount), 0) as total_amount, " +
+        "coalesce(sum(shipping_cost), 0) as shipping_cost from jhi_order where order_date >= ? and order_date < ? having count(*) > 0" +
+        ") o on r.order_day = o.order_day " +
+        "when matched then update set order_count = o.order_count, total_amount = o.total_amount, shipping_cost = o.shipping_cost " +
+        "when not matched then insert (order_day, order_count, total_amount, shipping_cost) " +
+        "values (o.order_day, o.order_count, o.total_amount, o.shipping_cost)";
+
+    private static final String DELETE_DAY =
+        "delete from order_daily_rollup where order_day = ? and not exists (select 1 from jhi_order where order_date >= ? and order_date < ?)";
+
+    private static final String MERGE_CUSTOMER =
+        "merge into order_customer_rollup r using (" +
+        "select customer_id, count(*) as order_count, coalesce(sum(total_amount), 0) as total_amount, " +
+        "coalesce(sum(shipping_cost), 0) as shipping_cost from jhi_order where customer_id = ? group by customer_id" +
+        ") o on r.customer_id = o.customer_id " +
+        "when matched then update set order_count = o.order_count, total_amount = o.total_amount, shipping_cost = o.shipping_cost " +
+        "when not matched then insert (customer_id, order_count, total_amount, shipping_cost) " +
+        "values (o.customer_id, o.order_count, o.total_amount, o.shipping_cost)";
+
+    private static final String DELETE_CUSTOMER =
+        "delete from order_customer_rollup where customer_id = ? and not exists (select 1 from jhi_order where customer_id = ?)";
+
+    // a rollup inserted by another node at the same time is updated on the next attempt
+    private static final int REFRESH_ATTEMPTS = 3;
+
+    private static final String REBUILD_DAYS =
+        "insert into order_daily_rollup (order_day, order_count, total_amount, shipping_cost) " +
+        "select cast(order_date as date), count(*), coalesce(sum(total_amount), 0), coalesce(sum(shipping_cost), 0) " +
+        "from jhi_order group by cast(order_date as date)";
+
+    private static final String REBUILD_CUSTOMERS =
+        "insert into order_customer_rollup (customer_id, order_count, total_amount, shipping_cost) " +
+        "select customer_id, count(*), coalesce(sum(total_amount), 0), coalesce(sum(shipping_cost), 0) " +
+        "from jhi_order where customer_id is not null group by customer_id";
+
+    /**
+     * The length of the periods stats are grouped by. Weeks start on Monday.
+     */
+    public enum Granularity {
+        DAY,
+        WEEK,
+        MONTH;
+
+        LocalDate periodOf(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<LocalDate> staleDays = ConcurrentHashMap.newKeySet();
+
+    private final Set<Long> staleCustomers = ConcurrentHashMap.newKeySet();
+
+    public OrderStatsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Mark the rollups of an order as stale once the current transaction commits. This is called with the order as it
+     * was before a change, and as it is after it.
+     *
+     * @param order the order.
+     */
+    public void markStale(Order order) {
+        LocalDate day = order.getOrderDate() == null ? null : LocalDate.ofInstant(order.getOrderDate(), ZoneOffset.UTC);
+        Long customerId = order.getCustomer() == null ? null : order.getCustomer().getId();
+        AfterCommit.run(() -> {
+            if (day != null) {
+                staleDays.add(day);
+            }
+            if (customerId != null) {
+                staleCustomers.add(customerId);
+            }
+        });
+    }
+
+    /**
+     * Get the order stats between two days, grouped by period. Periods without orders are left out.
+     *
+     * @param from the first day included.
+     * @param to the last day excluded.
+     * @param granularity the length of the periods.
+     * @return the stats of each period, in order.
+     */
+    public List<OrderStatsDTO> getStats(LocalDate from, LocalDate to, Granularity granularity) {
+        LOG.debug("Request to get Order stats from {} to {} by {}", from, to, granularity);
+        refreshBeforeReading();
+        Map<LocalDate, OrderStatsDTO> periods = new LinkedHashMap<>();
+        jdbcTemplate.query(
+            "select order_day, order_count, total_amount, shipping_cost from order_daily_rollup where order_day >= ? and order_day < ? order by order_day",
+            resultSet -> {
+                LocalDate period = granularity.periodOf(resultSet.getObject("order_day", LocalDate.class));
+                OrderStatsDTO day = new OrderStatsDTO(
+                    period,
+                    resultSet.getLong("order_count"),
+                    resultSet.getBigDecimal("total_amount"),
+                    resultSet.getBigDecimal("shipping_cost")
+                );
+                periods.merge(period, day, OrderStatsService::add);
+            },
+            from,
+            to
+        );
+        return new ArrayList<>(periods.values());
+    }
+
+    /**
+     * Get the order stats of a customer.
+     *
+     * @param customerId the id of the customer.
+     * @return the stats, or empty if the customer has no order.
+     */
+    public Optional<CustomerOrderStatsDTO> getCustomerStats(Long customerId) {
+        LOG.debug("Request to get Order stats of Customer : {}", customerId);
+        refreshBeforeReading();
+        return jdbcTemplate
+            .query(
+                "select customer_id, order_count, total_amount, shipping_cost from order_customer_rollup where customer_id = ?",
+                (resultSet, rowNum) ->
+                    new CustomerOrderStatsDTO(
+                        resultSet.getLong("customer_id"),
+                        resultSet.getLong("order_count"),
+                        resultSet.getBigDecimal("total_amount"),
+                        resultSet.getBigDecimal("shipping_cost")
+                    ),
+                customerId
+            )
+            .stream()
+            .findFirst();
+    }
+
+    /**
+     * Stale rollups are recomputed.
+     * <p>
+     * This is scheduled to get fired every 10 seconds.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public synchronized void refreshStaleRollups() {
+        List<LocalDate> days = drain(staleDays);
+        List<Long> customers = drain(staleCustomers);
+        if (days.isEmpty() && customers.isEmpty()) {
+            return;
+        }
+        LOG.debug("Refreshing Order rollups of {} days and {} customers", days.size(), customers.size());
+        try {
+            for (int attempt = 1;; attempt++) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> refresh(days, customers));
+                    return;
+                } catch (DuplicateKeyException e) {
+                    if (attempt == REFRESH_ATTEMPTS) {
+                        throw e;
+                    }
+                    LOG.debug("Order rollups refreshed by another node at the same time, retrying");
+                }
+            }
+        } catch (RuntimeException e) {
+            // retried with the next refresh
+            staleDays.addAll(days);
+            staleCustomers.addAll(customers);
+            throw e;
+        }
+    }
+
+    /**
+     * Rollups are rebuilt from all the orders, repairing any drift.
+     * <p>
+     * This is scheduled to get fired everyday, at 02:00 (am).
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public synchronized void reconcileRollups() {
+        long start = System.currentTimeMillis();
+        // changes committed while rebuilding are seen by the rebuild, or refreshed afterwards
+        staleDays.clear();
+        staleCustomers.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from order_daily_rollup");
+            jdbcTemplate.update("delete from order_customer_rollup");
+            jdbcTemplate.update(REBUILD_DAYS);
+            jdbcTemplate.update(REBUILD_CUSTOMERS);
+        });
+        LOG.info("Rebuilt Order rollups in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void refresh(List<LocalDate> days, List<Long> customers) {
+        jdbcTemplate.batchUpdate(MERGE_DAY, days, days.size(), (statement, day) -> setDay(statement, day));
+        jdbcTemplate.batchUpdate(DELETE_DAY, days, days.size(), (statement, day) -> setDay(statement, day));
+        jdbcTemplate.batchUpdate(MERGE_CUSTOMER, customers, customers.size(), (statement, id) -> statement.setLong(1, id));
+        jdbcTemplate.batchUpdate(DELETE_CUSTOMER, customers, customers.size(), (statement, id) -> {
+            statement.setLong(1, id);
+            statement.setLong(2, id);
+        });
+    }
+
+    private void refreshBeforeReading() {
+        try {
+            refreshStaleRollups();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not refresh the Order rollups, reading them as they are: {}", e.getMessage());
+        }
+    }
+
+    private static void setDay(PreparedStatement statement, LocalDate day) throws SQLException {
+        statement.setObject(1, day);
+        statement.setObject(2, day.atStartOfDay());
+        statement.setObject(3, day.plusDays(1).atStartOfDay());
+    }
+
+    private static <T> List<T> drain(Set<T> stale) {
+        List<T> drained = new ArrayList<>();
+        for (Iterator<T> iterator = stale.iterator(); iterator.hasNext();) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    private static OrderStatsDTO add(OrderStatsDTO left, OrderStatsDTO right) {
+        return new OrderStatsDTO(
+            left.period(),
+            left.orderCount() + right.orderCount(),
+            left.totalAmount().add(right.totalAmount()),
+            left.shippingCost().add(right.shippingCost())
+        );
+    }
+}
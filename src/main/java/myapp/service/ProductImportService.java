@@ -0,0 +1,311 @@
+package myapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import myapp.domain.Product;
+import myapp.service.dto.ProductImportReportDTO;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for bulk importing {@link myapp.domain.Product}.
+ * <p>
+ * The input is read as a stream, by chunks of {@value #CHUNK_SIZE} rows. The rows of a chunk are validated in parallel
+ * against the bean validation constraints of the entity, and the valid ones are inserted with a JDBC batch in their own
+ * transaction. If the database rejects the data of a row, the two halves of the batch are inserted again in their own
+ * transaction, down to the single rows it rejects, so a rejected row never prevents the others from being imported.
+ * <p>
+ * The rows are inserted with plain JDBC rather than persisted, which spares the session the overhead of managing
+ * entities it would only flush and clear. Their ids come from the generator of the entity, sharing its pooled-lo
+ * allocation with the products created one by one.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT =
+        "insert into product (id, version, title, keywords, description, rating, price, quantity_in_stock, status, weight, " +
+        "dimensions, date_added, date_modified, wish_list_id, order_id) values (?, 0, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ObjectReader jsonReader;
+
+    private final ObjectReader csvReader;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManager entityManager;
+
+    private final BeforeExecutionGenerator idGenerator;
+
+    private final ProductSearchService productSearchService;
+
+    public ProductImportService(
+        ObjectMapper objectMapper,
+        Validator validator,
+        PlatformTransactionManager transactionManager,
+        JdbcTemplate jdbcTemplate,
+        EntityManager entityManager,
+        EntityManagerFactory entityManagerFactory,
+        ProductSearchService productSearchService
+    ) {
+        this.jsonReader = objectMapper.readerFor(Product.class);
+        CsvMapper csvMapper = CsvMapper.builder()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .addModule(new JavaTimeModule())
+            .build();
+        this.csvReader = csvMapper.readerFor(Product.class).with(CsvSchema.emptySchema().withHeader());
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.idGenerator = (BeforeExecutionGenerator) entityManagerFactory
+            .unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel()
+            .getEntityDescriptor(Product.class)
+            .getGenerator();
+        this.productSearchService = productSearchService;
+    }
+
+    /**
+     * Import products.
+     *
+     * @param input the rows to import, it is read once and not closed.
+     * @param format the format of the rows.
+     * @return the report of the import.
+     * @throws IOException if the input cannot be read.
+     */
+    public ProductImportReportDTO importProducts(InputStream input, FileFormat format) throws IOException {
+        LOG.debug("Request to import Products from {}", format);
+        long start = System.currentTimeMillis();
+        Report report = new Report();
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        Consumer<Row> collector = row -> {
+            chunk.add(row);
+            if (chunk.size() == CHUNK_SIZE) {
+                importChunk(chunk, report);
+                chunk.clear();
+            }
+        };
+        if (format == FileFormat.CSV) {
+            readCsv(input, collector);
+        } else {
+            readNdjson(input, collector);
+        }
+        importChunk(chunk, report);
+        LOG.info("Imported {} of {} Products in {} ms", report.imported, report.rows, System.currentTimeMillis() - start);
+        boolean errorsTruncated = report.failed > report.errors.size();
+        return new ProductImportReportDTO(report.rows, report.imported, report.failed, report.errors, errorsTruncated);
+    }
+
+    private void readCsv(InputStream input, Consumer<Row> collector) throws IOException {
+        try (MappingIterator<Product> iterator = csvReader.readValues(input)) {
+            long number = 0;
+            while (true) {
+                try {
+                    if (!iterator.hasNextValue()) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // the parser cannot skip past malformed CSV, the rest of the input is lost
+                    collector.accept(Row.rejected(++number, "Unreadable CSV, import stopped: " + message(e)));
+                    return;
+                }
+                number++;
+                try {
+                    collector.accept(Row.parsed(number, iterator.nextValue()));
+                } catch (IOException e) {
+                    // the iterator skips the rest of the row before reading the next one
+                    collector.accept(Row.rejected(number, message(e)));
+                }
+            }
+        }
+    }
+
+    private void readNdjson(InputStream input, Consumer<Row> collector) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long number = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            number++;
+            try {
+                collector.accept(Row.parsed(number, jsonReader.readValue(line)));
+            } catch (IOException e) {
+                collector.accept(Row.rejected(number, message(e)));
+            }
+        }
+    }
+
+    private void importChunk(List<Row> chunk, Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Row> validated = chunk.parallelStream().map(this::validate).toList();
+        List<Row> valid = new ArrayList<>(validated.size());
+        for (Row row : validated) {
+            report.rows++;
+            if (row.error() != null) {
+                report.reject(row.number(), row.error());
+            } else {
+                valid.add(row);
+            }
+        }
+        save(valid, report);
+    }
+
+    private void save(List<Row> rows, Report report) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(rows));
+            report.imported += rows.size();
+        } catch (DataIntegrityViolationException e) {
+            if (rows.size() == 1) {
+                report.reject(rows.get(0).number(), "Could not be saved: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                return;
+            }
+            LOG.debug("Could not import a chunk of {} Products, importing its halves: {}", rows.size(), e.getMessage());
+            int half = rows.size() / 2;
+            save(rows.subList(0, half), report);
+            save(rows.subList(half, rows.size()), report);
+        } catch (RuntimeException e) {
+            // not caused by the data of a row, so trying again row by row is no use
+            LOG.warn("Could not import a chunk of {} Products: {}", rows.size(), e.getMessage());
+            rows.forEach(row -> report.reject(row.number(), "Could not be saved: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+        }
+    }
+
+    private Row validate(Row row) {
+        if (row.error() != null) {
+            return row;
+        }
+        if (row.product().getId() != null) {
+            return Row.rejected(row.number(), "A new product cannot already have an ID");
+        }
+        Set<ConstraintViolation<Product>> violations = validator.validate(row.product());
+        if (violations.isEmpty()) {
+            return row;
+        }
+        String message = violations
+            .stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+        return Row.rejected(row.number(), message);
+    }
+
+    private void insert(List<Row> rows) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        List<Product> products = rows.stream().map(Row::product).toList();
+        for (Product product : products) {
+            // a new id on each attempt, the ones of a rolled back attempt are left unused
+            product.setId((Long) idGenerator.generate(session, product, null, EventType.INSERT));
+            product.setVersion(0);
+        }
+        jdbcTemplate.batchUpdate(INSERT, products, products.size(), ProductImportService::setValues);
+        productSearchService.indexAll(products);
+    }
+
+    private static void setValues(PreparedStatement statement, Product product) throws SQLException {
+        statement.setLong(1, product.getId());
+        statement.setString(2, product.getTitle());
+        statement.setString(3, product.getKeywords());
+        statement.setString(4, product.getDescription());
+        statement.setObject(5, product.getRating(), Types.INTEGER);
+        statement.setBigDecimal(6, product.getPrice());
+        statement.setObject(7, product.getQuantityInStock(), Types.INTEGER);
+        statement.setString(8, product.getStatus().name());
+        statement.setObject(9, product.getWeight(), Types.DOUBLE);
+        statement.setString(10, product.getDimensions());
+        statement.setObject(11, toDatabase(product.getDateAdded()), Types.TIMESTAMP);
+        statement.setObject(12, toDatabase(product.getDateModified()), Types.TIMESTAMP);
+        statement.setObject(13, product.getWishList() != null ? product.getWishList().getId() : null, Types.BIGINT);
+        statement.setObject(14, product.getOrder() != null ? product.getOrder().getId() : null, Types.BIGINT);
+    }
+
+    private static LocalDateTime toDatabase(Instant instant) {
+        return instant != null ? LocalDateTime.ofInstant(instant, ZoneOffset.UTC) : null;
+    }
+
+    private static String message(IOException e) {
+        return e instanceof JsonProcessingException jsonException ? jsonException.getOriginalMessage() : e.getMessage();
+    }
+
+    private record Row(long number, Product product, String error) {
+        static Row parsed(long number, Product product) {
+            return new Row(number, product, null);
+        }
+
+        static Row rejected(long number, String error) {
+            return new Row(number, null, error);
+        }
+    }
+
+    private static final class Report {
+
+        private long rows;
+
+        private long imported;
+
+        private long failed;
+
+        private final List<ProductImportReportDTO.RowError> errors = new ArrayList<>();
+
+        private void reject(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportReportDTO.RowError(row, message));
+            }
+        }
+    }
+}
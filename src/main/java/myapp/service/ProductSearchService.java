@@ -0,0 +1,263 @@
+package myapp.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import myapp.domain.Product;
+import myapp.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for full-text search of {@link myapp.domain.Product}.
+ * <p>
+ * Keeps an in-memory inverted index over the title, keywords and description of every product. The index is
+ * rebuilt from the database once the application is ready, and kept in sync by {@link ProductService} after
+ * each committed write.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final int TITLE_WEIGHT = 3;
+
+    private static final int KEYWORDS_WEIGHT = 2;
+
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed().thenComparingLong(Hit::id);
+
+    private final ProductRepository productRepository;
+
+    // term -> (product id -> weight of the term in that product)
+    private final Map<String, Map<Long, Integer>> postings = new ConcurrentHashMap<>();
+
+    // product id -> (term -> weight), used to unlink a product from its previous terms
+    private final Map<Long, Map<String, Integer>> documents = new ConcurrentHashMap<>();
+
+    public ProductSearchService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Index a product, replacing its previous entry if any.
+     * <p>
+     * When called inside a transaction, the index is only updated once the transaction commits.
+     *
+     * @param product the entity to index.
+     */
+    public void index(Product product) {
+        AfterCommit.run(() -> indexNow(product));
+    }
+
+    /**
+     * Index products, replacing their previous entries if any.
+     * <p>
+     * When called inside a transaction, the index is only updated once the transaction commits.
+     *
+     * @param products the entities to index.
+     */
+    public void indexAll(Collection<Product> products) {
+        AfterCommit.run(() -> products.forEach(this::indexNow));
+    }
+
+    /**
+     * Remove a product from the index.
+     * <p>
+     * When called inside a transaction, the index is only updated once the transaction commits.
+     *
+     * @param id the id of the entity.
+     */
+    public void remove(Long id) {
+        AfterCommit.run(() -> removeNow(id));
+    }
+
+    /**
+     * Search the products matching every term of the query, best matches first.
+     * <p>
+     * Title matches rank above keyword matches, which rank above description matches.
+     *
+     * @param query the free-text query.
+     * @param pageable the pagination information, its sort is ignored in favour of the ranking.
+     * @return the page of matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Page<Product> search(String query, Pageable pageable) {
+        LOG.debug("Request to search Products for query : {}", query);
+        List<Hit> hits = match(query);
+        if (hits.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        List<Long> ids = topIds(hits, pageable);
+        Map<Long, Product> products = productRepository
+            .findAllById(ids)
+            .stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> content = ids.stream().map(products::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, pageable, hits.size());
+    }
+
+    /**
+     * Rebuild the index from the database.
+     * <p>
+     * This is run once the application is ready, products are read in id order by batches of {@value #REBUILD_BATCH_SIZE}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        LOG.debug("Rebuilding Product search index");
+        long start = System.currentTimeMillis();
+        long count = 0;
+        long lastId = Long.MIN_VALUE;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+            for (Product product : batch) {
+                indexNow(product);
+                lastId = product.getId();
+            }
+            count += batch.size();
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        LOG.info("Product search index rebuilt with {} products in {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    void indexNow(Product product) {
+        Map<String, Integer> terms = terms(product);
+        documents.compute(product.getId(), (id, previous) -> {
+            if (previous != null) {
+                previous.keySet().forEach(term -> unlink(term, id));
+            }
+            terms.forEach((term, weight) -> link(term, id, weight));
+            return terms;
+        });
+    }
+
+    void removeNow(Long id) {
+        documents.computeIfPresent(id, (key, previous) -> {
+            previous.keySet().forEach(term -> unlink(term, key));
+            return null;
+        });
+    }
+
+    private void link(String term, Long id, int weight) {
+        postings.compute(term, (key, ids) -> {
+            Map<Long, Integer> result = ids == null ? new ConcurrentHashMap<>() : ids;
+            result.put(id, weight);
+            return result;
+        });
+    }
+
+    private void unlink(String term, Long id) {
+        postings.computeIfPresent(term, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private List<Hit> match(String query) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<Long, Integer>> lists = new ArrayList<>(queryTerms.size());
+        for (String term : queryTerms) {
+            Map<Long, Integer> ids = postings.get(term);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        // intersect starting from the rarest term
+        lists.sort(Comparator.comparingInt(Map::size));
+
+        Map<Long, Integer> rarest = lists.get(0);
+        List<Hit> hits = new ArrayList<>(rarest.size());
+        rarest.forEach((id, weight) -> {
+            int score = weight;
+            for (int i = 1; i < lists.size(); i++) {
+                Integer other = lists.get(i).get(id);
+                if (other == null) {
+                    return;
+                }
+                score += other;
+            }
+            hits.add(new Hit(id, score));
+        });
+        return hits;
+    }
+
+    private static List<Long> topIds(List<Hit> hits, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return hits.stream().sorted(RANKING).map(Hit::id).toList();
+        }
+        long end = Math.min(pageable.getOffset() + pageable.getPageSize(), hits.size());
+        if (pageable.getOffset() >= end) {
+            return List.of();
+        }
+
+        // keep only the best "end" hits, worst one on top of the heap
+        PriorityQueue<Hit> best = new PriorityQueue<>((int) end, RANKING.reversed());
+        for (Hit hit : hits) {
+            best.offer(hit);
+            if (best.size() > end) {
+                best.poll();
+            }
+        }
+        List<Hit> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked.subList((int) pageable.getOffset(), ranked.size()).stream().map(Hit::id).toList();
+    }
+
+    static Map<String, Integer> terms(Product product) {
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(product.getTitle()).forEach(term -> terms.merge(term, TITLE_WEIGHT, Integer::sum));
+        if (product.getKeywords() != null) {
+            for (String keyword : product.getKeywords().split(",")) {
+                tokenize(keyword).forEach(term -> terms.merge(term, KEYWORDS_WEIGHT, Integer::sum));
+            }
+        }
+        tokenize(product.getDescription()).forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        return terms;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Hit(long id, int score) {}
+}
@@ -1,13 +1,19 @@
 package myapp.service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import myapp.domain.Category;
 import myapp.domain.Product;
 import myapp.repository.ProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -21,8 +27,22 @@ public class ProductService {
 
     private final ProductRepository productRepository;
 
-    public ProductService(ProductRepository productRepository) {
+    private final ProductSearchService productSearchService;
+
+    private final SingleFlightService singleFlightService;
+
+    private final EntityTagService entityTagService;
+
+    public ProductService(
+        ProductRepository productRepository,
+        ProductSearchService productSearchService,
+        SingleFlightService singleFlightService,
+        EntityTagService entityTagService
+    ) {
         this.productRepository = productRepository;
+        this.productSearchService = productSearchService;
+        this.singleFlightService = singleFlightService;
+        this.entityTagService = entityTagService;
     }
 
     /**
@@ -33,7 +53,9 @@ public class ProductService {
      */
     public Product save(Product product) {
         LOG.debug("Request to save Product : {}", product);
-        return productRepository.save(product);
+        product = productRepository.save(product);
+        productSearchService.index(product);
+        return product;
     }
 
     /**
@@ -41,10 +63,18 @@ public class ProductService {
      *
      * @param product the entity to save.
      * @return the persisted entity.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the product has been updated since.
      */
     public Product update(Product product) {
         LOG.debug("Request to update Product : {}", product);
-        return productRepository.save(product);
+        if (product.getVersion() == null) {
+            // without a version the product would be taken for a new one, it is overwritten whatever its current version
+            productRepository.findById(product.getId()).map(Product::getVersion).ifPresent(product::setVersion);
+        }
+        product = productRepository.save(product);
+        productSearchService.index(product);
+        invalidateTags(product.getId());
+        return product;
     }
 
     /**
@@ -52,6 +82,7 @@ public class ProductService {
      *
      * @param product the entity to update partially.
      * @return the persisted entity.
+     * @throws ObjectOptimisticLockingFailureException if a version is given and the product has been updated since.
      */
     public Optional<Product> partialUpdate(Product product) {
         LOG.debug("Request to partially update Product : {}", product);
@@ -59,6 +90,9 @@ public class ProductService {
         return productRepository
             .findById(product.getId())
             .map(existingProduct -> {
+                if (product.getVersion() != null && !product.getVersion().equals(existingProduct.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(Product.class, product.getId());
+                }
                 if (product.getTitle() != null) {
                     existingProduct.setTitle(product.getTitle());
                 }
@@ -95,7 +129,12 @@ public class ProductService {
 
                 return existingProduct;
             })
-            .map(productRepository::save);
+            .map(productRepository::save)
+            .map(updatedProduct -> {
+                productSearchService.index(updatedProduct);
+                invalidateTags(updatedProduct.getId());
+                return updatedProduct;
+            });
     }
 
     /**
@@ -110,16 +149,56 @@ public class ProductService {
         return productRepository.findAll(pageable);
     }
 
+    /**
+     * Get a slice of the products ordered by id, using keyset pagination.
+     *
+     * @param afterId the id of the last product of the previous slice, or {@code null} for the first slice.
+     * @param size the maximum number of entities to return.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public List<Product> findAllAfter(Long afterId, int size) {
+        LOG.debug("Request to get a slice of Products after {}", afterId);
+        if (afterId == null) {
+            return productRepository.findAllByOrderByIdAsc(Limit.of(size));
+        }
+        return productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+    }
+
+    /**
+     * Get all the products of several categories, each product once.
+     *
+     * @param categoryIds the ids of the categories.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public Page<Product> findAllInCategories(Collection<Long> categoryIds, Pageable pageable) {
+        LOG.debug("Request to get all Products of Categories : {}", categoryIds);
+        if (categoryIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return productRepository.findAllByCategoryIdIn(categoryIds, pageable);
+    }
+
     /**
      * Get one product by id.
+     * <p>
+     * Concurrent lookups of the same product share a single query, see {@link SingleFlightService}. The tag of the
+     * product is recorded, see {@link EntityTagService}.
      *
      * @param id the id of the entity.
      * @return the entity.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<Product> findOne(Long id) {
         LOG.debug("Request to get Product : {}", id);
-        return productRepository.findById(id);
+        return singleFlightService.execute("product", id, () -> {
+            long generation = entityTagService.getGeneration(Product.class);
+            Optional<Product> product = productRepository.findById(id);
+            product.ifPresent(found -> entityTagService.recordTag(Product.class, id, EntityTagService.tagOf(found), generation));
+            return product;
+        });
     }
 
     /**
@@ -130,5 +209,13 @@ public class ProductService {
     public void delete(Long id) {
         LOG.debug("Request to delete Product : {}", id);
         productRepository.deleteById(id);
+        productSearchService.remove(id);
+        invalidateTags(id);
+    }
+
+    private void invalidateTags(Long id) {
+        entityTagService.invalidate(Product.class, id);
+        // categories are serialized with their products
+        entityTagService.invalidateAll(Category.class);
     }
 }
@@ -0,0 +1,121 @@
+package myapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import myapp.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service coalescing concurrent identical lookups into a single one.
+ * <p>
+ * The first caller looking up a key runs the lookup in a read-only transaction, and the callers asking for the same key
+ * while it runs share its result instead of each holding a connection. A caller waits at most
+ * {@code application.single-flight.max-wait-millis} for the shared result, then runs the lookup itself. Callers already in
+ * a transaction always run the lookup themselves, so they get entities managed by their own persistence context.
+ * <p>
+ * Every lookup is counted in {@value #LOOKUPS_METER_NAME}, tagged with the name of the lookup and whether the caller
+ * ran it ({@code leader}), shared it ({@code follower}), or ran it after waiting too long ({@code timeout}): the
+ * coalescing ratio is the share of {@code follower} lookups.
+ */
+@Service
+public class SingleFlightService {
+
+    public static final String LOOKUPS_METER_NAME = "service.single-flight.lookups";
+    public static final String LOOKUPS_METER_DESCRIPTION = "Counts the lookups, by whether they were run or shared with a concurrent one.";
+    public static final String LOOKUPS_METER_NAME_DIMENSION = "name";
+    public static final String LOOKUPS_METER_ROLE_DIMENSION = "role";
+
+    private static final Logger LOG = LoggerFactory.getLogger(SingleFlightService.class);
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry registry;
+
+    private final long maxWaitMillis;
+
+    private final Map<Flight, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    public SingleFlightService(
+        PlatformTransactionManager transactionManager,
+        MeterRegistry registry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.registry = registry;
+        this.maxWaitMillis = applicationProperties.getSingleFlight().getMaxWaitMillis();
+    }
+
+    /**
+     * Look up a value, sharing the result of a concurrent lookup of the same key.
+     *
+     * @param name the name of the lookup, keys of different lookups never collide.
+     * @param key the key looked up.
+     * @param lookup the lookup.
+     * @param <V> the type of the value.
+     * @return the value.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String name, Object key, Supplier<V> lookup) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return lookup.get();
+        }
+        Flight flight = new Flight(name, key);
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletableFuture<Object> running = flights.putIfAbsent(flight, result);
+        if (running == null) {
+            counter(name, "leader").increment();
+            try {
+                V value = transactionTemplate.execute(status -> lookup.get());
+                result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(flight, result);
+            }
+        }
+        try {
+            V value = (V) running.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            counter(name, "follower").increment();
+            return value;
+        } catch (TimeoutException e) {
+            LOG.debug("Gave up waiting for the {} lookup of {}", name, key);
+            counter(name, "timeout").increment();
+            return transactionTemplate.execute(status -> lookup.get());
+        } catch (ExecutionException e) {
+            counter(name, "follower").increment();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw (Error) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + name + " lookup of " + key, e);
+        }
+    }
+
+    private Counter counter(String name, String role) {
+        // registering an existing meter returns it
+        return Counter.builder(LOOKUPS_METER_NAME)
+            .description(LOOKUPS_METER_DESCRIPTION)
+            .tag(LOOKUPS_METER_NAME_DIMENSION, name)
+            .tag(LOOKUPS_METER_ROLE_DIMENSION, role)
+            .register(registry);
+    }
+
+    private record Flight(String name, Object key) {}
+}
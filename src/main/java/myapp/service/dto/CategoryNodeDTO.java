@@ -0,0 +1,18 @@
+package myapp.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+import myapp.domain.enumeration.CategoryStatus;
+
+/**
+ * A DTO representing a {@link myapp.domain.Category} in the category tree, with its children in sort order.
+ */
+public record CategoryNodeDTO(
+    Long id,
+    Long parentId,
+    String description,
+    Integer sortOrder,
+    CategoryStatus status,
+    List<CategoryNodeDTO> children
+)
+    implements Serializable {}
@@ -0,0 +1,10 @@
+package myapp.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * A DTO representing the sales of {@link myapp.domain.Order} to a {@link myapp.domain.Customer}.
+ */
+public record CustomerOrderStatsDTO(Long customerId, long orderCount, BigDecimal totalAmount, BigDecimal shippingCost)
+    implements Serializable {}
@@ -0,0 +1,46 @@
+package myapp.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import myapp.domain.enumeration.OrderStatus;
+
+/**
+ * A DTO representing a {@link myapp.domain.Customer} with its addresses, its most recent orders and its wish lists.
+ */
+public record CustomerOverviewDTO(
+    Long id,
+    String firstName,
+    String lastName,
+    String email,
+    String telephone,
+    List<AddressSummary> addresses,
+    List<OrderSummary> recentOrders,
+    List<WishListSummary> wishLists
+)
+    implements Serializable {
+    /**
+     * An address of the customer.
+     */
+    public record AddressSummary(Long id, String address1, String address2, String city, String postcode, String country)
+        implements Serializable {}
+
+    /**
+     * An order of the customer, without its products.
+     */
+    public record OrderSummary(
+        Long id,
+        Instant orderDate,
+        Instant shippedDate,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        String trackingNumber
+    )
+        implements Serializable {}
+
+    /**
+     * A wish list of the customer, with the number of products in it.
+     */
+    public record WishListSummary(Long id, String title, Boolean restricted, Long productCount) implements Serializable {}
+}
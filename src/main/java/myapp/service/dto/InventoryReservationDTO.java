@@ -0,0 +1,13 @@
+package myapp.service.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A DTO representing stock of a {@link myapp.domain.Product} held for a buyer until it is committed, released or expired.
+ */
+public record InventoryReservationDTO(UUID id, @NotNull Long productId, @NotNull @Min(1) Integer quantity, Instant expiresAt)
+    implements Serializable {}
@@ -0,0 +1,10 @@
+package myapp.service.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A DTO representing the sales of {@link myapp.domain.Order} over a period, starting on {@code period}.
+ */
+public record OrderStatsDTO(LocalDate period, long orderCount, BigDecimal totalAmount, BigDecimal shippingCost) implements Serializable {}
@@ -0,0 +1,15 @@
+package myapp.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A DTO representing the outcome of a bulk import of {@link myapp.domain.Product}, with the errors of the rejected rows.
+ */
+public record ProductImportReportDTO(long rows, long imported, long failed, List<RowError> errors, boolean errorsTruncated)
+    implements Serializable {
+    /**
+     * The reason why a row was rejected, rows are numbered from 1 and do not count the CSV header.
+     */
+    public record RowError(long row, String message) implements Serializable {}
+}
@@ -0,0 +1,309 @@
+package myapp.web.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import myapp.config.ApplicationProperties;
+import myapp.web.rest.errors.ErrorConstants;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Filter limiting the rate of the requests matching the policies of {@code application.rate-limit.policies}.
+ * <p>
+ * A request matching a policy takes a token from the bucket of its key under that policy: its client IP address, the
+ * {@code username} of its JSON body, or the subject of its token, falling back to the IP address when missing. Without a
+ * token left, it is answered with {@code 429 (Too Many Requests)} and a {@code Retry-After} header, and counted in
+ * {@value #RATE_LIMITED_METER_NAME}. A policy matches a method, or any if none is set, and a path, or any path under it
+ * if it ends with {@code /**}. Requests matching no policy only go through the comparison of their method and path.
+ * <p>
+ * The client IP address is the address of the connection, unless it is one of
+ * {@code application.rate-limit.trusted-proxies}: it is then the last address of {@code X-Forwarded-For} which is not a
+ * trusted proxy, as the addresses before it may have been sent by the client.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String RATE_LIMITED_METER_NAME = "http.server.requests.rate.limited";
+    public static final String RATE_LIMITED_METER_DESCRIPTION = "Counts the requests rejected by a rate limit policy.";
+    public static final String RATE_LIMITED_METER_POLICY_DIMENSION = "policy";
+
+    private static final String LOGIN_PROPERTY = "username";
+
+    private static final int MAX_LOGIN_BODY_BYTES = 8192;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000;
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final List<Policy> policies;
+
+    private final Pattern trustedProxies;
+
+    private final ObjectMapper objectMapper;
+
+    // keeps the times positive, as the buckets start empty at 0
+    private final long origin = System.nanoTime();
+
+    public RateLimitFilter(ApplicationProperties.RateLimit rateLimit, MeterRegistry registry, ObjectMapper objectMapper) {
+        this.policies = rateLimit
+            .getPolicies()
+            .stream()
+            .map(policy -> new Policy(policy, rateLimit.getMaxKeys(), rateLimit.getStripes(), registry))
+            .toList();
+        String trustedProxies = rateLimit.getTrustedProxies();
+        this.trustedProxies = trustedProxies == null || trustedProxies.isBlank() ? null : Pattern.compile(trustedProxies);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        // Request URI includes the contextPath if any, removed it.
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        for (Policy policy : policies) {
+            if (!policy.matches(method, path)) {
+                continue;
+            }
+            if (policy.key == ApplicationProperties.RateLimit.Key.LOGIN && !(request instanceof CachedBodyRequest)) {
+                request = new CachedBodyRequest(request);
+            }
+            long wait = policy.buckets.tryAcquire(keyOf(request, policy.key), System.nanoTime() - origin);
+            if (wait > 0) {
+                policy.rejected.increment();
+                reject(response, path, wait);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String keyOf(HttpServletRequest request, ApplicationProperties.RateLimit.Key key) {
+        String value =
+            switch (key) {
+                case IP -> null;
+                case LOGIN -> loginOf((CachedBodyRequest) request);
+                case SUBJECT -> subjectOf();
+            };
+        return value == null ? clientAddressOf(request) : value;
+    }
+
+    private String clientAddressOf(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (trustedProxies == null || !trustedProxies.matcher(address).matches()) {
+            return address;
+        }
+        List<String> forwardedFor = Collections.list(request.getHeaders(FORWARDED_FOR_HEADER))
+            .stream()
+            .flatMap(header -> Arrays.stream(header.split(",")))
+            .map(String::trim)
+            .filter(forwarded -> !forwarded.isEmpty())
+            .toList();
+        // from the nearest hop, up to the first one not added by a trusted proxy
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            address = forwardedFor.get(i);
+            if (!trustedProxies.matcher(address).matches()) {
+                return address;
+            }
+        }
+        return address;
+    }
+
+    private String loginOf(CachedBodyRequest request) {
+        if (request.body == null || request.body.length == 0) {
+            return null;
+        }
+        try {
+            String login = objectMapper.readTree(request.body).path(LOGIN_PROPERTY).asText("");
+            // logins are case insensitive
+            return login.isBlank() ? null : login.toLowerCase(Locale.ENGLISH);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String subjectOf() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)
+            ? authentication.getName()
+            : null;
+    }
+
+    private void reject(HttpServletResponse response, String path, long waitNanos) throws IOException {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, "Too many requests, please retry later");
+        problem.setType(ErrorConstants.RATE_LIMITED_TYPE);
+        problem.setInstance(URI.create(path));
+        problem.setProperty("message", "error.http." + HttpStatus.TOO_MANY_REQUESTS.value());
+        problem.setProperty("path", path);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), problem);
+    }
+
+    private static final class Policy {
+
+        private final String method;
+
+        private final String path;
+
+        private final boolean prefix;
+
+        private final ApplicationProperties.RateLimit.Key key;
+
+        private final TokenBuckets buckets;
+
+        private final Counter rejected;
+
+        private Policy(ApplicationProperties.RateLimit.Policy policy, int maxKeys, int stripes, MeterRegistry registry) {
+            this.method = policy.getMethod();
+            this.prefix = policy.getPath().endsWith("/**");
+            this.path = prefix ? policy.getPath().substring(0, policy.getPath().length() - 3) : policy.getPath();
+            this.key = policy.getKey();
+            this.buckets = new TokenBuckets(policy.getCapacity(), policy.getRefillPerSecond(), maxKeys, stripes);
+            this.rejected = Counter.builder(RATE_LIMITED_METER_NAME)
+                .description(RATE_LIMITED_METER_DESCRIPTION)
+                .tag(RATE_LIMITED_METER_POLICY_DIMENSION, policy.getName())
+                .register(registry);
+        }
+
+        private boolean matches(String requestMethod, String requestPath) {
+            if (method != null && !method.equalsIgnoreCase(requestMethod)) {
+                return false;
+            }
+            return prefix
+                ? requestPath.startsWith(path) && (requestPath.length() == path.length() || requestPath.charAt(path.length()) == '/')
+                : requestPath.equals(path);
+        }
+    }
+
+    /**
+     * Request whose body is read up front, so its login can be known before it is handled.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        // the whole body, or null if it is too large to be a login, it is then limited by the IP address
+        private final byte[] body;
+
+        // the start of a body of unknown length found too large, read again before the rest of it
+        private final byte[] prefix;
+
+        private ServletInputStream inputStream;
+
+        private BufferedReader reader;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            if (request.getContentLengthLong() > MAX_LOGIN_BODY_BYTES) {
+                this.body = null;
+                this.prefix = new byte[0];
+            } else {
+                byte[] read = request.getInputStream().readNBytes(MAX_LOGIN_BODY_BYTES + 1);
+                this.body = read.length > MAX_LOGIN_BODY_BYTES ? null : read;
+                this.prefix = read.length > MAX_LOGIN_BODY_BYTES ? read : null;
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = body != null ? new ReplayingInputStream(body, null) : new ReplayingInputStream(prefix, super.getInputStream());
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+            }
+            return reader;
+        }
+    }
+
+    /**
+     * Stream of the bytes read up front, followed by the rest of the request body if any.
+     */
+    private static final class ReplayingInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream replayed;
+
+        private final ServletInputStream rest;
+
+        private ReplayingInputStream(byte[] replayed, ServletInputStream rest) {
+            this.replayed = new ByteArrayInputStream(replayed);
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = replayed.read();
+            return read >= 0 || rest == null ? read : rest.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read = replayed.read(b, off, len);
+            return read > 0 || rest == null ? read : rest.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return replayed.available() == 0 && (rest == null || rest.isFinished());
+        }
+
+        @Override
+        public boolean isReady() {
+            return replayed.available() > 0 || rest == null || rest.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            if (rest != null && !rest.isFinished()) {
+                // the replayed bytes are ready, so they are read before the rest by the first call of the listener
+                rest.setReadListener(readListener);
+                return;
+            }
+            try {
+                if (!isFinished()) {
+                    readListener.onDataAvailable();
+                }
+                if (isFinished()) {
+                    readListener.onAllDataRead();
+                }
+            } catch (IOException e) {
+                readListener.onError(e);
+            }
+        }
+    }
+}
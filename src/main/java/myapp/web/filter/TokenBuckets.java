@@ -0,0 +1,114 @@
+package myapp.web.filter;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets of the keys of a rate limit policy, holding up to a capacity of tokens and refilled at a constant rate.
+ * <p>
+ * A bucket is a single {@link AtomicLong}, the time at which it will be full again (the generic cell rate algorithm), so a
+ * token is taken with one compare-and-set, without locking. Buckets are kept in stripes, each holding at most its share of
+ * the keys; a stripe is only locked to add a key. A full stripe forgets the keys whose bucket is full again, which changes
+ * nothing as a forgotten key gets a full bucket again. A key still busy is never forgotten, or a client could reset the
+ * bucket of a throttled key by sending many new keys: while its stripe is full of busy keys, new keys share the overflow
+ * bucket of the stripe instead.
+ */
+final class TokenBuckets {
+
+    private final long intervalNanos;
+
+    private final long burstNanos;
+
+    private final Stripe[] stripes;
+
+    TokenBuckets(int capacity, double refillPerSecond, int maxKeys, int stripes) {
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000 / refillPerSecond));
+        this.burstNanos = intervalNanos * capacity;
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripes))];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe(Math.max(1, maxKeys / this.stripes.length));
+        }
+    }
+
+    /**
+     * Take a token from the bucket of a key.
+     *
+     * @param key the key.
+     * @param now the current time in nanoseconds, never negative.
+     * @return {@code 0} if a token was taken, else the nanoseconds until one is available.
+     */
+    long tryAcquire(String key, long now) {
+        AtomicLong bucket = bucket(key, now);
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return next - now - burstNanos;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        synchronized (stripe) {
+            bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                if (stripe.buckets.size() >= stripe.maxKeys && !stripe.evict(now)) {
+                    return stripe.overflow;
+                }
+                bucket = new AtomicLong();
+                stripe.buckets.put(key, bucket);
+                // full until a token is taken
+                stripe.nextEviction = Math.min(stripe.nextEviction, now);
+            }
+            return bucket;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private final AtomicLong overflow = new AtomicLong();
+
+        private final int maxKeys;
+
+        // no bucket is full again before, so no key can be forgotten
+        private long nextEviction;
+
+        Stripe(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+
+        /**
+         * Forget the keys whose bucket is full again.
+         *
+         * @return whether there is room for a new key.
+         */
+        private boolean evict(long now) {
+            if (now < nextEviction) {
+                return false;
+            }
+            long earliest = Long.MAX_VALUE;
+            for (Iterator<AtomicLong> iterator = buckets.values().iterator(); iterator.hasNext();) {
+                long full = iterator.next().get();
+                if (full <= now) {
+                    iterator.remove();
+                } else {
+                    earliest = Math.min(earliest, full);
+                }
+            }
+            nextEviction = earliest;
+            return buckets.size() < maxKeys;
+        }
+    }
+}
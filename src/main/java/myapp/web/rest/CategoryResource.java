@@ -5,20 +5,30 @@ import jakarta.validation.constraints.NotNull;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import myapp.domain.Category;
+import myapp.domain.Product;
 import myapp.repository.CategoryRepository;
 import myapp.service.CategoryService;
+import myapp.service.CategoryTreeService;
+import myapp.service.EntityTagService;
+import myapp.service.ProductService;
+import myapp.service.dto.CategoryNodeDTO;
 import myapp.web.rest.errors.BadRequestAlertException;
+import myapp.web.util.EntityTagUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -35,6 +45,12 @@ public class CategoryResource {
 
     private static final String ENTITY_NAME = "category";
 
+    private static final int DEFAULT_PRODUCTS_LIMIT = 20;
+
+    private static final int MAX_PRODUCTS_LIMIT = 1000;
+
+    private static final int MAX_CATEGORY_IDS = 100;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -42,9 +58,24 @@ public class CategoryResource {
 
     private final CategoryRepository categoryRepository;
 
-    public CategoryResource(CategoryService categoryService, CategoryRepository categoryRepository) {
+    private final CategoryTreeService categoryTreeService;
+
+    private final ProductService productService;
+
+    private final EntityTagService entityTagService;
+
+    public CategoryResource(
+        CategoryService categoryService,
+        CategoryRepository categoryRepository,
+        CategoryTreeService categoryTreeService,
+        ProductService productService,
+        EntityTagService entityTagService
+    ) {
         this.categoryService = categoryService;
         this.categoryRepository = categoryRepository;
+        this.categoryTreeService = categoryTreeService;
+        this.productService = productService;
+        this.entityTagService = entityTagService;
     }
 
     /**
@@ -71,15 +102,19 @@ public class CategoryResource {
      *
      * @param id the id of the category to save.
      * @param category the category to update.
+     * @param ifMatch the entity tag of the version of the category to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated category,
      * or with status {@code 400 (Bad Request)} if the category is not valid,
+     * or with status {@code 409 (Conflict)} if the category has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the category,
      * or with status {@code 500 (Internal Server Error)} if the category couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/{id}")
     public ResponseEntity<Category> updateCategory(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody Category category
+        @Valid @RequestBody Category category,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         LOG.debug("REST request to update Category : {}, {}", id, category);
         if (category.getId() == null) {
@@ -92,6 +127,7 @@ public class CategoryResource {
         if (!categoryRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(category::setVersion);
 
         category = categoryService.update(category);
         return ResponseEntity.ok()
@@ -104,16 +140,20 @@ public class CategoryResource {
      *
      * @param id the id of the category to save.
      * @param category the category to update.
+     * @param ifMatch the entity tag of the version of the category to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated category,
      * or with status {@code 400 (Bad Request)} if the category is not valid,
      * or with status {@code 404 (Not Found)} if the category is not found,
+     * or with status {@code 409 (Conflict)} if the category has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the category,
      * or with status {@code 500 (Internal Server Error)} if the category couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PatchMapping(value = "/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Category> partialUpdateCategory(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody Category category
+        @NotNull @RequestBody Category category,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         LOG.debug("REST request to partial update Category partially : {}, {}", id, category);
         if (category.getId() == null) {
@@ -126,6 +166,7 @@ public class CategoryResource {
         if (!categoryRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(category::setVersion);
 
         Optional<Category> result = categoryService.partialUpdate(category);
 
@@ -137,38 +178,125 @@ public class CategoryResource {
 
     /**
      * {@code GET  /categories} : get all the categories.
+     * <p>
+     * When eager loaded, the products of a category are the first ones in id order. A category that has more products than
+     * that is returned with {@code productsTruncated} set to {@code true}, all its products are returned by
+     * {@code GET /categories/:id}.
      *
      * @param pageable the pagination information.
      * @param eagerload flag to eager load entities from relationships (This is applicable for many-to-many).
+     * @param productsLimit the maximum number of products eager loaded per category, at most {@value #MAX_PRODUCTS_LIMIT}.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of categories in body.
      */
     @GetMapping("")
     public ResponseEntity<List<Category>> getAllCategories(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
-        @RequestParam(name = "eagerload", required = false, defaultValue = "true") boolean eagerload
+        @RequestParam(name = "eagerload", required = false, defaultValue = "true") boolean eagerload,
+        @RequestParam(name = "productsLimit", required = false, defaultValue = "" + DEFAULT_PRODUCTS_LIMIT) int productsLimit
     ) {
         LOG.debug("REST request to get a page of Categories");
         Page<Category> page;
         if (eagerload) {
-            page = categoryService.findAllWithEagerRelationships(pageable);
+            page = categoryService.findAllWithEagerRelationships(pageable, boundedProductsLimit(productsLimit));
         } else {
             page = categoryService.findAll(pageable);
         }
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        String eTag = EntityTagUtil.weakETag(page.stream().map(EntityTagService::tagOf), page.getTotalElements());
+        return ResponseEntity.ok().headers(headers).eTag(eTag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /categories/_product-ids?ids=:ids} : get the product ids of several categories.
+     *
+     * @param ids the ids of the categories, at most {@value #MAX_CATEGORY_IDS}.
+     * @param productsLimit the maximum number of product ids returned per category, at most {@value #MAX_PRODUCTS_LIMIT}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the product ids by category id in body,
+     * or with status {@code 400 (Bad Request)} if too many categories are requested.
+     */
+    @GetMapping("/_product-ids")
+    public ResponseEntity<Map<Long, List<Long>>> getCategoryProductIds(
+        @RequestParam("ids") Set<Long> ids,
+        @RequestParam(name = "productsLimit", required = false, defaultValue = "" + DEFAULT_PRODUCTS_LIMIT) int productsLimit
+    ) {
+        LOG.debug("REST request to get the product ids of Categories : {}", ids);
+        if (ids.size() > MAX_CATEGORY_IDS) {
+            throw new BadRequestAlertException("Too many categories requested", ENTITY_NAME, "toomanyids");
+        }
+        return ResponseEntity.ok(categoryService.findProductIds(ids, boundedProductsLimit(productsLimit)));
+    }
+
+    private static int boundedProductsLimit(int productsLimit) {
+        return Math.max(0, Math.min(productsLimit, MAX_PRODUCTS_LIMIT));
     }
 
     /**
      * {@code GET  /categories/:id} : get the "id" category.
      *
      * @param id the id of the category to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the category, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the entity tags of the versions of the category the client already has, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the category,
+     * or with status {@code 304 (Not Modified)} if the client already has the current version,
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategory(@PathVariable("id") Long id) {
+    public ResponseEntity<Category> getCategory(
+        @PathVariable("id") Long id,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         LOG.debug("REST request to get Category : {}", id);
-        Optional<Category> category = categoryService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(category);
+        Optional<String> knownETag = entityTagService.getTag(Category.class, id).map(EntityTagUtil::strongETag);
+        if (knownETag.isPresent() && EntityTagUtil.isNotModified(ifNoneMatch, knownETag.orElseThrow())) {
+            // answered without loading nor serializing the category
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(knownETag.orElseThrow()).build();
+        }
+        return categoryService
+            .findOne(id)
+            .map(category -> ResponseEntity.ok().eTag(EntityTagUtil.strongETag(EntityTagService.tagOf(category))).body(category))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * {@code GET  /categories/:id/subtree} : get the "id" category and all its descendants, as a tree.
+     *
+     * @param id the id of the root category.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the subtree, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{id}/subtree")
+    public ResponseEntity<CategoryNodeDTO> getCategorySubtree(@PathVariable("id") Long id) {
+        LOG.debug("REST request to get the subtree of Category : {}", id);
+        return ResponseUtil.wrapOrNotFound(categoryTreeService.getSubtree(id));
+    }
+
+    /**
+     * {@code GET  /categories/:id/products} : get the products of the "id" category.
+     *
+     * @param id the id of the category.
+     * @param deep flag to include the products of all the descendants of the category.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of products in body,
+     * or with status {@code 404 (Not Found)} if the category is not found.
+     */
+    @GetMapping("/{id}/products")
+    public ResponseEntity<List<Product>> getCategoryProducts(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "deep", required = false, defaultValue = "false") boolean deep,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable
+    ) {
+        LOG.debug("REST request to get a page of Products of Category : {}", id);
+        List<Long> categoryIds;
+        if (deep) {
+            categoryIds = categoryTreeService.getDescendantIds(id);
+        } else {
+            categoryIds = categoryRepository.existsById(id) ? List.of(id) : List.of();
+        }
+        if (categoryIds.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Page<Product> page = productService.findAllInCategories(categoryIds, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        String eTag = EntityTagUtil.weakETag(page.stream().map(EntityTagService::tagOf), page.getTotalElements());
+        return ResponseEntity.ok().headers(headers).eTag(eTag).body(page.getContent());
     }
 
     /**
@@ -8,17 +8,25 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import myapp.domain.Customer;
+import myapp.domain.WishList;
 import myapp.repository.CustomerRepository;
+import myapp.repository.WishListRepository;
 import myapp.service.CustomerService;
+import myapp.service.EntityTagService;
+import myapp.service.dto.CustomerOverviewDTO;
 import myapp.web.rest.errors.BadRequestAlertException;
+import myapp.web.util.EntityTagUtil;
+import myapp.web.util.KeysetPaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,9 +50,16 @@ public class CustomerResource {
 
     private final CustomerRepository customerRepository;
 
-    public CustomerResource(CustomerService customerService, CustomerRepository customerRepository) {
+    private final WishListRepository wishListRepository;
+
+    public CustomerResource(
+        CustomerService customerService,
+        CustomerRepository customerRepository,
+        WishListRepository wishListRepository
+    ) {
         this.customerService = customerService;
         this.customerRepository = customerRepository;
+        this.wishListRepository = wishListRepository;
     }
 
     /**
@@ -71,15 +86,19 @@ public class CustomerResource {
      *
      * @param id the id of the customer to save.
      * @param customer the customer to update.
+     * @param ifMatch the entity tag of the version of the customer to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated customer,
      * or with status {@code 400 (Bad Request)} if the customer is not valid,
+     * or with status {@code 409 (Conflict)} if the customer has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the customer,
      * or with status {@code 500 (Internal Server Error)} if the customer couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/{id}")
     public ResponseEntity<Customer> updateCustomer(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody Customer customer
+        @Valid @RequestBody Customer customer,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         LOG.debug("REST request to update Customer : {}, {}", id, customer);
         if (customer.getId() == null) {
@@ -92,6 +111,7 @@ public class CustomerResource {
         if (!customerRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(customer::setVersion);
 
         customer = customerService.update(customer);
         return ResponseEntity.ok()
@@ -104,16 +124,20 @@ public class CustomerResource {
      *
      * @param id the id of the customer to save.
      * @param customer the customer to update.
+     * @param ifMatch the entity tag of the version of the customer to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated customer,
      * or with status {@code 400 (Bad Request)} if the customer is not valid,
      * or with status {@code 404 (Not Found)} if the customer is not found,
+     * or with status {@code 409 (Conflict)} if the customer has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the customer,
      * or with status {@code 500 (Internal Server Error)} if the customer couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PatchMapping(value = "/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Customer> partialUpdateCustomer(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody Customer customer
+        @NotNull @RequestBody Customer customer,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         LOG.debug("REST request to partial update Customer partially : {}, {}", id, customer);
         if (customer.getId() == null) {
@@ -126,6 +150,7 @@ public class CustomerResource {
         if (!customerRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(customer::setVersion);
 
         Optional<Customer> result = customerService.partialUpdate(customer);
 
@@ -149,17 +174,86 @@ public class CustomerResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /customers?after=:cursor} : get a slice of the customers ordered by id, using keyset pagination.
+     *
+     * @param after the cursor from the {@code next} link of the previous slice, empty for the first slice.
+     * @param size the size of the slice.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of customers in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is not valid.
+     */
+    @GetMapping(value = "", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<Customer>> getAllCustomersAfter(
+        @RequestParam(KeysetPaginationUtil.AFTER_PARAMETER) String after,
+        @RequestParam(name = KeysetPaginationUtil.SIZE_PARAMETER, defaultValue = "" + KeysetPaginationUtil.DEFAULT_SIZE) int size
+    ) {
+        LOG.debug("REST request to get a slice of Customers after {}", after);
+        Long afterId;
+        try {
+            afterId = KeysetPaginationUtil.decodeCursor(after, 1).map(keys -> Long.valueOf(keys[0])).orElse(null);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+        }
+        int limit = KeysetPaginationUtil.boundedSize(size);
+        List<Customer> customers = customerService.findAllAfter(afterId, limit + 1);
+        String next = null;
+        if (customers.size() > limit) {
+            customers = customers.subList(0, limit);
+            Customer last = customers.get(limit - 1);
+            next = KeysetPaginationUtil.encodeCursor(last.getId());
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), next);
+        return ResponseEntity.ok().headers(headers).body(customers);
+    }
+
+    /**
+     * {@code GET  /customers/:id/wish-lists} : get the wishLists of the "id" customer.
+     *
+     * @param id the id of the customer.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of wishLists in body,
+     * or with status {@code 404 (Not Found)} if the customer is unknown.
+     */
+    @GetMapping("/{id}/wish-lists")
+    public ResponseEntity<List<WishList>> getCustomerWishLists(
+        @PathVariable("id") Long id,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable
+    ) {
+        LOG.debug("REST request to get a page of WishLists of Customer : {}", id);
+        if (!customerRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        Page<WishList> page = wishListRepository.findAllByCustomerId(id, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /customers/:id/overview} : get the overview of the "id" customer, with its addresses, its most recent
+     * orders and its wish lists.
+     *
+     * @param id the id of the customer.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the overview, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{id}/overview")
+    public ResponseEntity<CustomerOverviewDTO> getCustomerOverview(@PathVariable("id") Long id) {
+        LOG.debug("REST request to get the overview of Customer : {}", id);
+        return ResponseUtil.wrapOrNotFound(customerService.findOverview(id));
+    }
+
     /**
      * {@code GET  /customers/:id} : get the "id" customer.
      *
      * @param id the id of the customer to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the customer, or with status {@code 404 (Not Found)}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the customer and its entity tag, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/{id}")
     public ResponseEntity<Customer> getCustomer(@PathVariable("id") Long id) {
         LOG.debug("REST request to get Customer : {}", id);
-        Optional<Customer> customer = customerService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(customer);
+        return customerService
+            .findOne(id)
+            .map(customer -> ResponseEntity.ok().eTag(EntityTagUtil.strongETag(EntityTagService.tagOf(customer))).body(customer))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     /**
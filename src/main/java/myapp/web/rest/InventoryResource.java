@@ -0,0 +1,92 @@
+package myapp.web.rest;
+
+import jakarta.validation.Valid;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.UUID;
+import myapp.service.InventoryService;
+import myapp.service.dto.InventoryReservationDTO;
+import myapp.web.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for reserving the stock of {@link myapp.domain.Product}.
+ */
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InventoryResource.class);
+
+    private static final String ENTITY_NAME = "inventoryReservation";
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final InventoryService inventoryService;
+
+    public InventoryResource(InventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+    }
+
+    /**
+     * {@code POST  /inventory/reservations} : Reserve stock of a product.
+     *
+     * @param reservation the product and quantity to reserve.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new reservation,
+     * or with status {@code 400 (Bad Request)} if the reservation has already an ID,
+     * or with status {@code 409 (Conflict)} if there is not enough stock left.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     */
+    @PostMapping("/reservations")
+    public ResponseEntity<InventoryReservationDTO> createReservation(@Valid @RequestBody InventoryReservationDTO reservation)
+        throws URISyntaxException {
+        LOG.debug("REST request to save InventoryReservation : {}", reservation);
+        if (reservation.id() != null) {
+            throw new BadRequestAlertException("A new inventoryReservation cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        InventoryReservationDTO result = inventoryService.reserve(reservation.productId(), reservation.quantity());
+        return ResponseEntity.created(new URI("/api/inventory/reservations/" + result.id()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.id().toString()))
+            .body(result);
+    }
+
+    /**
+     * {@code POST  /inventory/reservations/:id/commit} : Commit the "id" reservation.
+     *
+     * @param id the id of the reservation to commit.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the committed reservation,
+     * or with status {@code 404 (Not Found)} if the reservation is unknown or has expired.
+     */
+    @PostMapping("/reservations/{id}/commit")
+    public ResponseEntity<InventoryReservationDTO> commitReservation(@PathVariable("id") UUID id) {
+        LOG.debug("REST request to commit InventoryReservation : {}", id);
+        return ResponseUtil.wrapOrNotFound(
+            inventoryService.commit(id),
+            HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, id.toString())
+        );
+    }
+
+    /**
+     * {@code DELETE  /inventory/reservations/:id} : Release the "id" reservation.
+     *
+     * @param id the id of the reservation to release.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}, or with status {@code 404 (Not Found)}.
+     */
+    @DeleteMapping("/reservations/{id}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable("id") UUID id) {
+        LOG.debug("REST request to release InventoryReservation : {}", id);
+        if (inventoryService.release(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent()
+            .headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString()))
+            .build();
+    }
+}
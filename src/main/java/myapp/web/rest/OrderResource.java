@@ -4,21 +4,40 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import myapp.domain.Order;
+import myapp.domain.enumeration.OrderStatus;
 import myapp.repository.OrderRepository;
+import myapp.service.EntityTagService;
+import myapp.service.ExportService;
+import myapp.service.FileFormat;
+import myapp.service.IdempotencyService;
 import myapp.service.OrderService;
+import myapp.service.OrderStatsService;
+import myapp.service.dto.CustomerOrderStatsDTO;
+import myapp.service.dto.OrderStatsDTO;
 import myapp.web.rest.errors.BadRequestAlertException;
+import myapp.web.util.EntityTagUtil;
+import myapp.web.util.KeysetPaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -42,28 +61,55 @@ public class OrderResource {
 
     private final OrderRepository orderRepository;
 
-    public OrderResource(OrderService orderService, OrderRepository orderRepository) {
+    private final ExportService exportService;
+
+    private final OrderStatsService orderStatsService;
+
+    private final IdempotencyService idempotencyService;
+
+    public OrderResource(
+        OrderService orderService,
+        OrderRepository orderRepository,
+        ExportService exportService,
+        OrderStatsService orderStatsService,
+        IdempotencyService idempotencyService
+    ) {
         this.orderService = orderService;
         this.orderRepository = orderRepository;
+        this.exportService = exportService;
+        this.orderStatsService = orderStatsService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
      * {@code POST  /orders} : Create a new order.
      *
+     * <p>
+     * A request sent again with the same {@code Idempotency-Key} header gets the response to the first one, without creating
+     * another order.
+     *
      * @param order the order to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new order, or with status {@code 400 (Bad Request)} if the order has already an ID.
+     * @param idempotencyKey the key identifying retries of the request, if any.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new order, or with status {@code 400 (Bad Request)} if the order has already an ID,
+     * or with status {@code 409 (Conflict)} if a request with the same key is still in progress,
+     * or with status {@code 422 (Unprocessable Entity)} if the key has already been used for a different order.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("")
-    public ResponseEntity<Order> createOrder(@Valid @RequestBody Order order) throws URISyntaxException {
+    public ResponseEntity<Order> createOrder(
+        @Valid @RequestBody Order order,
+        @RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) throws URISyntaxException {
         LOG.debug("REST request to save Order : {}", order);
         if (order.getId() != null) {
             throw new BadRequestAlertException("A new order cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        order = orderService.save(order);
-        return ResponseEntity.created(new URI("/api/orders/" + order.getId()))
-            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, order.getId().toString()))
-            .body(order);
+        return idempotencyService.execute(ENTITY_NAME, idempotencyKey, order, Order.class, () -> {
+            Order result = orderService.save(order);
+            return ResponseEntity.created(new URI("/api/orders/" + result.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+                .body(result);
+        });
     }
 
     /**
@@ -71,14 +117,21 @@ public class OrderResource {
      *
      * @param id the id of the order to save.
      * @param order the order to update.
+     * @param ifMatch the entity tag of the version of the order to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated order,
      * or with status {@code 400 (Bad Request)} if the order is not valid,
+     * or with status {@code 409 (Conflict)} if the order cannot go from its current status to the new one,
+     * or with status {@code 409 (Conflict)} if the order has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the order,
      * or with status {@code 500 (Internal Server Error)} if the order couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Order> updateOrder(@PathVariable(value = "id", required = false) final Long id, @Valid @RequestBody Order order)
-        throws URISyntaxException {
+    public ResponseEntity<Order> updateOrder(
+        @PathVariable(value = "id", required = false) final Long id,
+        @Valid @RequestBody Order order,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
+    ) throws URISyntaxException {
         LOG.debug("REST request to update Order : {}, {}", id, order);
         if (order.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
@@ -90,6 +143,7 @@ public class OrderResource {
         if (!orderRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(order::setVersion);
 
         order = orderService.update(order);
         return ResponseEntity.ok()
@@ -102,16 +156,21 @@ public class OrderResource {
      *
      * @param id the id of the order to save.
      * @param order the order to update.
+     * @param ifMatch the entity tag of the version of the order to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated order,
      * or with status {@code 400 (Bad Request)} if the order is not valid,
      * or with status {@code 404 (Not Found)} if the order is not found,
+     * or with status {@code 409 (Conflict)} if the order cannot go from its current status to the new one,
+     * or with status {@code 409 (Conflict)} if the order has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the order,
      * or with status {@code 500 (Internal Server Error)} if the order couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PatchMapping(value = "/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Order> partialUpdateOrder(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody Order order
+        @NotNull @RequestBody Order order,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         LOG.debug("REST request to partial update Order partially : {}, {}", id, order);
         if (order.getId() == null) {
@@ -124,6 +183,7 @@ public class OrderResource {
         if (!orderRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(order::setVersion);
 
         Optional<Order> result = orderService.partialUpdate(order);
 
@@ -137,27 +197,141 @@ public class OrderResource {
      * {@code GET  /orders} : get all the orders.
      *
      * @param pageable the pagination information.
+     * @param status the status of the orders, if any. The orders are then ordered by order date and id, whatever the sort.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of orders in body.
      */
     @GetMapping("")
-    public ResponseEntity<List<Order>> getAllOrders(@org.springdoc.core.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<Order>> getAllOrders(
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        @RequestParam(name = "status", required = false) OrderStatus status
+    ) {
         LOG.debug("REST request to get a page of Orders");
-        Page<Order> page = orderService.findAll(pageable);
+        Page<Order> page = status == null ? orderService.findAll(pageable) : orderService.findAllByStatus(status, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /orders?after=:cursor} : get a slice of the orders ordered by order date and id, using keyset pagination.
+     *
+     * @param after the cursor from the {@code next} link of the previous slice, empty for the first slice.
+     * @param size the size of the slice.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of orders in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is not valid.
+     */
+    @GetMapping(value = "", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<Order>> getAllOrdersAfter(
+        @RequestParam(KeysetPaginationUtil.AFTER_PARAMETER) String after,
+        @RequestParam(name = KeysetPaginationUtil.SIZE_PARAMETER, defaultValue = "" + KeysetPaginationUtil.DEFAULT_SIZE) int size
+    ) {
+        LOG.debug("REST request to get a slice of Orders after {}", after);
+        Instant afterOrderDate = null;
+        Long afterId = null;
+        try {
+            Optional<String[]> keys = KeysetPaginationUtil.decodeCursor(after, 2);
+            if (keys.isPresent()) {
+                afterOrderDate = Instant.parse(keys.orElseThrow()[0]);
+                afterId = Long.valueOf(keys.orElseThrow()[1]);
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+        }
+        int limit = KeysetPaginationUtil.boundedSize(size);
+        List<Order> orders = orderService.findAllAfter(afterOrderDate, afterId, limit + 1);
+        String next = null;
+        if (orders.size() > limit) {
+            orders = orders.subList(0, limit);
+            Order last = orders.get(limit - 1);
+            next = KeysetPaginationUtil.encodeCursor(last.getOrderDate(), last.getId());
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), next);
+        return ResponseEntity.ok().headers(headers).body(orders);
+    }
+
+    /**
+     * {@code GET  /orders/_export} : export the orders, in id order.
+     * <p>
+     * The orders are streamed as they are read from the database, so the export is not limited in size.
+     *
+     * @param format the format of the export, {@code ndjson} or {@code csv}.
+     * @param from the lowest order date included, if any.
+     * @param to the highest order date excluded, if any.
+     * @param status the status of the orders, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the orders in body,
+     * or with status {@code 400 (Bad Request)} if the format is not supported.
+     */
+    @GetMapping("/_export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+        @RequestParam(name = "format", defaultValue = "ndjson") String format,
+        @RequestParam(name = "from", required = false) Instant from,
+        @RequestParam(name = "to", required = false) Instant to,
+        @RequestParam(name = "status", required = false) OrderStatus status
+    ) {
+        LOG.debug("REST request to export Orders as {}", format);
+        FileFormat fileFormat = FileFormat.fromExtension(format).orElseThrow(() ->
+            new BadRequestAlertException("Unsupported export format", ENTITY_NAME, "formatinvalid")
+        );
+        StreamingResponseBody body = output -> exportService.exportOrders(from, to, status, fileFormat, output);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+            .header(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("orders." + fileFormat.getExtension()).build().toString()
+            )
+            .body(body);
+    }
+
+    /**
+     * {@code GET  /orders/_stats} : get the order count, total amount and shipping cost of the orders, by period.
+     *
+     * @param from the first day (UTC) included, 30 days before {@code to} by default.
+     * @param to the last day (UTC) excluded, tomorrow by default.
+     * @param granularity the length of the periods, {@code DAY}, {@code WEEK} or {@code MONTH}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the stats of each period with orders in body,
+     * or with status {@code 400 (Bad Request)} if {@code from} is not before {@code to}.
+     */
+    @GetMapping("/_stats")
+    public ResponseEntity<List<OrderStatsDTO>> getOrderStats(
+        @RequestParam(name = "from", required = false) LocalDate from,
+        @RequestParam(name = "to", required = false) LocalDate to,
+        @RequestParam(name = "granularity", defaultValue = "DAY") OrderStatsService.Granularity granularity
+    ) {
+        LOG.debug("REST request to get Order stats from {} to {} by {}", from, to, granularity);
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC).plusDays(1);
+        LocalDate start = from != null ? from : end.minusDays(30);
+        if (!start.isBefore(end)) {
+            throw new BadRequestAlertException("Invalid date range", ENTITY_NAME, "daterangeinvalid");
+        }
+        return ResponseEntity.ok(orderStatsService.getStats(start, end, granularity));
+    }
+
+    /**
+     * {@code GET  /orders/_stats/customers/:customerId} : get the order count, total amount and shipping cost of the orders
+     * of the "customerId" customer.
+     *
+     * @param customerId the id of the customer.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the stats,
+     * or with status {@code 404 (Not Found)} if the customer has no order.
+     */
+    @GetMapping("/_stats/customers/{customerId}")
+    public ResponseEntity<CustomerOrderStatsDTO> getCustomerOrderStats(@PathVariable("customerId") Long customerId) {
+        LOG.debug("REST request to get Order stats of Customer : {}", customerId);
+        return ResponseUtil.wrapOrNotFound(orderStatsService.getCustomerStats(customerId));
+    }
+
     /**
      * {@code GET  /orders/:id} : get the "id" order.
      *
      * @param id the id of the order to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the order, or with status {@code 404 (Not Found)}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the order and its entity tag, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/{id}")
     public ResponseEntity<Order> getOrder(@PathVariable("id") Long id) {
         LOG.debug("REST request to get Order : {}", id);
-        Optional<Order> order = orderService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(order);
+        return orderService
+            .findOne(id)
+            .map(order -> ResponseEntity.ok().eTag(EntityTagUtil.strongETag(EntityTagService.tagOf(order))).body(order))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     /**
@@ -1,24 +1,42 @@
 package myapp.web.rest;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import myapp.domain.Product;
+import myapp.domain.enumeration.ProductStatus;
 import myapp.repository.ProductRepository;
+import myapp.service.EntityTagService;
+import myapp.service.ExportService;
+import myapp.service.FileFormat;
+import myapp.service.IdempotencyService;
+import myapp.service.ProductImportService;
+import myapp.service.ProductSearchService;
 import myapp.service.ProductService;
+import myapp.service.dto.ProductImportReportDTO;
 import myapp.web.rest.errors.BadRequestAlertException;
+import myapp.web.util.EntityTagUtil;
+import myapp.web.util.KeysetPaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -35,6 +53,10 @@ public class ProductResource {
 
     private static final String ENTITY_NAME = "product";
 
+    private static final String CSV_MEDIA_TYPE = "text/csv";
+
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -42,28 +64,80 @@ public class ProductResource {
 
     private final ProductRepository productRepository;
 
-    public ProductResource(ProductService productService, ProductRepository productRepository) {
+    private final ProductSearchService productSearchService;
+
+    private final ProductImportService productImportService;
+
+    private final ExportService exportService;
+
+    private final IdempotencyService idempotencyService;
+
+    private final EntityTagService entityTagService;
+
+    public ProductResource(
+        ProductService productService,
+        ProductRepository productRepository,
+        ProductSearchService productSearchService,
+        ProductImportService productImportService,
+        ExportService exportService,
+        IdempotencyService idempotencyService,
+        EntityTagService entityTagService
+    ) {
         this.productService = productService;
         this.productRepository = productRepository;
+        this.productSearchService = productSearchService;
+        this.productImportService = productImportService;
+        this.exportService = exportService;
+        this.idempotencyService = idempotencyService;
+        this.entityTagService = entityTagService;
     }
 
     /**
      * {@code POST  /products} : Create a new product.
      *
+     * <p>
+     * A request sent again with the same {@code Idempotency-Key} header gets the response to the first one, without creating
+     * another product.
+     *
      * @param product the product to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new product, or with status {@code 400 (Bad Request)} if the product has already an ID.
+     * @param idempotencyKey the key identifying retries of the request, if any.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new product, or with status {@code 400 (Bad Request)} if the product has already an ID,
+     * or with status {@code 409 (Conflict)} if a request with the same key is still in progress,
+     * or with status {@code 422 (Unprocessable Entity)} if the key has already been used for a different product.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("")
-    public ResponseEntity<Product> createProduct(@Valid @RequestBody Product product) throws URISyntaxException {
+    public ResponseEntity<Product> createProduct(
+        @Valid @RequestBody Product product,
+        @RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) throws URISyntaxException {
         LOG.debug("REST request to save Product : {}", product);
         if (product.getId() != null) {
             throw new BadRequestAlertException("A new product cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        product = productService.save(product);
-        return ResponseEntity.created(new URI("/api/products/" + product.getId()))
-            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, product.getId().toString()))
-            .body(product);
+        return idempotencyService.execute(ENTITY_NAME, idempotencyKey, product, Product.class, () -> {
+            Product result = productService.save(product);
+            return ResponseEntity.created(new URI("/api/products/" + result.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+                .body(result);
+        });
+    }
+
+    /**
+     * {@code POST  /products/_bulk} : Import many new products at once.
+     * <p>
+     * The body is either CSV with a header row naming the product fields, or NDJSON with one product per line.
+     *
+     * @param request the request, its body is streamed.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the import report, listing the rejected rows.
+     * @throws IOException if the body cannot be read.
+     */
+    @PostMapping(value = "/_bulk", consumes = { CSV_MEDIA_TYPE, NDJSON_MEDIA_TYPE })
+    public ResponseEntity<ProductImportReportDTO> importProducts(HttpServletRequest request) throws IOException {
+        LOG.debug("REST request to import Products as {}", request.getContentType());
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        FileFormat format = contentType.isCompatibleWith(MediaType.parseMediaType(CSV_MEDIA_TYPE)) ? FileFormat.CSV : FileFormat.NDJSON;
+        return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), format));
     }
 
     /**
@@ -71,15 +145,19 @@ public class ProductResource {
      *
      * @param id the id of the product to save.
      * @param product the product to update.
+     * @param ifMatch the entity tag of the version of the product to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated product,
      * or with status {@code 400 (Bad Request)} if the product is not valid,
+     * or with status {@code 409 (Conflict)} if the product has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the product,
      * or with status {@code 500 (Internal Server Error)} if the product couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(
         @PathVariable(value = "id", required = false) final Long id,
-        @Valid @RequestBody Product product
+        @Valid @RequestBody Product product,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         LOG.debug("REST request to update Product : {}, {}", id, product);
         if (product.getId() == null) {
@@ -92,6 +170,7 @@ public class ProductResource {
         if (!productRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(product::setVersion);
 
         product = productService.update(product);
         return ResponseEntity.ok()
@@ -104,16 +183,20 @@ public class ProductResource {
      *
      * @param id the id of the product to save.
      * @param product the product to update.
+     * @param ifMatch the entity tag of the version of the product to update, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated product,
      * or with status {@code 400 (Bad Request)} if the product is not valid,
      * or with status {@code 404 (Not Found)} if the product is not found,
+     * or with status {@code 409 (Conflict)} if the product has been updated since the given version,
+     * or with status {@code 412 (Precondition Failed)} if the {@code If-Match} header cannot match the product,
      * or with status {@code 500 (Internal Server Error)} if the product couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PatchMapping(value = "/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Product> partialUpdateProduct(
         @PathVariable(value = "id", required = false) final Long id,
-        @NotNull @RequestBody Product product
+        @NotNull @RequestBody Product product,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws URISyntaxException {
         LOG.debug("REST request to partial update Product partially : {}, {}", id, product);
         if (product.getId() == null) {
@@ -126,6 +209,7 @@ public class ProductResource {
         if (!productRepository.existsById(id)) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        EntityTagUtil.requiredVersion(ifMatch, id).ifPresent(product::setVersion);
 
         Optional<Product> result = productService.partialUpdate(product);
 
@@ -146,20 +230,119 @@ public class ProductResource {
         LOG.debug("REST request to get a page of Products");
         Page<Product> page = productService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        String eTag = EntityTagUtil.weakETag(page.stream().map(EntityTagService::tagOf), page.getTotalElements());
+        return ResponseEntity.ok().headers(headers).eTag(eTag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /products/_search?q=:query} : search the products by title, keywords and description.
+     *
+     * @param query the free-text query, every term must match.
+     * @param pageable the pagination information.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of matching products in body, best matches first.
+     */
+    @GetMapping("/_search")
+    public ResponseEntity<List<Product>> searchProducts(
+        @RequestParam("q") String query,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable
+    ) {
+        LOG.debug("REST request to search for a page of Products for query {}", query);
+        Page<Product> page = productSearchService.search(query, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        String eTag = EntityTagUtil.weakETag(page.stream().map(EntityTagService::tagOf), page.getTotalElements());
+        return ResponseEntity.ok().headers(headers).eTag(eTag).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /products?after=:cursor} : get a slice of the products ordered by id, using keyset pagination.
+     *
+     * @param after the cursor from the {@code next} link of the previous slice, empty for the first slice.
+     * @param size the size of the slice.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of products in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is not valid.
+     */
+    @GetMapping(value = "", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<Product>> getAllProductsAfter(
+        @RequestParam(KeysetPaginationUtil.AFTER_PARAMETER) String after,
+        @RequestParam(name = KeysetPaginationUtil.SIZE_PARAMETER, defaultValue = "" + KeysetPaginationUtil.DEFAULT_SIZE) int size
+    ) {
+        LOG.debug("REST request to get a slice of Products after {}", after);
+        Long afterId;
+        try {
+            afterId = KeysetPaginationUtil.decodeCursor(after, 1).map(keys -> Long.valueOf(keys[0])).orElse(null);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+        }
+        int limit = KeysetPaginationUtil.boundedSize(size);
+        List<Product> products = productService.findAllAfter(afterId, limit + 1);
+        String next = null;
+        if (products.size() > limit) {
+            products = products.subList(0, limit);
+            Product last = products.get(limit - 1);
+            next = KeysetPaginationUtil.encodeCursor(last.getId());
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), next);
+        String eTag = EntityTagUtil.weakETag(products.stream().map(EntityTagService::tagOf), next);
+        return ResponseEntity.ok().headers(headers).eTag(eTag).body(products);
+    }
+
+    /**
+     * {@code GET  /products/_export} : export the products, in id order.
+     * <p>
+     * The products are streamed as they are read from the database, so the export is not limited in size.
+     *
+     * @param format the format of the export, {@code ndjson} or {@code csv}.
+     * @param from the lowest date added included, if any.
+     * @param to the highest date added excluded, if any.
+     * @param status the status of the products, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the products in body,
+     * or with status {@code 400 (Bad Request)} if the format is not supported.
+     */
+    @GetMapping("/_export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+        @RequestParam(name = "format", defaultValue = "ndjson") String format,
+        @RequestParam(name = "from", required = false) Instant from,
+        @RequestParam(name = "to", required = false) Instant to,
+        @RequestParam(name = "status", required = false) ProductStatus status
+    ) {
+        LOG.debug("REST request to export Products as {}", format);
+        FileFormat fileFormat = FileFormat.fromExtension(format).orElseThrow(() ->
+            new BadRequestAlertException("Unsupported export format", ENTITY_NAME, "formatinvalid")
+        );
+        StreamingResponseBody body = output -> exportService.exportProducts(from, to, status, fileFormat, output);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+            .header(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("products." + fileFormat.getExtension()).build().toString()
+            )
+            .body(body);
     }
 
     /**
      * {@code GET  /products/:id} : get the "id" product.
      *
      * @param id the id of the product to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the product, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the entity tags of the versions of the product the client already has, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the product,
+     * or with status {@code 304 (Not Modified)} if the client already has the current version,
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProduct(@PathVariable("id") Long id) {
+    public ResponseEntity<Product> getProduct(
+        @PathVariable("id") Long id,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         LOG.debug("REST request to get Product : {}", id);
-        Optional<Product> product = productService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(product);
+        Optional<String> knownETag = entityTagService.getTag(Product.class, id).map(EntityTagUtil::strongETag);
+        if (knownETag.isPresent() && EntityTagUtil.isNotModified(ifNoneMatch, knownETag.orElseThrow())) {
+            // answered without loading nor serializing the product
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(knownETag.orElseThrow()).build();
+        }
+        return productService
+            .findOne(id)
+            .map(product -> ResponseEntity.ok().eTag(EntityTagUtil.strongETag(EntityTagService.tagOf(product))).body(product))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     /**
@@ -9,14 +9,26 @@ import java.util.Objects;
 import java.util.Optional;
 import myapp.domain.WishList;
 import myapp.repository.WishListRepository;
+import myapp.service.ExportService;
+import myapp.service.FileFormat;
 import myapp.web.rest.errors.BadRequestAlertException;
+import myapp.web.util.KeysetPaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.PaginationUtil;
 import tech.jhipster.web.util.ResponseUtil;
 
 /**
@@ -36,8 +48,11 @@ public class WishListResource {
 
     private final WishListRepository wishListRepository;
 
-    public WishListResource(WishListRepository wishListRepository) {
+    private final ExportService exportService;
+
+    public WishListResource(WishListRepository wishListRepository, ExportService exportService) {
         this.wishListRepository = wishListRepository;
+        this.exportService = exportService;
     }
 
     /**
@@ -143,12 +158,79 @@ public class WishListResource {
     /**
      * {@code GET  /wish-lists} : get all the wishLists.
      *
+     * @param pageable the pagination information.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of wishLists in body.
      */
     @GetMapping("")
-    public List<WishList> getAllWishLists() {
-        LOG.debug("REST request to get all WishLists");
-        return wishListRepository.findAll();
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<WishList>> getAllWishLists(@org.springdoc.core.annotations.ParameterObject Pageable pageable) {
+        LOG.debug("REST request to get a page of WishLists");
+        Page<WishList> page = wishListRepository.findAll(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /wish-lists?after=:cursor} : get a slice of the wishLists ordered by id, using keyset pagination.
+     *
+     * @param after the cursor from the {@code next} link of the previous slice, empty for the first slice.
+     * @param size the size of the slice.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of wishLists in body,
+     * or with status {@code 400 (Bad Request)} if the cursor is not valid.
+     */
+    @GetMapping(value = "", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<WishList>> getAllWishListsAfter(
+        @RequestParam(KeysetPaginationUtil.AFTER_PARAMETER) String after,
+        @RequestParam(name = KeysetPaginationUtil.SIZE_PARAMETER, defaultValue = "" + KeysetPaginationUtil.DEFAULT_SIZE) int size
+    ) {
+        LOG.debug("REST request to get a slice of WishLists after {}", after);
+        Long afterId;
+        try {
+            afterId = KeysetPaginationUtil.decodeCursor(after, 1).map(keys -> Long.valueOf(keys[0])).orElse(null);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "cursorinvalid");
+        }
+        int limit = KeysetPaginationUtil.boundedSize(size);
+        List<WishList> wishLists = afterId == null
+            ? wishListRepository.findAllByOrderByIdAsc(Limit.of(limit + 1))
+            : wishListRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit + 1));
+        String next = null;
+        if (wishLists.size() > limit) {
+            wishLists = wishLists.subList(0, limit);
+            next = KeysetPaginationUtil.encodeCursor(wishLists.get(limit - 1).getId());
+        }
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), next);
+        return ResponseEntity.ok().headers(headers).body(wishLists);
+    }
+
+    /**
+     * {@code GET  /wish-lists/_export} : export the wishLists, in id order.
+     * <p>
+     * The wishLists are streamed as they are read from the database, so the export is not limited in size.
+     *
+     * @param format the format of the export, {@code ndjson} or {@code csv}.
+     * @param customerId the id of the customer owning the wishLists, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the wishLists in body,
+     * or with status {@code 400 (Bad Request)} if the format is not supported.
+     */
+    @GetMapping("/_export")
+    public ResponseEntity<StreamingResponseBody> exportWishLists(
+        @RequestParam(name = "format", defaultValue = "ndjson") String format,
+        @RequestParam(name = "customerId", required = false) Long customerId
+    ) {
+        LOG.debug("REST request to export WishLists as {}", format);
+        FileFormat fileFormat = FileFormat.fromExtension(format).orElseThrow(() ->
+            new BadRequestAlertException("Unsupported export format", ENTITY_NAME, "formatinvalid")
+        );
+        StreamingResponseBody body = output -> exportService.exportWishLists(customerId, fileFormat, output);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+            .header(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("wish-lists." + fileFormat.getExtension()).build().toString()
+            )
+            .body(body);
     }
 
     /**
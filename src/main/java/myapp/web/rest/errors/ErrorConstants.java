@@ -12,6 +12,12 @@ public final class ErrorConstants {
     public static final URI INVALID_PASSWORD_TYPE = URI.create(PROBLEM_BASE_URL + "/invalid-password");
     public static final URI EMAIL_ALREADY_USED_TYPE = URI.create(PROBLEM_BASE_URL + "/email-already-used");
     public static final URI LOGIN_ALREADY_USED_TYPE = URI.create(PROBLEM_BASE_URL + "/login-already-used");
+    public static final URI INSUFFICIENT_STOCK_TYPE = URI.create(PROBLEM_BASE_URL + "/insufficient-stock");
+    public static final URI INVALID_ORDER_STATUS_TRANSITION_TYPE = URI.create(PROBLEM_BASE_URL + "/invalid-order-status-transition");
+    public static final URI IDEMPOTENCY_KEY_IN_USE_TYPE = URI.create(PROBLEM_BASE_URL + "/idempotency-key-in-use");
+    public static final URI IDEMPOTENCY_KEY_REUSED_TYPE = URI.create(PROBLEM_BASE_URL + "/idempotency-key-reused");
+    public static final URI PASSWORD_HASHING_BUSY_TYPE = URI.create(PROBLEM_BASE_URL + "/password-hashing-busy");
+    public static final URI RATE_LIMITED_TYPE = URI.create(PROBLEM_BASE_URL + "/rate-limited");
 
     private ErrorConstants() {}
 }
@@ -86,6 +86,20 @@ public class ExceptionTranslator extends ResponseEntityExceptionHandler {
         if (ex instanceof myapp.service.EmailAlreadyUsedException) return (ProblemDetailWithCause) new EmailAlreadyUsedException()
             .getBody();
         if (ex instanceof myapp.service.InvalidPasswordException) return (ProblemDetailWithCause) new InvalidPasswordException().getBody();
+        if (ex instanceof myapp.service.InsufficientStockException) return (ProblemDetailWithCause) new InsufficientStockException()
+            .getBody();
+        if (
+            ex instanceof myapp.service.InvalidOrderStatusTransitionException
+        ) return (ProblemDetailWithCause) new InvalidOrderStatusTransitionException(ex.getMessage()).getBody();
+        if (ex instanceof myapp.service.IdempotencyKeyInUseException) return (ProblemDetailWithCause) new IdempotencyKeyInUseException(
+            ex.getMessage()
+        ).getBody();
+        if (ex instanceof myapp.service.IdempotencyKeyReusedException) return (ProblemDetailWithCause) new IdempotencyKeyReusedException(
+            ex.getMessage()
+        ).getBody();
+        if (ex instanceof myapp.security.PasswordHashingBusyException) return (ProblemDetailWithCause) new PasswordHashingBusyException(
+            ex.getMessage()
+        ).getBody();
 
         if (
             ex instanceof ErrorResponseException exp && exp.getBody() instanceof ProblemDetailWithCause problemDetailWithCause
@@ -218,6 +232,11 @@ public class ExceptionTranslator extends ResponseEntityExceptionHandler {
     }
 
     private HttpHeaders buildHeaders(Throwable err) {
+        if (err instanceof myapp.security.PasswordHashingBusyException passwordHashingBusyException) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashingBusyException.getRetryAfterSeconds()));
+            return headers;
+        }
         return err instanceof BadRequestAlertException badRequestAlertException
             ? HeaderUtil.createFailureAlert(
                 applicationName,
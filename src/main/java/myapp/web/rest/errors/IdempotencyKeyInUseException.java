@@ -0,0 +1,24 @@
+package myapp.web.rest.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.ErrorResponseException;
+import tech.jhipster.web.rest.errors.ProblemDetailWithCause.ProblemDetailWithCauseBuilder;
+
+@SuppressWarnings("java:S110") // Inheritance tree of classes should not be too deep
+public class IdempotencyKeyInUseException extends ErrorResponseException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyInUseException(String detail) {
+        super(
+            HttpStatus.CONFLICT,
+            ProblemDetailWithCauseBuilder.instance()
+                .withStatus(HttpStatus.CONFLICT.value())
+                .withType(ErrorConstants.IDEMPOTENCY_KEY_IN_USE_TYPE)
+                .withTitle("Idempotency key in use")
+                .withDetail(detail)
+                .build(),
+            null
+        );
+    }
+}
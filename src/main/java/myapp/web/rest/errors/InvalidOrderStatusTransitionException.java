@@ -0,0 +1,24 @@
+package myapp.web.rest.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.ErrorResponseException;
+import tech.jhipster.web.rest.errors.ProblemDetailWithCause.ProblemDetailWithCauseBuilder;
+
+@SuppressWarnings("java:S110") // Inheritance tree of classes should not be too deep
+public class InvalidOrderStatusTransitionException extends ErrorResponseException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidOrderStatusTransitionException(String detail) {
+        super(
+            HttpStatus.CONFLICT,
+            ProblemDetailWithCauseBuilder.instance()
+                .withStatus(HttpStatus.CONFLICT.value())
+                .withType(ErrorConstants.INVALID_ORDER_STATUS_TRANSITION_TYPE)
+                .withTitle("Invalid order status transition")
+                .withDetail(detail)
+                .build(),
+            null
+        );
+    }
+}
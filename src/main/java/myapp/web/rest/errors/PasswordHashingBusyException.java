@@ -0,0 +1,24 @@
+package myapp.web.rest.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.ErrorResponseException;
+import tech.jhipster.web.rest.errors.ProblemDetailWithCause.ProblemDetailWithCauseBuilder;
+
+@SuppressWarnings("java:S110") // Inheritance tree of classes should not be too deep
+public class PasswordHashingBusyException extends ErrorResponseException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PasswordHashingBusyException(String detail) {
+        super(
+            HttpStatus.SERVICE_UNAVAILABLE,
+            ProblemDetailWithCauseBuilder.instance()
+                .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .withType(ErrorConstants.PASSWORD_HASHING_BUSY_TYPE)
+                .withTitle("Too many password checks in progress")
+                .withDetail(detail)
+                .build(),
+            null
+        );
+    }
+}
@@ -0,0 +1,109 @@
+package myapp.web.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Utility class for the entity tags ({@code ETag} header) of responses.
+ * <p>
+ * A single entity gets a strong entity tag, made of its tag as known by {@link myapp.service.EntityTagService}. A list
+ * gets a weak entity tag, hashing the tags of its elements and whatever else the response depends on, like the total
+ * count of a page. Spring answers {@code 304 (Not Modified)} by itself when a {@code 200 (OK)} response carries an entity
+ * tag matching the {@code If-None-Match} header, without serializing the body.
+ * <p>
+ * An update sent with an {@code If-Match} header is only applied to the version of the entity its entity tag was made of:
+ * that version is checked against the current one when the update is saved, like the version sent in the body.
+ */
+public final class EntityTagUtil {
+
+    private static final int WEAK_TAG_BYTES = 16;
+
+    private EntityTagUtil() {}
+
+    /**
+     * Build the strong entity tag of an entity.
+     *
+     * @param tag the tag of the entity.
+     * @return the quoted entity tag.
+     */
+    public static String strongETag(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    /**
+     * Build the weak entity tag of a list of entities.
+     *
+     * @param tags the tags of the entities, in order.
+     * @param extras the other values the response depends on.
+     * @return the quoted weak entity tag.
+     */
+    public static String weakETag(Stream<String> tags, Object... extras) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        tags.forEach(tag -> digest.update((tag + ",").getBytes(StandardCharsets.UTF_8)));
+        for (Object extra : extras) {
+            digest.update(("|" + extra).getBytes(StandardCharsets.UTF_8));
+        }
+        return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, WEAK_TAG_BYTES) + "\"";
+    }
+
+    /**
+     * Check whether a {@code If-None-Match} header matches an entity tag, using the weak comparison.
+     *
+     * @param ifNoneMatch the value of the header, or {@code null}.
+     * @param eTag the quoted entity tag.
+     * @return {@code true} if the client already has the representation with that entity tag.
+     */
+    public static boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        // the weak comparison ignores whether the tags are weak
+        String current = ETag.parse(eTag).get(0).tag();
+        return ETag.parse(ifNoneMatch).stream().anyMatch(tag -> tag.isWildcard() || tag.tag().equals(current));
+    }
+
+    /**
+     * Get the version of an entity required by a {@code If-Match} header, using the strong comparison.
+     *
+     * @param ifMatch the value of the header, or {@code null}.
+     * @param id the id of the entity.
+     * @return the version, or empty if there is no header or it matches any version.
+     * @throws ResponseStatusException with status {@code 412 (Precondition Failed)} if the header cannot match the entity:
+     * a weak entity tag, the entity tag of another entity, or several versions.
+     */
+    public static Optional<Integer> requiredVersion(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return Optional.empty();
+        }
+        List<ETag> eTags = ETag.parse(ifMatch);
+        if (eTags.stream().anyMatch(ETag::isWildcard)) {
+            return Optional.empty();
+        }
+        List<Integer> versions = eTags
+            .stream()
+            .filter(eTag -> !eTag.weak())
+            .map(eTag -> eTag.tag().split("-"))
+            // the tag of an entity starts with its id and version
+            .filter(parts -> parts.length >= 2 && parts[0].equals(String.valueOf(id)) && parts[1].matches("\\d{1,9}"))
+            .map(parts -> Integer.valueOf(parts[1]))
+            .distinct()
+            .toList();
+        if (versions.size() != 1) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not match a version of the entity");
+        }
+        return Optional.of(versions.get(0));
+    }
+}
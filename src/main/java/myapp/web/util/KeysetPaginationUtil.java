@@ -0,0 +1,90 @@
+package myapp.web.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (seek) pagination.
+ * <p>
+ * A cursor encodes the sort key of the last element of a slice, and is opaque to clients: it is only meant to be sent
+ * back as the {@code after} request parameter. Unlike {@link tech.jhipster.web.util.PaginationUtil}, no total count is
+ * computed, the {@code Link} header only holds the {@code next} relation when more elements may follow.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String AFTER_PARAMETER = "after";
+
+    public static final String SIZE_PARAMETER = "size";
+
+    public static final int DEFAULT_SIZE = 20;
+
+    public static final int MAX_SIZE = 2000;
+
+    private static final String KEY_SEPARATOR = "|";
+
+    private static final String HEADER_LINK_FORMAT = "<%s>; rel=\"%s\"";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Encode the sort key of the last element of a slice as an opaque cursor.
+     *
+     * @param keys the sort key values, most significant first.
+     * @return the cursor.
+     */
+    public static String encodeCursor(Object... keys) {
+        String raw = Arrays.stream(keys).map(String::valueOf).collect(Collectors.joining(KEY_SEPARATOR));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor built by {@link #encodeCursor(Object...)}.
+     *
+     * @param cursor the cursor, blank for the first slice.
+     * @param keyCount the expected number of sort key values.
+     * @return the sort key values, or an empty {@link Optional} for the first slice.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static Optional<String[]> decodeCursor(String cursor, int keyCount) {
+        if (cursor == null || cursor.isBlank()) {
+            return Optional.empty();
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] keys = raw.split("\\" + KEY_SEPARATOR, -1);
+        if (keys.length != keyCount) {
+            throw new IllegalArgumentException("Expected " + keyCount + " keys in cursor, got " + keys.length);
+        }
+        return Optional.of(keys);
+    }
+
+    /**
+     * Bound the requested slice size between 1 and {@value #MAX_SIZE}.
+     *
+     * @param size the requested size.
+     * @return the size to use.
+     */
+    public static int boundedSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Generate keyset pagination headers.
+     *
+     * @param uriBuilder a {@link UriComponentsBuilder} for the current request.
+     * @param nextCursor the cursor of the next slice, or {@code null} if this is the last one.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateKeysetHttpHeaders(UriComponentsBuilder uriBuilder, String nextCursor) {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            String next = uriBuilder.replaceQueryParam(AFTER_PARAMETER, nextCursor).toUriString();
+            headers.add(HttpHeaders.LINK, String.format(HEADER_LINK_FORMAT, next, "next"));
+        }
+        return headers;
+    }
+}
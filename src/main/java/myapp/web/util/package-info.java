@@ -0,0 +1,4 @@
+/**
+ * Web layer utilities.
+ */
+package myapp.web.util;
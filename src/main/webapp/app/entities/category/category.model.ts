@@ -4,6 +4,7 @@ import { CategoryStatus } from 'app/entities/enumerations/category-status.model'
 
 export interface ICategory {
   id: number;
+  version?: number | null;
   description?: string | null;
   sortOrder?: number | null;
   dateAdded?: dayjs.Dayjs | null;
@@ -11,6 +12,7 @@ export interface ICategory {
   status?: keyof typeof CategoryStatus | null;
   parent?: ICategory | null;
   products?: IProduct[] | null;
+  productsTruncated?: boolean;
 }
 
 export type NewCategory = Omit<ICategory, 'id'> & { id: null };
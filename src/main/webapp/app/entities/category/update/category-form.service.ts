@@ -32,6 +32,7 @@ type CategoryFormDefaults = Pick<NewCategory, 'id' | 'dateAdded' | 'dateModified
 
 type CategoryFormGroupContent = {
   id: FormControl<CategoryFormRawValue['id'] | NewCategory['id']>;
+  version: FormControl<CategoryFormRawValue['version']>;
   description: FormControl<CategoryFormRawValue['description']>;
   sortOrder: FormControl<CategoryFormRawValue['sortOrder']>;
   dateAdded: FormControl<CategoryFormRawValue['dateAdded']>;
@@ -58,6 +59,7 @@ export class CategoryFormService {
           validators: [Validators.required],
         },
       ),
+      version: new FormControl(categoryRawValue.version),
       description: new FormControl(categoryRawValue.description, {
         validators: [Validators.required, Validators.minLength(5), Validators.maxLength(100)],
       }),
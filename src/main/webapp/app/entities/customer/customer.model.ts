@@ -1,5 +1,6 @@
 export interface ICustomer {
   id: number;
+  version?: number | null;
   firstName?: string | null;
   lastName?: string | null;
   email?: string | null;
@@ -18,6 +18,7 @@ type CustomerFormDefaults = Pick<NewCustomer, 'id'>;
 
 type CustomerFormGroupContent = {
   id: FormControl<ICustomer['id'] | NewCustomer['id']>;
+  version: FormControl<ICustomer['version']>;
   firstName: FormControl<ICustomer['firstName']>;
   lastName: FormControl<ICustomer['lastName']>;
   email: FormControl<ICustomer['email']>;
@@ -41,6 +42,7 @@ export class CustomerFormService {
           validators: [Validators.required],
         },
       ),
+      version: new FormControl(customerRawValue.version),
       firstName: new FormControl(customerRawValue.firstName, {
         validators: [Validators.required, Validators.minLength(2), Validators.maxLength(50)],
       }),
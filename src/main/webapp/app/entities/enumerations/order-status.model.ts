@@ -0,0 +1,15 @@
+export enum OrderStatus {
+  NEW = 'NEW',
+
+  CONFIRMED = 'CONFIRMED',
+
+  PROCESSING = 'PROCESSING',
+
+  SHIPPED = 'SHIPPED',
+
+  DELIVERED = 'DELIVERED',
+
+  CANCELLED = 'CANCELLED',
+
+  RETURNED = 'RETURNED',
+}
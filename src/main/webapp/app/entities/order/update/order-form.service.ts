@@ -32,6 +32,7 @@ type OrderFormDefaults = Pick<NewOrder, 'id' | 'orderDate' | 'shippedDate'>;
 
 type OrderFormGroupContent = {
   id: FormControl<OrderFormRawValue['id'] | NewOrder['id']>;
+  version: FormControl<OrderFormRawValue['version']>;
   orderDate: FormControl<OrderFormRawValue['orderDate']>;
   shippedDate: FormControl<OrderFormRawValue['shippedDate']>;
   status: FormControl<OrderFormRawValue['status']>;
@@ -59,12 +60,13 @@ export class OrderFormService {
           validators: [Validators.required],
         },
       ),
+      version: new FormControl(orderRawValue.version),
       orderDate: new FormControl(orderRawValue.orderDate, {
         validators: [Validators.required],
       }),
       shippedDate: new FormControl(orderRawValue.shippedDate),
       status: new FormControl(orderRawValue.status, {
-        validators: [Validators.required, Validators.minLength(3)],
+        validators: [Validators.required],
       }),
       totalAmount: new FormControl(orderRawValue.totalAmount, {
         validators: [Validators.required, Validators.min(0)],
@@ -6,6 +6,7 @@ import { ProductStatus } from 'app/entities/enumerations/product-status.model';
 
 export interface IProduct {
   id: number;
+  version?: number | null;
   title?: string | null;
   keywords?: string | null;
   description?: string | null;
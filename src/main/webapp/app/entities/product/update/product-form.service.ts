@@ -32,6 +32,7 @@ type ProductFormDefaults = Pick<NewProduct, 'id' | 'dateAdded' | 'dateModified'
 
 type ProductFormGroupContent = {
   id: FormControl<ProductFormRawValue['id'] | NewProduct['id']>;
+  version: FormControl<ProductFormRawValue['version']>;
   title: FormControl<ProductFormRawValue['title']>;
   keywords: FormControl<ProductFormRawValue['keywords']>;
   description: FormControl<ProductFormRawValue['description']>;
@@ -65,6 +66,7 @@ export class ProductFormService {
           validators: [Validators.required],
         },
       ),
+      version: new FormControl(productRawValue.version),
       title: new FormControl(productRawValue.title, {
         validators: [Validators.required, Validators.minLength(3), Validators.maxLength(100)],
       }),
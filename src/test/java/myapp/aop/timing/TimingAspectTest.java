@@ -0,0 +1,53 @@
+package myapp.aop.timing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import myapp.config.ApplicationProperties;
+import myapp.config.TimingAspectConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+public class TimingAspectTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withUserConfiguration(PropertiesConfiguration.class, TimingAspectConfiguration.class)
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+    @Test
+    void aspectIsRegisteredByDefault() {
+        contextRunner.run(context -> assertThat(context).hasSingleBean(TimingAspect.class));
+    }
+
+    @Test
+    void aspectIsNotRegisteredWhenDisabled() {
+        contextRunner
+            .withPropertyValues("application.method-timing.enabled=false", "application.method-timing.sample-rate=2")
+            .run(context -> assertThat(context).hasNotFailed().doesNotHaveBean(TimingAspect.class));
+    }
+
+    @Test
+    void sampleRateOutsideZeroToOneIsRejected() {
+        for (String sampleRate : new String[] { "-0.1", "1.5", "NaN" }) {
+            contextRunner
+                .withPropertyValues("application.method-timing.sample-rate=" + sampleRate)
+                .run(context ->
+                    assertThat(context)
+                        .getFailure()
+                        .rootCause()
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessageContaining("application.method-timing.sample-rate")
+                );
+        }
+        contextRunner
+            .withPropertyValues("application.method-timing.sample-rate=0")
+            .run(context -> assertThat(context).hasSingleBean(TimingAspect.class));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(ApplicationProperties.class)
+    static class PropertiesConfiguration {}
+}
@@ -0,0 +1,113 @@
+package myapp.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ConnectionLimitingDataSourceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private DataSource target;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        when(target.getConnection("user", "password")).thenAnswer(invocation -> mock(Connection.class));
+    }
+
+    @Test
+    void closedConnectionReleasesItsPermit() throws SQLException {
+        ConnectionLimitingDataSource dataSource = dataSource(1, 100);
+
+        Connection connection = dataSource.getConnection();
+        assertEquals(0, availablePermits(dataSource));
+        connection.close();
+
+        assertEquals(1, availablePermits(dataSource));
+        verify(((ConnectionProxy) connection).getTargetConnection()).close();
+        dataSource.getConnection("user", "password").close();
+        assertEquals(1, availablePermits(dataSource));
+    }
+
+    @Test
+    void connectionClosedTwiceReleasesItsPermitOnce() throws SQLException {
+        ConnectionLimitingDataSource dataSource = dataSource(2, 100);
+        Connection connection = dataSource.getConnection();
+        Connection other = dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertEquals(1, availablePermits(dataSource));
+        other.close();
+        assertEquals(2, availablePermits(dataSource));
+    }
+
+    @Test
+    void connectionFailingToCloseReleasesItsPermit() throws SQLException {
+        Connection failing = mock(Connection.class);
+        doThrow(new SQLException("broken")).when(failing).close();
+        when(target.getConnection()).thenReturn(failing);
+        ConnectionLimitingDataSource dataSource = dataSource(1, 100);
+        Connection connection = dataSource.getConnection();
+
+        assertThrows(SQLException.class, connection::close);
+
+        assertEquals(1, availablePermits(dataSource));
+    }
+
+    @Test
+    void failedGetConnectionReleasesItsPermit() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("unreachable"));
+        when(target.getConnection("user", "password")).thenThrow(new IllegalStateException("closed"));
+        ConnectionLimitingDataSource dataSource = dataSource(1, 100);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertThrows(IllegalStateException.class, () -> dataSource.getConnection("user", "password"));
+
+        assertEquals(1, availablePermits(dataSource));
+        verify(target, times(1)).getConnection();
+    }
+
+    @Test
+    void connectionNotAvailableWithinTheTimeoutIsRejected() throws SQLException {
+        ConnectionLimitingDataSource dataSource = dataSource(1, 100);
+        Connection connection = dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        verify(target, times(1)).getConnection();
+        assertEquals(2, registry.get(ConnectionLimitingDataSource.WAIT_METER_NAME).timer().count());
+        connection.close();
+        dataSource.getConnection().close();
+        assertEquals(1, availablePermits(dataSource));
+    }
+
+    private ConnectionLimitingDataSource dataSource(int maxConnections, long timeoutMillis) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        return new ConnectionLimitingDataSource(target, maxConnections, timeoutMillis, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private static int availablePermits(ConnectionLimitingDataSource dataSource) {
+        return ((Semaphore) ReflectionTestUtils.getField(dataSource, "permits")).availablePermits();
+    }
+}
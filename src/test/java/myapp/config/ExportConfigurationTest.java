@@ -0,0 +1,88 @@
+package myapp.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class ExportConfigurationTest {
+
+    private static final long TIMEOUT_MILLIS = 3_600_000;
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+    private static AnnotationConfigWebApplicationContext context;
+
+    private static MockMvc mockMvc;
+
+    @BeforeAll
+    public static void setUp() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getExport().setTimeoutSeconds(TIMEOUT_MILLIS / 1000);
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.registerSingleton("applicationProperties", applicationProperties));
+        context.register(WebConfiguration.class, ExportConfiguration.class, StreamingResource.class);
+        context.refresh();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void exportsHaveTheExportTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/things/_export")).andExpect(request().asyncStarted()).andReturn();
+
+        assertEquals(TIMEOUT_MILLIS, result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    @Test
+    void otherAsynchronousRequestsKeepTheDefaultTimeout() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/things/_stream")).andExpect(request().asyncStarted()).andReturn();
+
+        assertEquals(DEFAULT_TIMEOUT_MILLIS, result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    @Configuration
+    @EnableWebMvc
+    static class WebConfiguration implements WebMvcConfigurer {
+
+        @Override
+        public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+            // as set by spring.mvc.async.request-timeout
+            configurer.setDefaultTimeout(DEFAULT_TIMEOUT_MILLIS);
+        }
+    }
+
+    @RestController
+    static class StreamingResource {
+
+        @GetMapping("/api/things/_export")
+        StreamingResponseBody export() {
+            return output -> output.write('1');
+        }
+
+        @GetMapping("/api/things/_stream")
+        StreamingResponseBody stream() {
+            return output -> output.write('1');
+        }
+    }
+}
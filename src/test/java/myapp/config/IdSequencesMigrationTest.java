@@ -0,0 +1,203 @@
+package myapp.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import myapp.domain.Customer;
+import myapp.domain.Product;
+import myapp.domain.enumeration.ProductStatus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+/**
+ * Runs the changelog introducing the per-entity id sequences on a database that already has rows and ids handed out by
+ * {@code sequence_generator}, as on the first deploy of the version introducing them.
+ */
+public class IdSequencesMigrationTest {
+
+    private static final String CHANGELOG_FILE = "config/liquibase/changelog/20261017100100_added_entity_id_sequences.xml";
+
+    private static final List<String> SEQUENCES = List.of(
+        "address_seq",
+        "category_seq",
+        "customer_seq",
+        "jhi_order_seq",
+        "product_seq",
+        "wish_list_seq"
+    );
+
+    private static final long ROLLING_DEPLOY_GAP = 1_000_000;
+
+    // the next id sequence_generator hands out when the changelog runs
+    private static final long SEQUENCE_GENERATOR_NEXT = 2000;
+
+    private static EmbeddedDatabase database;
+
+    private static EmbeddedDatabase smallIncrementDatabase;
+
+    // two nodes on the database with the smaller increment, whose entities declare an allocation size of 500
+    private static EntityManagerFactory firstNode;
+
+    private static EntityManagerFactory secondNode;
+
+    @BeforeAll
+    public static void createDatabases() {
+        database = MigratedDatabase.create();
+        smallIncrementDatabase = MigratedDatabase.create(Map.of("idAllocationSize", "100"));
+        firstNode = MigratedDatabase.entityManagerFactory(smallIncrementDatabase, Map.of());
+        secondNode = MigratedDatabase.entityManagerFactory(smallIncrementDatabase, Map.of());
+    }
+
+    @AfterAll
+    public static void shutdownDatabases() {
+        firstNode.close();
+        secondNode.close();
+        database.shutdown();
+        smallIncrementDatabase.shutdown();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MigratedDatabase.clear(database);
+        MigratedDatabase.clear(smallIncrementDatabase);
+    }
+
+    @Test
+    void sequencesStartAboveTheIdsOfTheirTableAndTheGapAfterSequenceGenerator() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        rewind(jdbcTemplate);
+        // past the gap, as imported with explicit ids
+        insertProduct(jdbcTemplate, 3_000_000);
+        // below sequence_generator
+        insertCustomer(jdbcTemplate, 10);
+
+        MigratedDatabase.migrate(database, Map.of());
+
+        assertEquals(3_000_001, nextValue(jdbcTemplate, "product_seq"));
+        assertEquals(SEQUENCE_GENERATOR_NEXT + ROLLING_DEPLOY_GAP, nextValue(jdbcTemplate, "customer_seq"));
+        assertEquals(SEQUENCE_GENERATOR_NEXT + ROLLING_DEPLOY_GAP, nextValue(jdbcTemplate, "address_seq"));
+        assertEquals(500, increment(jdbcTemplate, "product_seq"));
+    }
+
+    @Test
+    void newIdsAreAboveTheExistingOnesAndThoseOfThePreviousVersion() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        rewind(jdbcTemplate);
+        insertProduct(jdbcTemplate, 3_000_000);
+        insertCustomer(jdbcTemplate, 10);
+        MigratedDatabase.migrate(database, Map.of());
+        // an instance of the previous version, still running, allocates a few blocks of 50 meanwhile
+        long previousVersionMax = 0;
+        for (int i = 0; i < 3; i++) {
+            previousVersionMax = jdbcTemplate.queryForObject("select next value for sequence_generator", Long.class) + 49;
+        }
+
+        EntityManagerFactory entityManagerFactory = MigratedDatabase.entityManagerFactory(database, Map.of());
+        try {
+            Product product = newProduct();
+            Customer customer = new Customer().firstName("Ada").lastName("Lovelace").email("ada@example.com");
+            persist(entityManagerFactory, List.of(product, customer));
+
+            assertTrue(product.getId() > 3_000_000, product.getId()::toString);
+            assertTrue(customer.getId() > previousVersionMax, customer.getId()::toString);
+            assertTrue(customer.getId() >= SEQUENCE_GENERATOR_NEXT + ROLLING_DEPLOY_GAP, customer.getId()::toString);
+        } finally {
+            entityManagerFactory.close();
+        }
+    }
+
+    @Test
+    void allocationSizeFollowsTheIncrementOfTheSequences() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(smallIncrementDatabase);
+        assertEquals(100, increment(jdbcTemplate, "product_seq"));
+        List<Product> firstProducts = new ArrayList<>();
+        List<Product> secondProducts = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            firstProducts.add(newProduct());
+            secondProducts.add(newProduct());
+        }
+
+        persist(firstNode, firstProducts.subList(0, 1));
+        persist(secondNode, secondProducts.subList(0, 1));
+        persist(firstNode, firstProducts.subList(1, 150));
+        persist(secondNode, secondProducts.subList(1, 150));
+
+        // blocks of 100 ids, one after the other
+        assertEquals(100, secondProducts.get(0).getId() - firstProducts.get(0).getId());
+        assertEquals(firstProducts.get(0).getId() + 99, firstProducts.get(99).getId());
+        Set<Long> ids = new HashSet<>();
+        firstProducts.forEach(product -> ids.add(product.getId()));
+        secondProducts.forEach(product -> ids.add(product.getId()));
+        assertEquals(300, ids.size());
+        assertEquals(300, jdbcTemplate.queryForObject("select count(distinct id) from product", Integer.class));
+    }
+
+    /**
+     * Bring the database back to before the changelog: no id sequences, and sequence_generator at its next value.
+     */
+    private static void rewind(JdbcTemplate jdbcTemplate) {
+        SEQUENCES.forEach(sequence -> jdbcTemplate.execute("drop sequence " + sequence));
+        jdbcTemplate.update("delete from databasechangelog where filename = ?", CHANGELOG_FILE);
+        jdbcTemplate.execute("alter sequence sequence_generator restart with " + SEQUENCE_GENERATOR_NEXT);
+    }
+
+    private static long nextValue(JdbcTemplate jdbcTemplate, String sequence) {
+        return jdbcTemplate.queryForObject(
+            "select base_value from information_schema.sequences where sequence_name = ?",
+            Long.class,
+            sequence.toUpperCase()
+        );
+    }
+
+    private static long increment(JdbcTemplate jdbcTemplate, String sequence) {
+        return jdbcTemplate.queryForObject(
+            "select increment from information_schema.sequences where sequence_name = ?",
+            Long.class,
+            sequence.toUpperCase()
+        );
+    }
+
+    private static void insertProduct(JdbcTemplate jdbcTemplate, long id) {
+        jdbcTemplate.update(
+            "insert into product (id, title, price, status, date_added, version) values (?, 'Product', 10, 'IN_STOCK', ?, 0)",
+            id,
+            LocalDateTime.now()
+        );
+    }
+
+    private static void insertCustomer(JdbcTemplate jdbcTemplate, long id) {
+        jdbcTemplate.update(
+            "insert into customer (id, first_name, last_name, email, version) values (?, 'First', 'Last', ?, 0)",
+            id,
+            "customer" + id + "@localhost"
+        );
+    }
+
+    private static Product newProduct() {
+        return new Product().title("Product").price(BigDecimal.TEN).status(ProductStatus.IN_STOCK).dateAdded(Instant.now());
+    }
+
+    private static void persist(EntityManagerFactory entityManagerFactory, List<?> entities) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entities.forEach(entityManager::persist);
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
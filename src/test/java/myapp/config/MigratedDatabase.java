@@ -0,0 +1,143 @@
+package myapp.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+/**
+ * Embedded H2 databases with the schema of the application, built by its Liquibase changelog as on startup, so the tests
+ * run against the real migrations rather than a copy of them.
+ * <p>
+ * Migrating takes a while, so a test class creates its database once and {@linkplain #clear(DataSource) clears} it after
+ * each test.
+ */
+public final class MigratedDatabase {
+
+    public static final String CHANGELOG = "classpath:config/liquibase/master.xml";
+
+    // written by the migrations, not by the tests
+    private static final Set<String> KEPT_TABLES = Set.of(
+        "DATABASECHANGELOG",
+        "DATABASECHANGELOGLOCK",
+        "JHI_AUTHORITY",
+        "JHI_USER",
+        "JHI_USER_AUTHORITY"
+    );
+
+    private MigratedDatabase() {}
+
+    /**
+     * Create an empty database, with the schema of the test context.
+     *
+     * @return the database, to be shut down by the caller.
+     */
+    public static EmbeddedDatabase create() {
+        return create(Map.of());
+    }
+
+    /**
+     * Create an empty database, with the schema of the test context migrated with changelog parameters.
+     *
+     * @param parameters the changelog parameters, as set by {@code spring.liquibase.parameters}.
+     * @return the database, to be shut down by the caller.
+     */
+    public static EmbeddedDatabase create(Map<String, String> parameters) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        try {
+            migrate(database, parameters);
+        } catch (RuntimeException e) {
+            database.shutdown();
+            throw e;
+        }
+        return database;
+    }
+
+    /**
+     * Create an entity manager factory for the entities of the application, configured as in {@code application.yml} but
+     * without the second-level cache.
+     *
+     * @param database the database of the entities.
+     * @param properties the Hibernate properties to add or override.
+     * @return the entity manager factory, to be closed by the caller.
+     */
+    public static EntityManagerFactory entityManagerFactory(DataSource database, Map<String, Object> properties) {
+        Map<String, Object> jpaProperties = new HashMap<>();
+        jpaProperties.put("hibernate.physical_naming_strategy", new CamelCaseToUnderscoresNamingStrategy());
+        jpaProperties.put("hibernate.implicit_naming_strategy", new SpringImplicitNamingStrategy());
+        jpaProperties.put("hibernate.jdbc.time_zone", "UTC");
+        jpaProperties.put("hibernate.timezone.default_storage", "NORMALIZE");
+        jpaProperties.put("hibernate.type.preferred_instant_jdbc_type", "TIMESTAMP");
+        jpaProperties.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        jpaProperties.put("hibernate.id.sequence.increment_size_mismatch_strategy", "fix");
+        jpaProperties.put("hibernate.cache.use_second_level_cache", "false");
+        jpaProperties.put("hibernate.jdbc.batch_size", "25");
+        jpaProperties.put("hibernate.order_inserts", "true");
+        jpaProperties.put("hibernate.order_updates", "true");
+        jpaProperties.put("hibernate.query.fail_on_pagination_over_collection_fetch", "true");
+        jpaProperties.put("hibernate.query.in_clause_parameter_padding", "true");
+        jpaProperties.putAll(properties);
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(database);
+        factoryBean.setPackagesToScan("myapp.domain");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        return factoryBean.getObject();
+    }
+
+    /**
+     * Remove the rows written by a test, keeping the ones written by the migrations.
+     *
+     * @param database the database to clear.
+     */
+    public static void clear(DataSource database) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        List<String> tables = jdbcTemplate.queryForList(
+            "select table_name from information_schema.tables where table_schema = 'PUBLIC' and table_type = 'BASE TABLE'",
+            String.class
+        );
+        jdbcTemplate.execute("set referential_integrity false");
+        try {
+            tables
+                .stream()
+                .filter(table -> !KEPT_TABLES.contains(table))
+                .forEach(table -> jdbcTemplate.execute("truncate table " + table + " restart identity"));
+        } finally {
+            jdbcTemplate.execute("set referential_integrity true");
+        }
+    }
+
+    /**
+     * Run the change sets of the changelog that have not been run on a database yet, as on startup.
+     *
+     * @param database the database to migrate.
+     * @param parameters the changelog parameters, as set by {@code spring.liquibase.parameters}.
+     */
+    public static void migrate(DataSource database, Map<String, String> parameters) {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(database);
+        liquibase.setChangeLog(CHANGELOG);
+        liquibase.setChangeLogParameters(parameters);
+        liquibase.setContexts("test");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        try {
+            liquibase.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not migrate the test database", e);
+        }
+    }
+}
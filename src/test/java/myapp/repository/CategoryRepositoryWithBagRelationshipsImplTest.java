@@ -0,0 +1,144 @@
+package myapp.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import myapp.config.MigratedDatabase;
+import myapp.domain.Category;
+import myapp.domain.Product;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CategoryRepositoryWithBagRelationshipsImplTest {
+
+    private static EmbeddedDatabase database;
+
+    private static EntityManagerFactory entityManagerFactory;
+
+    private final CategoryRepositoryWithBagRelationshipsImpl repository = new CategoryRepositoryWithBagRelationshipsImpl();
+
+    private EntityManager entityManager;
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+        entityManagerFactory = MigratedDatabase.entityManagerFactory(database, Map.of());
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        entityManagerFactory.close();
+        database.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        for (long id : new long[] { 1, 2, 3 }) {
+            jdbcTemplate.update(
+                "insert into category (id, description, date_added, status, version) values (?, ?, ?, 'AVAILABLE', 0)",
+                id,
+                "Category " + id,
+                LocalDateTime.now()
+            );
+        }
+        // linked out of id order, category 1 has five products, category 2 has two, category 3 none
+        link(1, 50, 10, 40, 20, 30);
+        link(2, 60, 10);
+        entityManager = entityManagerFactory.createEntityManager();
+        ReflectionTestUtils.setField(repository, "entityManager", entityManager);
+        entityManager.getTransaction().begin();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().rollback();
+        }
+        entityManager.close();
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void productIdsAreTheFirstOfEachCategoryInIdOrder() {
+        Map<Long, List<Long>> productIds = repository.findProductIds(List.of(2L, 1L, 3L, 99L), 3);
+
+        assertEquals(Map.of(1L, List.of(10L, 20L, 30L), 2L, List.of(10L, 60L), 3L, List.of(), 99L, List.of()), productIds);
+        // in the order of the requested categories
+        assertEquals(List.of(2L, 1L, 3L, 99L), List.copyOf(productIds.keySet()));
+        assertEquals(List.of(10L, 20L, 30L, 40L, 50L), repository.findProductIds(List.of(1L), 1000).get(1L));
+        assertEquals(Map.of(1L, List.of()), repository.findProductIds(List.of(1L), 0));
+    }
+
+    @Test
+    void categoriesWithMoreProductsThanTheLimitAreFlagged() {
+        List<Category> categories = repository.fetchProducts(categories(), 2);
+
+        assertEquals(List.of(10L, 20L), productIds(categories.get(0)));
+        assertTrue(categories.get(0).isProductsTruncated());
+        // exactly as many products as the limit
+        assertEquals(List.of(10L, 60L), productIds(categories.get(1)));
+        assertFalse(categories.get(1).isProductsTruncated());
+        assertEquals(List.of(), productIds(categories.get(2)));
+        assertFalse(categories.get(2).isProductsTruncated());
+        // the same product in two categories is loaded once
+        assertSame(categories.get(0).getProducts().iterator().next(), categories.get(1).getProducts().iterator().next());
+    }
+
+    @Test
+    void noProductsAreLoadedWithAZeroLimit() {
+        List<Category> categories = repository.fetchProducts(categories(), 0);
+
+        assertTrue(categories.get(0).getProducts().isEmpty());
+        assertTrue(categories.get(0).isProductsTruncated());
+        assertFalse(categories.get(2).isProductsTruncated());
+    }
+
+    @Test
+    void cappedCollectionsAreNeverFlushed() {
+        List<Category> categories = repository.fetchProducts(categories(), 1);
+        categories.get(0).setDescription("Changed category");
+
+        assertFalse(entityManager.contains(categories.get(0)));
+        entityManager.flush();
+        entityManager.getTransaction().commit();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        assertEquals(
+            List.of(10L, 20L, 30L, 40L, 50L),
+            jdbcTemplate.queryForList("select product_id from rel_category__product where category_id = 1 order by product_id", Long.class)
+        );
+        assertEquals("Category 1", jdbcTemplate.queryForObject("select description from category where id = 1", String.class));
+    }
+
+    private List<Category> categories() {
+        return entityManager.createQuery("select category from Category category order by category.id", Category.class).getResultList();
+    }
+
+    private static List<Long> productIds(Category category) {
+        return category.getProducts().stream().map(Product::getId).toList();
+    }
+
+    private static void link(long categoryId, long... productIds) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        for (long productId : productIds) {
+            jdbcTemplate.update(
+                "merge into product (id, title, price, status, date_added, version) key (id) values (?, ?, 10, 'IN_STOCK', ?, 0)",
+                productId,
+                "Product " + productId,
+                LocalDateTime.now()
+            );
+            jdbcTemplate.update("insert into rel_category__product (category_id, product_id) values (?, ?)", categoryId, productId);
+        }
+    }
+}
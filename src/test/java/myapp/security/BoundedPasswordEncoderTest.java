@@ -0,0 +1,135 @@
+package myapp.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final SlowPasswordEncoder delegate = new SlowPasswordEncoder();
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @AfterEach
+    public void tearDown() {
+        delegate.release.countDown();
+        passwordEncoder.close();
+    }
+
+    @Test
+    void passwordsAreHashedByTheDelegate() {
+        delegate.release.countDown();
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, 7, registry);
+
+        assertEquals("hashed-secret", passwordEncoder.encode("secret"));
+        assertTrue(passwordEncoder.matches("secret", "hashed-secret"));
+        assertFalse(passwordEncoder.matches("other", "hashed-secret"));
+        assertEquals(1, registry.get(BoundedPasswordEncoder.HASHING_METER_NAME).tag("operation", "encode").timer().count());
+        assertEquals(2, registry.get(BoundedPasswordEncoder.HASHING_METER_NAME).tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void passwordBeyondTheQueueIsRejectedAtOnce() throws InterruptedException {
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, 7, registry);
+        AtomicReference<String> hashing = new AtomicReference<>();
+        AtomicReference<String> queued = new AtomicReference<>();
+
+        Thread hashingThread = start(() -> hashing.set(passwordEncoder.encode("first")));
+        await(delegate.hashing);
+        Thread queuedThread = start(() -> queued.set(passwordEncoder.encode("second")));
+        awaitQueued(1);
+
+        PasswordHashingBusyException exception = assertThrows(PasswordHashingBusyException.class, () ->
+            passwordEncoder.encode("third")
+        );
+        assertEquals(7, exception.getRetryAfterSeconds());
+        assertEquals(1, registry.get(BoundedPasswordEncoder.REJECTED_METER_NAME).counter().count());
+
+        delegate.release.countDown();
+        hashingThread.join();
+        queuedThread.join();
+        assertEquals("hashed-first", hashing.get());
+        assertEquals("hashed-second", queued.get());
+        assertEquals("hashed-fourth", passwordEncoder.encode("fourth"));
+        assertEquals(1, registry.get(BoundedPasswordEncoder.REJECTED_METER_NAME).counter().count());
+    }
+
+    @Test
+    void withoutQueuePasswordIsOnlyHashedByAFreeThread() throws InterruptedException {
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 0, 7, registry);
+        AtomicReference<String> hashing = new AtomicReference<>();
+
+        Thread hashingThread = start(() -> hashing.set(passwordEncoder.encode("first")));
+        await(delegate.hashing);
+
+        assertThrows(PasswordHashingBusyException.class, () -> passwordEncoder.matches("second", "hashed-second"));
+        assertEquals(1, registry.get(BoundedPasswordEncoder.REJECTED_METER_NAME).counter().count());
+
+        delegate.release.countDown();
+        hashingThread.join();
+        assertEquals("hashed-first", hashing.get());
+    }
+
+    @Test
+    void invalidPoolIsRejected() {
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 0, 7, registry);
+
+        assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 0, 4, 7, registry));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 2, -1, 7, registry));
+    }
+
+    private void awaitQueued(int passwords) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.get(BoundedPasswordEncoder.QUEUED_METER_NAME).gauge().value() < passwords) {
+            if (System.nanoTime() > deadline) {
+                fail("not queued");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hashes the passwords once released, telling when it started hashing.
+     */
+    private static final class SlowPasswordEncoder implements PasswordEncoder {
+
+        private final CountDownLatch hashing = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            hashing.countDown();
+            await(release);
+            return "hashed-" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package myapp.security;
+
+import static myapp.security.SecurityUtils.JWT_ALGORITHM;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import myapp.config.ApplicationProperties;
+import myapp.config.SecurityJwtConfiguration;
+import myapp.management.SecurityMetersService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CachingJwtDecoderTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("k".repeat(64).getBytes());
+
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString("o".repeat(64).getBytes());
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicInteger decodings = new AtomicInteger();
+
+    @Test
+    void validTokenIsVerifiedOnce() {
+        Jwt jwt = jwt("token", Instant.now().plusSeconds(3600));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(countingDecoder(jwt), 100, registry);
+
+        assertSame(jwt, decoder.decode("token"));
+        assertSame(jwt, decoder.decode("token"));
+
+        assertEquals(1, decodings.get());
+    }
+
+    @Test
+    void tokenWithoutExpiryIsNotCached() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", JWT_ALGORITHM.getName()).subject("user").build();
+        CachingJwtDecoder decoder = new CachingJwtDecoder(countingDecoder(jwt), 100, registry);
+
+        decoder.decode("token");
+        decoder.decode("token");
+
+        assertEquals(2, decodings.get());
+        assertEquals(0, verified(decoder).estimatedSize());
+    }
+
+    @Test
+    void tokenIsVerifiedAgainOnceExpired() throws InterruptedException {
+        Instant expiresAt = Instant.now().plusSeconds(1);
+        CachingJwtDecoder decoder = new CachingJwtDecoder(countingDecoder(jwt("token", expiresAt)), 100, registry);
+
+        decoder.decode("token");
+        decoder.decode("token");
+        assertEquals(1, decodings.get());
+        Thread.sleep(Duration.between(Instant.now(), expiresAt).plusMillis(100).toMillis());
+        decoder.decode("token");
+
+        assertEquals(2, decodings.get());
+    }
+
+    @Test
+    void invalidTokensAreNeverCachedAndAllTracked() {
+        SecurityMetersService metersService = new SecurityMetersService(registry);
+        JwtDecoder decoder = jwtConfiguration(KEY).jwtDecoder(metersService, new ApplicationProperties(), registry);
+        assertInstanceOf(CachingJwtDecoder.class, decoder);
+        JwtEncoder encoder = jwtConfiguration(KEY).jwtEncoder();
+        // beyond the allowed clock skew
+        String expired = encode(encoder, Instant.now().minusSeconds(3600));
+        String otherSignature = encode(jwtConfiguration(OTHER_KEY).jwtEncoder(), Instant.now().plusSeconds(3600));
+        String valid = encode(encoder, Instant.now().plusSeconds(3600));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(JwtException.class, () -> decoder.decode(expired));
+            assertThrows(JwtException.class, () -> decoder.decode(otherSignature));
+            assertThrows(JwtException.class, () -> decoder.decode("malformed"));
+        }
+        assertEquals(0, verified((CachingJwtDecoder) decoder).estimatedSize());
+        assertEquals(3, invalidTokens("expired"));
+        assertEquals(3, invalidTokens("invalid-signature"));
+        assertEquals(3, invalidTokens("malformed"));
+
+        assertEquals("user", decoder.decode(valid).getSubject());
+        assertEquals(1, verified((CachingJwtDecoder) decoder).estimatedSize());
+    }
+
+    private double invalidTokens(String cause) {
+        return registry
+            .get(SecurityMetersService.INVALID_TOKENS_METER_NAME)
+            .tag(SecurityMetersService.INVALID_TOKENS_METER_CAUSE_DIMENSION, cause)
+            .counter()
+            .count();
+    }
+
+    private JwtDecoder countingDecoder(Jwt jwt) {
+        return token -> {
+            decodings.incrementAndGet();
+            return jwt;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<String, Jwt> verified(CachingJwtDecoder decoder) {
+        return (Cache<String, Jwt>) ReflectionTestUtils.getField(decoder, "verified");
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+            .header("alg", JWT_ALGORITHM.getName())
+            .subject("user")
+            .issuedAt(Instant.now())
+            .expiresAt(expiresAt)
+            .build();
+    }
+
+    private static String encode(JwtEncoder encoder, Instant expiresAt) {
+        JwtClaimsSet claims = JwtClaimsSet.builder().subject("user").issuedAt(expiresAt.minusSeconds(60)).expiresAt(expiresAt).build();
+        return encoder.encode(JwtEncoderParameters.from(JwsHeader.with(JWT_ALGORITHM).build(), claims)).getTokenValue();
+    }
+
+    private static SecurityJwtConfiguration jwtConfiguration(String key) {
+        SecurityJwtConfiguration configuration = new SecurityJwtConfiguration();
+        ReflectionTestUtils.setField(configuration, "jwtKey", key);
+        return configuration;
+    }
+}
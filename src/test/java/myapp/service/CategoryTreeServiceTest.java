@@ -0,0 +1,85 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import myapp.domain.Category;
+import myapp.domain.enumeration.CategoryStatus;
+import myapp.repository.CategoryRepository;
+import myapp.service.dto.CategoryNodeDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class CategoryTreeServiceTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @InjectMocks
+    private CategoryTreeService categoryTreeService;
+
+    private static Category category(Long id, Category parent, Integer sortOrder) {
+        Category category = new Category().id(id).description("Category " + id).sortOrder(sortOrder).status(CategoryStatus.AVAILABLE);
+        category.setParent(parent);
+        return category;
+    }
+
+    @BeforeEach
+    public void setUpTree() {
+        // 1 -> (2 -> 4, 3)
+        Category root = category(1L, null, 0);
+        Category second = category(2L, root, 2);
+        Category third = category(3L, root, 1);
+        Category fourth = category(4L, second, 0);
+        when(categoryRepository.findAll()).thenReturn(List.of(fourth, third, second, root));
+        categoryTreeService.rebuildTree();
+    }
+
+    @Test
+    public void testSubtreeListsChildrenInSortOrder() {
+        CategoryNodeDTO subtree = categoryTreeService.getSubtree(1L).orElseThrow();
+
+        assertEquals(List.of(3L, 2L), subtree.children().stream().map(CategoryNodeDTO::id).toList());
+        assertEquals(List.of(4L), subtree.children().get(1).children().stream().map(CategoryNodeDTO::id).toList());
+        assertTrue(categoryTreeService.getSubtree(99L).isEmpty());
+    }
+
+    @Test
+    public void testDescendantsAndAncestors() {
+        assertEquals(List.of(1L, 3L, 2L, 4L), categoryTreeService.getDescendantIds(1L));
+        assertEquals(List.of(1L, 2L), categoryTreeService.getAncestorIds(4L));
+        assertEquals(List.of(), categoryTreeService.getDescendantIds(99L));
+    }
+
+    @Test
+    public void testMovingCategoryRecomputesItsSubtree() {
+        categoryTreeService.put(category(2L, category(3L, null, null), 2));
+
+        assertEquals(List.of(1L, 3L, 2L), categoryTreeService.getAncestorIds(4L));
+        assertEquals(List.of(3L, 2L, 4L), categoryTreeService.getDescendantIds(3L));
+    }
+
+    @Test
+    public void testMovingCategoryUnderItsDescendantKeepsItAsRoot() {
+        categoryTreeService.put(category(2L, category(4L, null, null), 2));
+
+        assertEquals(List.of(), categoryTreeService.getAncestorIds(2L));
+        assertEquals(List.of(2L, 4L), categoryTreeService.getDescendantIds(2L));
+        assertEquals(List.of(1L, 3L), categoryTreeService.getDescendantIds(1L));
+    }
+
+    @Test
+    public void testRemovingCategoryMakesItsChildrenRoots() {
+        categoryTreeService.remove(2L);
+
+        assertEquals(List.of(1L, 3L), categoryTreeService.getDescendantIds(1L));
+        assertEquals(List.of(), categoryTreeService.getAncestorIds(4L));
+        assertTrue(categoryTreeService.getSubtree(2L).isEmpty());
+    }
+}
@@ -0,0 +1,159 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import myapp.config.MigratedDatabase;
+import myapp.repository.CustomerRepository;
+import myapp.repository.OrderRepository;
+import myapp.repository.WishListRepository;
+import myapp.service.dto.CustomerOverviewDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class CustomerServiceTest {
+
+    private static final Instant ORDER_DATE = Instant.parse("2024-03-01T10:00:00Z");
+
+    private static EmbeddedDatabase database;
+
+    private static EntityManagerFactory entityManagerFactory;
+
+    private static CustomerService customerService;
+
+    private static TransactionTemplate transactionTemplate;
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+        entityManagerFactory = MigratedDatabase.entityManagerFactory(database, Map.of("hibernate.generate_statistics", "true"));
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(
+            SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory)
+        );
+        customerService = new CustomerService(
+            repositoryFactory.getRepository(CustomerRepository.class),
+            repositoryFactory.getRepository(OrderRepository.class),
+            repositoryFactory.getRepository(WishListRepository.class)
+        );
+        // in place of the transactional proxy of the service
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        entityManagerFactory.close();
+        database.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        insertCustomer(1);
+        insertCustomer(2);
+        // inserted out of id order
+        for (long id : new long[] { 12, 10, 11 }) {
+            jdbcTemplate.update(
+                "insert into address (id, address_1, city, postcode, country, customer_id) values (?, ?, 'Paris', '75001', 'FR', 1)",
+                id,
+                id + " rue de Rivoli"
+            );
+        }
+        LongStream.rangeClosed(1, 12).forEach(id -> insertOrder(id, 1, ORDER_DATE.plusSeconds(id)));
+        insertOrder(13, 2, ORDER_DATE.plusSeconds(60));
+        jdbcTemplate.update("insert into wish_list (id, title, restricted, customer_id) values (20, 'Birthday', false, 1)");
+        jdbcTemplate.update("insert into wish_list (id, title, restricted, customer_id) values (21, 'Christmas', true, 1)");
+        jdbcTemplate.update("insert into wish_list (id, title, restricted, customer_id) values (22, 'Later', false, 1)");
+        LongStream.rangeClosed(1, 5).forEach(id -> insertProduct(id, id <= 3 ? 20 : 21));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void overviewHasTheAddressesRecentOrdersAndWishListsOfTheCustomer() {
+        CustomerOverviewDTO overview = findOverview(1L).orElseThrow();
+
+        assertEquals("customer1@example.com", overview.email());
+        assertEquals(List.of(10L, 11L, 12L), overview.addresses().stream().map(CustomerOverviewDTO.AddressSummary::id).toList());
+        assertEquals(
+            List.of(12L, 11L, 10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L),
+            overview.recentOrders().stream().map(CustomerOverviewDTO.OrderSummary::id).toList()
+        );
+        assertEquals(
+            List.of(
+                new CustomerOverviewDTO.WishListSummary(20L, "Birthday", false, 3L),
+                new CustomerOverviewDTO.WishListSummary(21L, "Christmas", true, 2L),
+                new CustomerOverviewDTO.WishListSummary(22L, "Later", false, 0L)
+            ),
+            overview.wishLists()
+        );
+    }
+
+    @Test
+    void overviewTakesAtMostThreeStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        findOverview(1L);
+
+        assertTrue(statistics.getPrepareStatementCount() <= 3, () -> statistics.getPrepareStatementCount() + " statements");
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+
+        statistics.clear();
+        assertTrue(findOverview(99L).isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private static Optional<CustomerOverviewDTO> findOverview(Long id) {
+        return transactionTemplate.execute(status -> customerService.findOverview(id));
+    }
+
+    private void insertCustomer(long id) {
+        jdbcTemplate.update(
+            "insert into customer (id, first_name, last_name, email, version) values (?, 'First', 'Last', ?, 0)",
+            id,
+            "customer" + id + "@example.com"
+        );
+    }
+
+    private void insertOrder(long id, long customerId, Instant orderDate) {
+        jdbcTemplate.update(
+            "insert into jhi_order (id, order_date, status, total_amount, customer_id, version) values (?, ?, 'NEW', 10, ?, 0)",
+            id,
+            LocalDateTime.ofInstant(orderDate, ZoneOffset.UTC),
+            customerId
+        );
+    }
+
+    private void insertProduct(long id, long wishListId) {
+        jdbcTemplate.update(
+            "insert into product (id, title, price, status, date_added, wish_list_id, version) values (?, 'Product', 10, 'IN_STOCK', ?, ?, 0)",
+            id,
+            LocalDateTime.now(),
+            wishListId
+        );
+    }
+}
@@ -0,0 +1,39 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Optional;
+import myapp.domain.Category;
+import myapp.domain.Product;
+import org.junit.jupiter.api.Test;
+
+public class EntityTagServiceTest {
+
+    private final EntityTagService entityTagService = new EntityTagService();
+
+    @Test
+    void tagOfCategoryChangesWithItsProducts() {
+        Product product = new Product().id(2L).version(3);
+        Category category = new Category().id(1L).version(0).addProduct(product);
+        String before = EntityTagService.tagOf(category);
+
+        product.setVersion(4);
+
+        assertEquals("1-0-3", before);
+        assertEquals("1-0-4", EntityTagService.tagOf(category));
+    }
+
+    @Test
+    void tagReadBeforeAnInvalidationIsNotRecorded() {
+        long generation = entityTagService.getGeneration(Product.class);
+        entityTagService.recordTag(Product.class, 1L, "1-0", generation);
+        assertEquals(Optional.of("1-0"), entityTagService.getTag(Product.class, 1L));
+
+        entityTagService.invalidate(Product.class, 1L);
+        entityTagService.recordTag(Product.class, 1L, "1-0", generation);
+
+        assertEquals(Optional.empty(), entityTagService.getTag(Product.class, 1L));
+        entityTagService.recordTag(Product.class, 1L, "1-1", entityTagService.getGeneration(Product.class));
+        assertEquals(Optional.of("1-1"), entityTagService.getTag(Product.class, 1L));
+    }
+}
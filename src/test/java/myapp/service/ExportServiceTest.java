@@ -0,0 +1,180 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import myapp.config.MigratedDatabase;
+import myapp.domain.enumeration.OrderStatus;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+public class ExportServiceTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json()
+        .modulesToInstall(new JavaTimeModule())
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+
+    private static final Instant ORDER_DATE = Instant.parse("2024-03-01T10:00:00Z");
+
+    private static EmbeddedDatabase database;
+
+    private static EntityManagerFactory entityManagerFactory;
+
+    private static EntityManager target;
+
+    // delegates to the real entity manager, to count the times the persistence context is cleared
+    private static EntityManager entityManager;
+
+    private static ExportService exportService;
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+        entityManagerFactory = MigratedDatabase.entityManagerFactory(database, Map.of());
+        target = entityManagerFactory.createEntityManager();
+        entityManager = mock(EntityManager.class, AdditionalAnswers.delegatesTo(target));
+        exportService = new ExportService(entityManager, OBJECT_MAPPER);
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        target.close();
+        entityManagerFactory.close();
+        database.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // in place of the transactional proxy of the service
+        target.getTransaction().begin();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        target.getTransaction().rollback();
+        target.clear();
+        clearInvocations(entityManager);
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void allOrdersAreStreamedInIdOrderAndThePersistenceContextIsClearedPeriodically() throws IOException {
+        insertOrders(2500);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long count = exportService.exportOrders(null, null, null, FileFormat.NDJSON, output);
+
+        assertEquals(2500, count);
+        List<JsonNode> rows = ndjson(output);
+        assertEquals(2500, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(i + 1, rows.get(i).get("id").asLong());
+        }
+        assertEquals(ORDER_DATE.plusSeconds(1).toString(), rows.get(0).get("orderDate").asText());
+        assertEquals("NEW", rows.get(0).get("status").asText());
+        // once every 1000 rows, so the orders read since stay in the context
+        verify(entityManager, times(2)).clear();
+        assertEquals(500, target.unwrap(SessionImplementor.class).getPersistenceContext().getNumberOfManagedEntities());
+    }
+
+    @Test
+    void ordersAreFilteredByDateAndStatus() throws IOException {
+        insertOrders(10);
+        new JdbcTemplate(database).update("update jhi_order set status = 'SHIPPED' where id in (3, 5, 8)");
+        Instant from = ORDER_DATE.plusSeconds(3);
+        Instant to = ORDER_DATE.plusSeconds(8);
+
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L), exportedIds(from, to, null));
+        assertEquals(List.of(3L, 5L), exportedIds(from, to, OrderStatus.SHIPPED));
+        assertEquals(List.of(1L, 2L, 4L, 6L, 7L), exportedIds(null, to, OrderStatus.NEW));
+        assertEquals(List.of(8L, 9L, 10L), exportedIds(ORDER_DATE.plusSeconds(8), null, null));
+        assertEquals(List.of(), exportedIds(from, from, null));
+        verify(entityManager, never()).clear();
+    }
+
+    @Test
+    void csvHasAHeaderAndQuotesTheValuesWithSeparatorsOrQuotes() throws IOException {
+        insertOrders(2);
+        new JdbcTemplate(database).update("update jhi_order set tracking_number = '1Z,\"42\"', shipping_cost = 4.5 where id = 2");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long count = exportService.exportOrders(null, null, null, FileFormat.CSV, output);
+
+        assertEquals(2, count);
+        assertEquals(
+            String.join(
+                "\n",
+                "id,orderDate,shippedDate,status,totalAmount,shippingCost,trackingNumber,customerId,shippingAddressId",
+                "1,2024-03-01T10:00:01Z,,NEW,10.00,,,,",
+                "2,2024-03-01T10:00:02Z,,NEW,10.00,4.50,\"1Z,\"\"42\"\"\",,",
+                ""
+            ),
+            output.toString(StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    void csvOfNoOrdersIsTheHeaderOnly() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long count = exportService.exportOrders(null, null, null, FileFormat.CSV, output);
+
+        assertEquals(0, count);
+        assertEquals(
+            "id,orderDate,shippedDate,status,totalAmount,shippingCost,trackingNumber,customerId,shippingAddressId\n",
+            output.toString(StandardCharsets.UTF_8)
+        );
+    }
+
+    private List<Long> exportedIds(Instant from, Instant to, OrderStatus status) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long count = exportService.exportOrders(from, to, status, FileFormat.NDJSON, output);
+        List<Long> ids = ndjson(output).stream().map(row -> row.get("id").asLong()).toList();
+        assertEquals(count, ids.size());
+        return ids;
+    }
+
+    private static List<JsonNode> ndjson(ByteArrayOutputStream output) throws IOException {
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                rows.add(OBJECT_MAPPER.readTree(line));
+            }
+        }
+        return rows;
+    }
+
+    private static void insertOrders(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            rows.add(new Object[] { id, LocalDateTime.ofInstant(ORDER_DATE.plusSeconds(id), ZoneOffset.UTC) });
+        }
+        new JdbcTemplate(database).batchUpdate(
+            "insert into jhi_order (id, order_date, status, total_amount, version) values (?, ?, 'NEW', 10, 0)",
+            rows
+        );
+    }
+}
@@ -0,0 +1,291 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import myapp.config.ApplicationProperties;
+import myapp.config.MigratedDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+public class IdempotencyServiceTest {
+
+    private static final String SCOPE = "order";
+
+    private static final String KEY = "3f1c7a52-7c1e-4d6b-9a0e-0d2b3c4d5e6f";
+
+    private static EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ApplicationProperties applicationProperties;
+
+    private IdempotencyService idempotencyService;
+
+    private final AtomicInteger creations = new AtomicInteger();
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        database.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(database);
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getIdempotency().setWaitTimeoutSeconds(5);
+        idempotencyService = newIdempotencyService();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void requestsWithoutKeyAreAlwaysExecuted() {
+        idempotencyService.execute(SCOPE, null, new Request("first"), Created.class, this::create);
+        idempotencyService.execute(SCOPE, " ", new Request("first"), Created.class, this::create);
+
+        assertEquals(2, creations.get());
+        assertEquals(0, keyCount());
+    }
+
+    @Test
+    void completedKeyIsReplayed() {
+        ResponseEntity<Created> first = idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+
+        ResponseEntity<Created> replayed = idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+        // from the database, as on another node
+        ResponseEntity<Created> replayedByOtherInstance = newIdempotencyService()
+            .execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+
+        assertEquals(1, creations.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        for (ResponseEntity<Created> response : List.of(replayed, replayedByOtherInstance)) {
+            assertEquals(HttpStatus.CREATED, response.getStatusCode());
+            assertEquals(first.getBody(), response.getBody());
+            assertEquals(first.getHeaders().getLocation(), response.getHeaders().getLocation());
+            assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        }
+    }
+
+    @Test
+    void keysOfOtherScopesDoNotCollide() {
+        idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+        idempotencyService.execute("product", KEY, new Request("first"), Created.class, this::create);
+
+        assertEquals(2, creations.get());
+    }
+
+    @Test
+    void keyReusedWithAnotherBodyIsRejected() {
+        idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+            idempotencyService.execute(SCOPE, KEY, new Request("second"), Created.class, this::create)
+        );
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+            newIdempotencyService().execute(SCOPE, KEY, new Request("second"), Created.class, this::create)
+        );
+        assertEquals(1, creations.get());
+    }
+
+    @Test
+    void failedCreationReleasesTheKey() {
+        assertThrows(IllegalStateException.class, () ->
+            idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, () -> {
+                throw new IllegalStateException("failed");
+            })
+        );
+        assertEquals(0, keyCount());
+
+        ResponseEntity<Created> response = idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+
+        assertNull(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, creations.get());
+    }
+
+    @Test
+    void concurrentRequestsWithTheSameKeyCreateOnce() throws InterruptedException {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch creationAllowed = new CountDownLatch(1);
+        AtomicReference<ResponseEntity<Created>> first = new AtomicReference<>();
+        AtomicReference<ResponseEntity<Created>> duplicate = new AtomicReference<>();
+
+        Thread firstThread = start(() ->
+            first.set(
+                idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, () -> {
+                    creating.countDown();
+                    await(creationAllowed);
+                    return create();
+                })
+            )
+        );
+        await(creating);
+        Thread duplicateThread = start(() ->
+            duplicate.set(idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create))
+        );
+        awaitWaiting(duplicateThread);
+        creationAllowed.countDown();
+        firstThread.join();
+        duplicateThread.join();
+
+        assertEquals(1, creations.get());
+        assertEquals(first.get().getBody(), duplicate.get().getBody());
+        assertEquals("true", duplicate.get().getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void concurrentRequestOnAnotherNodeWaitsForTheFirstOne() throws InterruptedException {
+        IdempotencyService otherNode = newIdempotencyService();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch creationAllowed = new CountDownLatch(1);
+        AtomicReference<ResponseEntity<Created>> first = new AtomicReference<>();
+        AtomicReference<ResponseEntity<Created>> duplicate = new AtomicReference<>();
+
+        Thread firstThread = start(() ->
+            first.set(
+                idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, () -> {
+                    creating.countDown();
+                    await(creationAllowed);
+                    return create();
+                })
+            )
+        );
+        await(creating);
+        // blocked on the row of the key
+        Thread duplicateThread = start(() -> duplicate.set(otherNode.execute(SCOPE, KEY, new Request("first"), Created.class, this::create)));
+        awaitWaiting(duplicateThread);
+        creationAllowed.countDown();
+        firstThread.join();
+        duplicateThread.join();
+
+        assertEquals(1, creations.get());
+        assertEquals(first.get().getBody(), duplicate.get().getBody());
+        assertEquals("true", duplicate.get().getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void requestStillInProgressAfterTheWaitTimeoutIsRejected() throws InterruptedException {
+        applicationProperties.getIdempotency().setWaitTimeoutSeconds(1);
+        idempotencyService = newIdempotencyService();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch creationAllowed = new CountDownLatch(1);
+
+        Thread firstThread = start(() ->
+            idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, () -> {
+                creating.countDown();
+                await(creationAllowed);
+                return create();
+            })
+        );
+        await(creating);
+
+        assertThrows(IdempotencyKeyInUseException.class, () ->
+            idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create)
+        );
+        creationAllowed.countDown();
+        firstThread.join();
+        assertEquals(1, creations.get());
+    }
+
+    @Test
+    void expiredKeyCanBeUsedAgain() {
+        applicationProperties.getIdempotency().setTimeToLiveSeconds(0);
+        idempotencyService = newIdempotencyService();
+
+        idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+        ResponseEntity<Created> response = idempotencyService.execute(SCOPE, KEY, new Request("second"), Created.class, this::create);
+
+        assertEquals(2, creations.get());
+        assertNull(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, keyCount());
+    }
+
+    @Test
+    void expiredKeysAreRemoved() {
+        idempotencyService.execute(SCOPE, KEY, new Request("first"), Created.class, this::create);
+        jdbcTemplate.update(
+            "insert into idempotency_key (request_key, fingerprint, status_code, created_date, expires_at) values ('expired', 'x', 201, ?, ?)",
+            toDatabase(Instant.now().minusSeconds(7200)),
+            toDatabase(Instant.now().minusSeconds(3600))
+        );
+
+        idempotencyService.removeExpiredKeys();
+
+        assertEquals(1, keyCount());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from idempotency_key where request_key = 'expired'", Integer.class));
+    }
+
+    private IdempotencyService newIdempotencyService() {
+        return new IdempotencyService(jdbcTemplate, new DataSourceTransactionManager(database), new ObjectMapper(), applicationProperties);
+    }
+
+    private ResponseEntity<Created> create() {
+        long id = creations.incrementAndGet();
+        return ResponseEntity.created(URI.create("/api/orders/" + id))
+            .header(HttpHeaders.CACHE_CONTROL, "no-store")
+            .body(new Created(id, "order " + id));
+    }
+
+    private int keyCount() {
+        return jdbcTemplate.queryForObject("select count(*) from idempotency_key", Integer.class);
+    }
+
+    private static LocalDateTime toDatabase(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static void awaitWaiting(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+            if (System.nanoTime() > deadline || thread.getState() == Thread.State.TERMINATED) {
+                fail("not waiting: " + thread.getState());
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record Request(String name) {}
+
+    record Created(Long id, String name) {}
+}
@@ -0,0 +1,301 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import myapp.config.ApplicationProperties;
+import myapp.config.MigratedDatabase;
+import myapp.domain.enumeration.ProductStatus;
+import myapp.service.dto.InventoryReservationDTO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class InventoryServiceTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    private static EmbeddedDatabase database;
+
+    private CountingJdbcTemplate jdbcTemplate;
+
+    private ApplicationProperties applicationProperties;
+
+    private InventoryService inventoryService;
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        database.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new CountingJdbcTemplate(database);
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getInventory().setReservationTimeToLiveSeconds(60);
+        inventoryService = newInventoryService();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void reservationsWaitingForTheLockAreAppliedWithOneDecrement() throws InterruptedException {
+        insertProduct(10);
+        jdbcTemplate.blockNextDecrement();
+        ConcurrentLinkedQueue<InventoryReservationDTO> reserved = new ConcurrentLinkedQueue<>();
+
+        Thread first = start(() -> reserved.add(inventoryService.reserve(PRODUCT_ID, 1)));
+        jdbcTemplate.awaitBlockedDecrement();
+        List<Thread> waiting = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiting.add(start(() -> reserved.add(inventoryService.reserve(PRODUCT_ID, 2))));
+        }
+        awaitParked(waiting);
+        jdbcTemplate.unblockDecrement();
+        first.join();
+        for (Thread thread : waiting) {
+            thread.join();
+        }
+
+        assertEquals(5, reserved.size());
+        assertEquals(2, jdbcTemplate.decrements.get());
+        assertEquals(1, stock());
+        assertEquals(ProductStatus.IN_STOCK.name(), status());
+        assertEquals(5, reservationCount());
+        assertTrue(queues().isEmpty());
+    }
+
+    @Test
+    void reservationsNotAllFittingAreServedInArrivalOrder() throws InterruptedException {
+        insertProduct(4);
+        jdbcTemplate.blockNextDecrement();
+        List<Object> results = new ArrayList<>(List.of("none", "none"));
+
+        Thread first = start(() -> inventoryService.reserve(PRODUCT_ID, 1));
+        jdbcTemplate.awaitBlockedDecrement();
+        List<Thread> waiting = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            Thread thread = start(() -> {
+                try {
+                    results.set(index, inventoryService.reserve(PRODUCT_ID, 2));
+                } catch (InsufficientStockException e) {
+                    results.set(index, e);
+                }
+            });
+            // queued one after the other
+            awaitParked(List.of(thread));
+            waiting.add(thread);
+        }
+        jdbcTemplate.unblockDecrement();
+        first.join();
+        for (Thread thread : waiting) {
+            thread.join();
+        }
+
+        assertInstanceOf(InventoryReservationDTO.class, results.get(0));
+        assertInstanceOf(InsufficientStockException.class, results.get(1));
+        assertEquals(1, stock());
+        assertEquals(2, reservationCount());
+    }
+
+    @Test
+    void lastUnitsFlipTheProductOutOfStockAndReleaseRestoresIt() {
+        insertProduct(3);
+
+        InventoryReservationDTO reservation = inventoryService.reserve(PRODUCT_ID, 3);
+
+        assertEquals(0, stock());
+        assertEquals(ProductStatus.OUT_OF_STOCK.name(), status());
+        assertThrows(InsufficientStockException.class, () -> inventoryService.reserve(PRODUCT_ID, 1));
+
+        assertEquals(reservation, inventoryService.release(reservation.id()).orElseThrow());
+
+        assertEquals(3, stock());
+        assertEquals(ProductStatus.IN_STOCK.name(), status());
+        assertEquals(0, reservationCount());
+        assertTrue(inventoryService.release(reservation.id()).isEmpty());
+        assertEquals(3, stock());
+    }
+
+    @Test
+    void committedStockIsNotGivenBack() {
+        insertProduct(5);
+        InventoryReservationDTO reservation = inventoryService.reserve(PRODUCT_ID, 2);
+
+        assertEquals(reservation, inventoryService.commit(reservation.id()).orElseThrow());
+
+        assertEquals(3, stock());
+        assertEquals(0, reservationCount());
+        assertTrue(inventoryService.release(reservation.id()).isEmpty());
+        assertEquals(3, stock());
+    }
+
+    @Test
+    void reservationIsReleasedByAnotherInstance() {
+        insertProduct(5);
+        InventoryReservationDTO reservation = inventoryService.reserve(PRODUCT_ID, 2);
+
+        // as after a restart, or on another node
+        InventoryService otherInstance = newInventoryService();
+
+        assertEquals(reservation, otherInstance.release(reservation.id()).orElseThrow());
+        assertEquals(5, stock());
+    }
+
+    @Test
+    void sweepReleasesOnlyExpiredReservations() {
+        insertProduct(5);
+        InventoryReservationDTO expiring = inventoryService.reserve(PRODUCT_ID, 2);
+        applicationProperties.getInventory().setReservationTimeToLiveSeconds(3600);
+        InventoryReservationDTO kept = newInventoryService().reserve(PRODUCT_ID, 1);
+
+        inventoryService.releaseExpiredReservations(expiring.expiresAt().plusSeconds(1));
+
+        assertEquals(4, stock());
+        assertEquals(1, reservationCount());
+        assertTrue(inventoryService.commit(expiring.id()).isEmpty());
+        assertTrue(inventoryService.commit(kept.id()).isPresent());
+        assertEquals(4, stock());
+    }
+
+    @Test
+    void expiredReservationIsGivenBackInsteadOfCommitted() {
+        applicationProperties.getInventory().setReservationTimeToLiveSeconds(-1);
+        inventoryService = newInventoryService();
+        insertProduct(5);
+        InventoryReservationDTO reservation = inventoryService.reserve(PRODUCT_ID, 2);
+        assertTrue(reservation.expiresAt().isBefore(Instant.now()));
+
+        assertTrue(inventoryService.commit(reservation.id()).isEmpty());
+
+        assertEquals(5, stock());
+        assertEquals(0, reservationCount());
+    }
+
+    private InventoryService newInventoryService() {
+        return new InventoryService(
+            jdbcTemplate,
+            new DataSourceTransactionManager(database),
+            mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS),
+            mock(EntityTagService.class),
+            applicationProperties
+        );
+    }
+
+    private void insertProduct(int quantityInStock) {
+        jdbcTemplate.update(
+            "insert into product (id, title, price, quantity_in_stock, version, status, date_added) values (?, 'Product', 10, ?, 0, ?, ?)",
+            PRODUCT_ID,
+            quantityInStock,
+            ProductStatus.IN_STOCK.name(),
+            LocalDateTime.now(ZoneOffset.UTC)
+        );
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("select quantity_in_stock from product where id = ?", Integer.class, PRODUCT_ID);
+    }
+
+    private String status() {
+        return jdbcTemplate.queryForObject("select status from product where id = ?", String.class, PRODUCT_ID);
+    }
+
+    private int reservationCount() {
+        return jdbcTemplate.queryForObject("select count(*) from inventory_reservation", Integer.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, ?> queues() {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(inventoryService, "queues");
+    }
+
+    private static void awaitParked(List<Thread> threads) {
+        while (threads.stream().anyMatch(thread -> thread.getState() != Thread.State.WAITING)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Counts the stock decrements, and can hold one of them, and so the lock of its product, until told to go on.
+     */
+    private static final class CountingJdbcTemplate extends JdbcTemplate {
+
+        private final AtomicInteger decrements = new AtomicInteger();
+
+        private volatile CountDownLatch blocked;
+
+        private volatile CountDownLatch unblocked;
+
+        private CountingJdbcTemplate(EmbeddedDatabase database) {
+            super(database);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("update product set quantity_in_stock = quantity_in_stock -")) {
+                decrements.incrementAndGet();
+                CountDownLatch toUnblock = unblocked;
+                if (toUnblock != null && blocked.getCount() > 0) {
+                    blocked.countDown();
+                    await(toUnblock);
+                }
+            }
+            return super.update(sql, args);
+        }
+
+        private void blockNextDecrement() {
+            blocked = new CountDownLatch(1);
+            unblocked = new CountDownLatch(1);
+        }
+
+        private void awaitBlockedDecrement() {
+            await(blocked);
+        }
+
+        private void unblockDecrement() {
+            unblocked.countDown();
+        }
+
+        private static void await(CountDownLatch latch) {
+            try {
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import myapp.config.ApplicationProperties;
+import myapp.config.MigratedDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import tech.jhipster.config.JHipsterProperties;
+
+public class MailOutboxDispatcherTest {
+
+    private static final Instant DUE = Instant.now().minusSeconds(60);
+
+    private static EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ApplicationProperties applicationProperties;
+
+    private SimpleMeterRegistry registry;
+
+    private final List<MailOutboxDispatcher> dispatchers = new ArrayList<>();
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        database.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(database);
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getMailOutbox().setConnections(2);
+        applicationProperties.getMailOutbox().setMaxAttempts(4);
+        applicationProperties.getMailOutbox().setInitialBackoffSeconds(10);
+        applicationProperties.getMailOutbox().setMaxBackoffSeconds(30);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dispatchers.forEach(MailOutboxDispatcher::shutdown);
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void sentEmailsAreDeleted() {
+        insertMail("alice@localhost", 0, DUE);
+        insertMail("bob@localhost", 0, DUE);
+        JavaMailSender javaMailSender = javaMailSender();
+        List<String> sent = recordSent(javaMailSender);
+
+        newDispatcher(javaMailSender).dispatch();
+
+        assertEquals(List.of("alice@localhost", "bob@localhost"), sent.stream().sorted().toList());
+        assertEquals(0, mailCount());
+        assertEquals(2, dispatched("sent"));
+        assertEquals(0, registry.get(MailOutboxDispatcher.PENDING_METER_NAME).gauge().value());
+    }
+
+    @Test
+    void emailsNotDueAreNotSent() {
+        insertMail("alice@localhost", 0, Instant.now().plusSeconds(60));
+        insertMail("bob@localhost", 3, null);
+        JavaMailSender javaMailSender = javaMailSender();
+
+        newDispatcher(javaMailSender).dispatch();
+
+        verify(javaMailSender, never()).send(any(MimeMessage[].class));
+        assertEquals(2, mailCount());
+        assertEquals(1, registry.get(MailOutboxDispatcher.PENDING_METER_NAME).gauge().value());
+    }
+
+    @Test
+    void emailsClaimedByADispatcherAreNotSentByAnother() throws InterruptedException {
+        applicationProperties.getMailOutbox().setConnections(1);
+        for (int i = 0; i < 3; i++) {
+            insertMail("user-" + i + "@localhost", 0, DUE);
+        }
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch sendingAllowed = new CountDownLatch(1);
+        JavaMailSender slowSender = javaMailSender();
+        List<String> sentSlowly = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            sending.countDown();
+            await(sendingAllowed);
+            for (Object message : invocation.getArguments()) {
+                sentSlowly.add(recipientOf((MimeMessage) message));
+            }
+            return null;
+        })
+            .when(slowSender)
+            .send(any(MimeMessage[].class));
+        JavaMailSender otherSender = javaMailSender();
+        MailOutboxDispatcher first = newDispatcher(slowSender);
+        MailOutboxDispatcher other = newDispatcher(otherSender);
+
+        Thread thread = new Thread(first::dispatch);
+        thread.start();
+        await(sending);
+        other.dispatch();
+        sendingAllowed.countDown();
+        thread.join();
+
+        verify(otherSender, never()).send(any(MimeMessage[].class));
+        assertEquals(3, sentSlowly.size());
+        assertEquals(0, mailCount());
+    }
+
+    @Test
+    void emailsClaimedByADispatcherWhichDiedAreSentOnceTheirLeaseExpires() {
+        long id = insertMail("alice@localhost", 0, DUE);
+        // as claimed by a node which stopped before sending
+        jdbcTemplate.update("update mail_outbox set next_attempt_at = ? where id = ?", toDatabase(Instant.now().plusSeconds(300)), id);
+        JavaMailSender javaMailSender = javaMailSender();
+        List<String> sent = recordSent(javaMailSender);
+
+        newDispatcher(javaMailSender).dispatch();
+        assertTrue(sent.isEmpty());
+
+        jdbcTemplate.update("update mail_outbox set next_attempt_at = ? where id = ?", toDatabase(DUE), id);
+        newDispatcher(javaMailSender).dispatch();
+
+        assertEquals(List.of("alice@localhost"), sent);
+        assertEquals(0, mailCount());
+    }
+
+    @Test
+    void onlyTheEmailsFailingInABatchAreRetried() {
+        applicationProperties.getMailOutbox().setConnections(1);
+        insertMail("alice@localhost", 0, DUE);
+        long failing = insertMail("unknown@localhost", 0, DUE);
+        insertMail("bob@localhost", 0, DUE);
+        JavaMailSender javaMailSender = javaMailSender();
+        doAnswer(invocation -> {
+            for (Object message : invocation.getArguments()) {
+                if (recipientOf((MimeMessage) message).startsWith("unknown")) {
+                    throw new MailSendException(Map.of(message, new IllegalStateException("550 no such user")));
+                }
+            }
+            return null;
+        })
+            .when(javaMailSender)
+            .send(any(MimeMessage[].class));
+        Instant before = Instant.now();
+
+        newDispatcher(javaMailSender).dispatch();
+
+        Instant after = Instant.now();
+        assertEquals(1, mailCount());
+        Map<String, Object> retried = jdbcTemplate.queryForMap("select * from mail_outbox where id = ?", failing);
+        assertEquals(1, retried.get("ATTEMPTS"));
+        assertEquals("550 no such user", retried.get("LAST_ERROR"));
+        assertNextAttemptBetween(failing, before.plusSeconds(10), after.plusSeconds(10));
+        assertEquals(2, dispatched("sent"));
+        assertEquals(1, dispatched("retried"));
+    }
+
+    @Test
+    void failingEmailsAreRetriedWithABackoffThenGivenUpOn() {
+        long first = insertMail("user-1@localhost", 0, DUE);
+        long second = insertMail("user-2@localhost", 1, DUE);
+        long capped = insertMail("user-3@localhost", 2, DUE);
+        long last = insertMail("user-4@localhost", 3, DUE);
+        JavaMailSender javaMailSender = javaMailSender();
+        doAnswer(invocation -> {
+            throw new MailSendException("Mail server connection failed");
+        })
+            .when(javaMailSender)
+            .send(any(MimeMessage[].class));
+        Instant before = Instant.now();
+
+        newDispatcher(javaMailSender).dispatch();
+
+        Instant after = Instant.now();
+        // 10 seconds, doubled per failed attempt, up to 30 seconds
+        assertNextAttemptBetween(first, before.plusSeconds(10), after.plusSeconds(10));
+        assertNextAttemptBetween(second, before.plusSeconds(20), after.plusSeconds(20));
+        assertNextAttemptBetween(capped, before.plusSeconds(30), after.plusSeconds(30));
+        assertNull(nextAttempt(last));
+        assertEquals(4, jdbcTemplate.queryForObject("select attempts from mail_outbox where id = ?", Integer.class, last));
+        assertEquals(4, mailCount());
+        assertEquals(3, dispatched("retried"));
+        assertEquals(1, dispatched("abandoned"));
+        assertEquals(3, registry.get(MailOutboxDispatcher.PENDING_METER_NAME).gauge().value());
+
+        // nothing due any longer
+        newDispatcher(javaMailSender).dispatch();
+        assertEquals(3, dispatched("retried"));
+    }
+
+    private MailOutboxDispatcher newDispatcher(JavaMailSender javaMailSender) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getMail().setFrom("test@localhost");
+        MailOutboxDispatcher dispatcher = new MailOutboxDispatcher(
+            jdbcTemplate,
+            new DataSourceTransactionManager(database),
+            javaMailSender,
+            jHipsterProperties,
+            registry,
+            applicationProperties
+        );
+        dispatchers.add(dispatcher);
+        return dispatcher;
+    }
+
+    private static JavaMailSender javaMailSender() {
+        JavaMailSender javaMailSender = mock(JavaMailSender.class);
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+        return javaMailSender;
+    }
+
+    private static List<String> recordSent(JavaMailSender javaMailSender) {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            for (Object message : invocation.getArguments()) {
+                sent.add(recipientOf((MimeMessage) message));
+            }
+            return null;
+        })
+            .when(javaMailSender)
+            .send(any(MimeMessage[].class));
+        return sent;
+    }
+
+    private static String recipientOf(MimeMessage message) throws Exception {
+        return message.getAllRecipients()[0].toString();
+    }
+
+    private long insertMail(String recipient, int attempts, Instant nextAttemptAt) {
+        jdbcTemplate.update(
+            "insert into mail_outbox (recipient, subject, content, multipart, html, attempts, created_date, next_attempt_at) " +
+            "values (?, 'subject', 'content', false, true, ?, ?, ?)",
+            recipient,
+            attempts,
+            toDatabase(DUE),
+            nextAttemptAt == null ? null : toDatabase(nextAttemptAt)
+        );
+        return jdbcTemplate.queryForObject("select max(id) from mail_outbox", Long.class);
+    }
+
+    private int mailCount() {
+        return jdbcTemplate.queryForObject("select count(*) from mail_outbox", Integer.class);
+    }
+
+    private Instant nextAttempt(long id) {
+        LocalDateTime nextAttempt = jdbcTemplate.queryForObject(
+            "select next_attempt_at from mail_outbox where id = ?",
+            LocalDateTime.class,
+            id
+        );
+        return nextAttempt == null ? null : nextAttempt.toInstant(ZoneOffset.UTC);
+    }
+
+    private void assertNextAttemptBetween(long id, Instant from, Instant to) {
+        Instant nextAttempt = nextAttempt(id);
+        // as truncated by the database
+        assertFalse(nextAttempt.isBefore(from.minus(Duration.ofMillis(1))), nextAttempt + " before " + from);
+        assertFalse(nextAttempt.isAfter(to), nextAttempt + " after " + to);
+    }
+
+    private double dispatched(String outcome) {
+        return registry
+            .get(MailOutboxDispatcher.DISPATCHED_METER_NAME)
+            .tag(MailOutboxDispatcher.DISPATCHED_METER_OUTCOME_DIMENSION, outcome)
+            .counter()
+            .count();
+    }
+
+    private static LocalDateTime toDatabase(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import myapp.domain.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafProperties;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.FileTemplateResolver;
+import org.thymeleaf.templateresource.ITemplateResource;
+import tech.jhipster.config.JHipsterProperties;
+
+public class MailTemplateServiceTest {
+
+    private static final String BASE_URL = "http://127.0.0.1:8080";
+
+    private static final String TITLE_KEY = "email.activation.title";
+
+    private final MessageSource messageSource = messageSource();
+
+    private final AtomicInteger resolutions = new AtomicInteger();
+
+    @TempDir
+    Path templates;
+
+    @Test
+    void compiledEmailsAreTheOnesRenderedByThymeleaf() throws IOException {
+        for (Path directory : List.of(Path.of("src/main/resources/templates"), Path.of("src/test/resources/templates"))) {
+            MailTemplateService mailTemplateService = mailTemplateService(directory);
+            SpringTemplateEngine thymeleaf = templateEngine(directory, new AtomicInteger());
+            for (String templateName : templateNames(directory.resolve("mail"))) {
+                List<User> users = users();
+                List<String> expected = users.stream().map(user -> process(thymeleaf, templateName, user)).toList();
+                // the first renders are checked, the following ones trusted
+                for (int i = 0; i < 3; i++) {
+                    List<MailTemplateService.RenderedMail> mails = mailTemplateService.renderAll(users, templateName, TITLE_KEY);
+                    for (int j = 0; j < users.size(); j++) {
+                        assertRendered(expected.get(j), users.get(j), mails.get(j));
+                        assertRendered(expected.get(j), users.get(j), mailTemplateService.render(users.get(j), templateName, TITLE_KEY));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void trustedTemplateIsNoLongerRenderedByThymeleaf() {
+        Path directory = Path.of("src/main/resources/templates");
+        MailTemplateService mailTemplateService = mailTemplateService(directory);
+        SpringTemplateEngine thymeleaf = templateEngine(directory, new AtomicInteger());
+        for (int i = 0; i < 3; i++) {
+            mailTemplateService.render(user("user-" + i, "en"), "mail/activationEmail", TITLE_KEY);
+        }
+        int checked = resolutions.get();
+
+        for (int i = 3; i < 10; i++) {
+            User user = user("user-" + i, "en");
+            assertRendered(
+                process(thymeleaf, "mail/activationEmail", user),
+                user,
+                mailTemplateService.render(user, "mail/activationEmail", TITLE_KEY)
+            );
+        }
+
+        assertEquals(checked, resolutions.get());
+    }
+
+    @Test
+    void templateDependingOnOtherPropertiesIsRenderedByThymeleaf() throws IOException {
+        writeTemplate("<p th:if=\"${user.activated}\">Active</p><p th:text=\"${user.login}\">login</p>");
+        MailTemplateService mailTemplateService = mailTemplateService(templates);
+        User inactive = user("inactive", "en");
+        User active = user("active", "en");
+        active.setActivated(true);
+
+        assertEquals("<p>inactive</p>", mailTemplateService.render(inactive, "mail/customEmail", TITLE_KEY).content());
+        assertEquals("<p>Active</p><p>active</p>", mailTemplateService.render(active, "mail/customEmail", TITLE_KEY).content());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("<p>inactive</p>", mailTemplateService.render(inactive, "mail/customEmail", TITLE_KEY).content());
+            assertEquals("<p>Active</p><p>active</p>", mailTemplateService.render(active, "mail/customEmail", TITLE_KEY).content());
+        }
+    }
+
+    @Test
+    void templateNotEscapingThePropertiesIsNotCompiled() throws IOException {
+        writeTemplate("<p th:utext=\"${user.firstName}\">first name</p>");
+        MailTemplateService mailTemplateService = mailTemplateService(templates);
+        User user = user("john", "en");
+
+        for (int i = 0; i < 5; i++) {
+            user.setFirstName("<b>John " + i + "</b>");
+            assertEquals("<p><b>John " + i + "</b></p>", mailTemplateService.render(user, "mail/customEmail", TITLE_KEY).content());
+        }
+    }
+
+    private void assertRendered(String expected, User user, MailTemplateService.RenderedMail mail) {
+        assertEquals(expected, mail.content(), user.getLogin());
+        assertEquals(messageSource.getMessage(TITLE_KEY, null, Locale.forLanguageTag(user.getLangKey())), mail.subject());
+        assertEquals(user.getEmail(), mail.to());
+    }
+
+    private static String process(SpringTemplateEngine thymeleaf, String templateName, User user) {
+        Context context = new Context(Locale.forLanguageTag(user.getLangKey()));
+        context.setVariables(Map.of("user", user, "baseUrl", BASE_URL));
+        return thymeleaf.process(templateName, context);
+    }
+
+    private MailTemplateService mailTemplateService(Path directory) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getMail().setBaseUrl(BASE_URL);
+        ThymeleafProperties thymeleafProperties = new ThymeleafProperties();
+        thymeleafProperties.setCache(true);
+        return new MailTemplateService(templateEngine(directory, resolutions), messageSource, jHipsterProperties, thymeleafProperties);
+    }
+
+    private SpringTemplateEngine templateEngine(Path directory, AtomicInteger resolutions) {
+        FileTemplateResolver templateResolver = new FileTemplateResolver() {
+            @Override
+            protected ITemplateResource computeTemplateResource(
+                IEngineConfiguration configuration,
+                String ownerTemplate,
+                String template,
+                String resourceName,
+                String characterEncoding,
+                Map<String, Object> templateResolutionAttributes
+            ) {
+                resolutions.incrementAndGet();
+                return super.computeTemplateResource(
+                    configuration,
+                    ownerTemplate,
+                    template,
+                    resourceName,
+                    characterEncoding,
+                    templateResolutionAttributes
+                );
+            }
+        };
+        templateResolver.setPrefix(directory + "/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        templateResolver.setCacheable(false);
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+        return templateEngine;
+    }
+
+    private void writeTemplate(String content) throws IOException {
+        Files.createDirectories(templates.resolve("mail"));
+        Files.writeString(templates.resolve("mail/customEmail.html"), content);
+    }
+
+    private static List<String> templateNames(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> "mail/" + file.getFileName().toString().replace(".html", "")).sorted().toList();
+        }
+    }
+
+    private static List<User> users() {
+        List<User> users = new ArrayList<>();
+        users.add(user("john", "en"));
+        users.add(user("jean", "fr"));
+        User special = user("o'brien<&>\"{0}", "en");
+        special.setFirstName("Zoë & <Co>");
+        special.setActivationKey("a&b=c d#e'f\"");
+        special.setResetKey("%20<>{1}");
+        users.add(special);
+        User withoutKeys = user("nokeys", "en");
+        withoutKeys.setActivationKey(null);
+        withoutKeys.setResetKey(null);
+        users.add(withoutKeys);
+        User withoutLogin = user(null, "en");
+        withoutLogin.setFirstName(null);
+        withoutLogin.setLastName(null);
+        users.add(withoutLogin);
+        return users;
+    }
+
+    private static User user(String login, String langKey) {
+        User user = new User();
+        user.setLogin(login);
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setEmail((login == null ? "anonymous" : "user" + Math.abs(login.hashCode())) + "@localhost");
+        user.setLangKey(langKey);
+        user.setActivationKey("activation-" + login);
+        user.setResetKey("reset-" + login);
+        return user;
+    }
+
+    private static MessageSource messageSource() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("i18n/messages");
+        messageSource.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        messageSource.setFallbackToSystemLocale(false);
+        return messageSource;
+    }
+}
@@ -0,0 +1,51 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import myapp.domain.Order;
+import myapp.domain.enumeration.OrderStatus;
+import myapp.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderStatsService orderStatsService;
+
+    @InjectMocks
+    private OrderService orderService;
+
+    @Test
+    public void testPartialUpdateFollowsTransitions() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(new Order().id(1L).status(OrderStatus.PROCESSING)));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order result = orderService.partialUpdate(new Order().id(1L).status(OrderStatus.SHIPPED)).orElseThrow();
+
+        assertEquals(OrderStatus.SHIPPED, result.getStatus());
+    }
+
+    @Test
+    public void testPartialUpdateRejectsInvalidTransition() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(new Order().id(1L).status(OrderStatus.CANCELLED)));
+
+        assertThrows(
+            InvalidOrderStatusTransitionException.class,
+            () -> orderService.partialUpdate(new Order().id(1L).status(OrderStatus.SHIPPED))
+        );
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+}
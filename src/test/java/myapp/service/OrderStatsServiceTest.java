@@ -0,0 +1,343 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import myapp.config.MigratedDatabase;
+import myapp.domain.Customer;
+import myapp.domain.Order;
+import myapp.domain.enumeration.OrderStatus;
+import myapp.repository.OrderRepository;
+import myapp.service.dto.CustomerOrderStatsDTO;
+import myapp.service.dto.OrderStatsDTO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class OrderStatsServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2026, 10, 12);
+
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+    private static final LocalDate WEDNESDAY = MONDAY.plusDays(2);
+
+    private static EmbeddedDatabase database;
+
+    private RecordingJdbcTemplate jdbcTemplate;
+
+    private OrderStatsService orderStatsService;
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        database.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new RecordingJdbcTemplate(database);
+        for (long customerId : List.of(10L, 20L, 30L)) {
+            jdbcTemplate.update(
+                "insert into customer (id, first_name, last_name, email, version) values (?, 'First', 'Last', ?, 0)",
+                customerId,
+                "customer-" + customerId + "@localhost"
+            );
+        }
+        orderStatsService = new OrderStatsService(jdbcTemplate, new DataSourceTransactionManager(database));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void orderUpdateMarksItsOldAndNewDayAndCustomerStale() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order(1L, MONDAY, 10L)));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        OrderService orderService = new OrderService(orderRepository, orderStatsService);
+
+        orderService.update(order(1L, TUESDAY, 20L));
+
+        assertEquals(Set.of(MONDAY, TUESDAY), staleDays());
+        assertEquals(Set.of(10L, 20L), staleCustomers());
+    }
+
+    @Test
+    void orderPartialUpdateMarksItsOldAndNewDayStale() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order(1L, MONDAY, 10L)));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        OrderService orderService = new OrderService(orderRepository, orderStatsService);
+
+        orderService.partialUpdate(new Order().id(1L).orderDate(instant(WEDNESDAY)));
+
+        assertEquals(Set.of(MONDAY, WEDNESDAY), staleDays());
+        assertEquals(Set.of(10L), staleCustomers());
+    }
+
+    @Test
+    void rollupsAreOnlyMarkedStaleOnceTheTransactionCommits() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderStatsService.markStale(order(1L, MONDAY, 10L));
+            assertTrue(staleDays().isEmpty());
+            status.setRollbackOnly();
+        });
+        assertTrue(staleDays().isEmpty());
+        assertTrue(staleCustomers().isEmpty());
+
+        transactionTemplate.executeWithoutResult(status -> orderStatsService.markStale(order(1L, TUESDAY, 20L)));
+        assertEquals(Set.of(TUESDAY), staleDays());
+        assertEquals(Set.of(20L), staleCustomers());
+    }
+
+    @Test
+    void refreshRecomputesExactlyTheStaleRollups() {
+        insertOrder(1L, MONDAY, 10L, "100.00");
+        insertOrder(2L, MONDAY, 10L, "50.00");
+        insertOrder(3L, WEDNESDAY, 30L, "5.00");
+        orderStatsService.reconcileRollups();
+        // left as it is unless recomputed
+        jdbcTemplate.update("update order_daily_rollup set order_count = 99 where order_day = ?", WEDNESDAY);
+        jdbcTemplate.update("update order_customer_rollup set order_count = 99 where customer_id = 30");
+        Order before = order(2L, MONDAY, 10L);
+        jdbcTemplate.update("update jhi_order set order_date = ?, customer_id = 20 where id = 2", toDatabase(TUESDAY));
+        Order after = order(2L, TUESDAY, 20L);
+        jdbcTemplate.batches.clear();
+
+        orderStatsService.markStale(before);
+        orderStatsService.markStale(after);
+        orderStatsService.refreshStaleRollups();
+
+        assertEquals(Set.of(MONDAY, TUESDAY), Set.copyOf(jdbcTemplate.batches.get("merge into order_daily_rollup")));
+        assertEquals(Set.of(10L, 20L), Set.copyOf(jdbcTemplate.batches.get("merge into order_customer_rollup")));
+        assertTrue(staleDays().isEmpty());
+        assertTrue(staleCustomers().isEmpty());
+        assertEquals(
+            List.of(
+                new OrderStatsDTO(MONDAY, 1, new BigDecimal("100.00"), new BigDecimal("1.00")),
+                new OrderStatsDTO(TUESDAY, 1, new BigDecimal("50.00"), new BigDecimal("1.00")),
+                new OrderStatsDTO(WEDNESDAY, 99, new BigDecimal("5.00"), new BigDecimal("1.00"))
+            ),
+            orderStatsService.getStats(MONDAY, MONDAY.plusWeeks(1), OrderStatsService.Granularity.DAY)
+        );
+        assertEquals(
+            Optional.of(new CustomerOrderStatsDTO(10L, 1, new BigDecimal("100.00"), new BigDecimal("1.00"))),
+            orderStatsService.getCustomerStats(10L)
+        );
+        assertEquals(
+            Optional.of(new CustomerOrderStatsDTO(20L, 1, new BigDecimal("50.00"), new BigDecimal("1.00"))),
+            orderStatsService.getCustomerStats(20L)
+        );
+        assertEquals(99, orderStatsService.getCustomerStats(30L).orElseThrow().orderCount());
+    }
+
+    @Test
+    void rollupsOfADayWithoutOrdersLeftAreRemoved() {
+        insertOrder(1L, MONDAY, 10L, "100.00");
+        orderStatsService.reconcileRollups();
+        jdbcTemplate.update("delete from jhi_order where id = 1");
+
+        orderStatsService.markStale(order(1L, MONDAY, 10L));
+
+        assertTrue(orderStatsService.getStats(MONDAY, TUESDAY, OrderStatsService.Granularity.DAY).isEmpty());
+        assertTrue(orderStatsService.getCustomerStats(10L).isEmpty());
+    }
+
+    @Test
+    void failedRefreshKeepsTheRollupsStale() {
+        orderStatsService.markStale(order(1L, MONDAY, 10L));
+        jdbcTemplate.intercept("merge into order_customer_rollup", () -> {
+            throw new DataAccessResourceFailureException("unavailable");
+        });
+
+        assertThrows(DataAccessResourceFailureException.class, () -> orderStatsService.refreshStaleRollups());
+
+        assertEquals(Set.of(MONDAY), staleDays());
+        assertEquals(Set.of(10L), staleCustomers());
+    }
+
+    @Test
+    void statsAreReadAsTheyAreWhenTheRefreshFails() {
+        insertOrder(1L, MONDAY, 10L, "100.00");
+        orderStatsService.reconcileRollups();
+        insertOrder(2L, MONDAY, 10L, "50.00");
+        orderStatsService.markStale(order(2L, MONDAY, 10L));
+        jdbcTemplate.intercept("merge into order_daily_rollup", () -> {
+            throw new DataAccessResourceFailureException("unavailable");
+        });
+
+        assertEquals(
+            List.of(new OrderStatsDTO(MONDAY, 1, new BigDecimal("100.00"), new BigDecimal("1.00"))),
+            orderStatsService.getStats(MONDAY, TUESDAY, OrderStatsService.Granularity.DAY)
+        );
+        assertEquals(Set.of(MONDAY), staleDays());
+
+        assertEquals(2, orderStatsService.getStats(MONDAY, TUESDAY, OrderStatsService.Granularity.DAY).get(0).orderCount());
+        assertEquals(2, orderStatsService.getCustomerStats(10L).orElseThrow().orderCount());
+    }
+
+    @Test
+    void rollupRefreshedByAnotherNodeMeanwhileIsUpdated() {
+        OrderStatsService otherNode = new OrderStatsService(new JdbcTemplate(database), new DataSourceTransactionManager(database));
+        insertOrder(1L, MONDAY, 10L, "100.00");
+        orderStatsService.markStale(order(1L, MONDAY, 10L));
+        otherNode.markStale(order(1L, MONDAY, 10L));
+        // the other node inserts the rollups, and commits, once this one has started its refresh
+        jdbcTemplate.intercept("merge into order_daily_rollup", () -> {
+            Thread thread = new Thread(otherNode::refreshStaleRollups);
+            thread.start();
+            join(thread);
+        });
+
+        orderStatsService.refreshStaleRollups();
+
+        assertEquals(
+            List.of(new OrderStatsDTO(MONDAY, 1, new BigDecimal("100.00"), new BigDecimal("1.00"))),
+            orderStatsService.getStats(MONDAY, TUESDAY, OrderStatsService.Granularity.DAY)
+        );
+        assertEquals(1, orderStatsService.getCustomerStats(10L).orElseThrow().orderCount());
+    }
+
+    @Test
+    void refreshConflictingWithAnotherNodeIsRetried() {
+        insertOrder(1L, MONDAY, 10L, "100.00");
+        orderStatsService.markStale(order(1L, MONDAY, 10L));
+        jdbcTemplate.intercept("merge into order_customer_rollup", () -> {
+            throw new DuplicateKeyException("inserted by another node");
+        });
+
+        orderStatsService.refreshStaleRollups();
+
+        assertTrue(staleDays().isEmpty());
+        assertTrue(staleCustomers().isEmpty());
+        assertEquals(2, jdbcTemplate.batches.get("merge into order_customer_rollup").size());
+        assertEquals(1, orderStatsService.getCustomerStats(10L).orElseThrow().orderCount());
+    }
+
+    @Test
+    void statsAreGroupedByPeriod() {
+        insertOrder(1L, MONDAY, 10L, "100.00");
+        insertOrder(2L, WEDNESDAY, 10L, "50.00");
+        insertOrder(3L, MONDAY.plusWeeks(1), 10L, "5.00");
+        orderStatsService.reconcileRollups();
+
+        assertEquals(
+            List.of(
+                new OrderStatsDTO(MONDAY, 2, new BigDecimal("150.00"), new BigDecimal("2.00")),
+                new OrderStatsDTO(MONDAY.plusWeeks(1), 1, new BigDecimal("5.00"), new BigDecimal("1.00"))
+            ),
+            orderStatsService.getStats(MONDAY, MONDAY.plusMonths(1), OrderStatsService.Granularity.WEEK)
+        );
+        assertEquals(
+            List.of(new OrderStatsDTO(LocalDate.of(2026, 10, 1), 3, new BigDecimal("155.00"), new BigDecimal("3.00"))),
+            orderStatsService.getStats(MONDAY, MONDAY.plusMonths(1), OrderStatsService.Granularity.MONTH)
+        );
+    }
+
+    private void insertOrder(long id, LocalDate day, long customerId, String totalAmount) {
+        jdbcTemplate.update(
+            "insert into jhi_order (id, order_date, status, total_amount, shipping_cost, customer_id, version) values (?, ?, 'NEW', ?, 1, ?, 0)",
+            id,
+            toDatabase(day),
+            new BigDecimal(totalAmount),
+            customerId
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<LocalDate> staleDays() {
+        return (Set<LocalDate>) ReflectionTestUtils.getField(orderStatsService, "staleDays");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> staleCustomers() {
+        return (Set<Long>) ReflectionTestUtils.getField(orderStatsService, "staleCustomers");
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        assertEquals(Thread.State.TERMINATED, thread.getState());
+    }
+
+    private static Order order(long id, LocalDate day, long customerId) {
+        return new Order().id(id).orderDate(instant(day)).status(OrderStatus.NEW).customer(new Customer().id(customerId));
+    }
+
+    private static Instant instant(LocalDate day) {
+        // late in the day, still the same day in UTC
+        return day.atTime(23, 30).toInstant(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDatabase(LocalDate day) {
+        return LocalDateTime.ofInstant(instant(day), ZoneOffset.UTC);
+    }
+
+    /**
+     * Records the arguments of the batches run, by the first three words of their statement, and runs what is to happen
+     * before the next batch of a statement.
+     */
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+
+        private final Map<String, List<Object>> batches = new HashMap<>();
+
+        private final Map<String, Runnable> interceptors = new HashMap<>();
+
+        private RecordingJdbcTemplate(EmbeddedDatabase database) {
+            super(database);
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+            String statement = String.join(" ", Arrays.copyOf(sql.split(" "), 3));
+            batches.computeIfAbsent(statement, key -> new ArrayList<>()).addAll(batchArgs);
+            Runnable interceptor = interceptors.remove(statement);
+            if (interceptor != null) {
+                interceptor.run();
+            }
+            return super.batchUpdate(sql, batchArgs, batchSize, pss);
+        }
+
+        private void intercept(String statement, Runnable interceptor) {
+            interceptors.put(statement, interceptor);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import myapp.config.MigratedDatabase;
+import myapp.domain.Product;
+import myapp.domain.enumeration.ProductStatus;
+import myapp.service.dto.ProductImportReportDTO;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+public class ProductImportServiceTest {
+
+    private static final String CSV_HEADER = "title,price,status,dateAdded,quantityInStock,description\n";
+
+    private static EmbeddedDatabase database;
+
+    private static EntityManagerFactory entityManagerFactory;
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final ProductSearchService productSearchService = mock(ProductSearchService.class);
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+        entityManagerFactory = MigratedDatabase.entityManagerFactory(database, Map.of());
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        entityManagerFactory.close();
+        database.shutdown();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void csvRowsAreImported() throws IOException {
+        String csv =
+            CSV_HEADER +
+            "Desk lamp,19.90,IN_STOCK,2024-01-01T10:00:00Z,4,\n" +
+            "\"Chair, \"\"oak\"\"\",120,PREORDER,2024-01-02T10:00:00Z,,\n";
+
+        ProductImportReportDTO report = importProducts(csv, FileFormat.CSV);
+
+        assertEquals(new ProductImportReportDTO(2, 2, 0, List.of(), false), report);
+        List<Map<String, Object>> products = new JdbcTemplate(database).queryForList(
+            "select id, version, title, price, status, quantity_in_stock, date_added from product order by id"
+        );
+        assertEquals(2, products.size());
+        assertEquals("Desk lamp", products.get(0).get("TITLE"));
+        assertEquals(0, new BigDecimal("19.90").compareTo((BigDecimal) products.get(0).get("PRICE")));
+        assertEquals(4, products.get(0).get("QUANTITY_IN_STOCK"));
+        assertEquals("Chair, \"oak\"", products.get(1).get("TITLE"));
+        assertEquals("PREORDER", products.get(1).get("STATUS"));
+        assertNull(products.get(1).get("QUANTITY_IN_STOCK"));
+        assertEquals(0, products.get(1).get("VERSION"));
+        assertEquals(List.of("Desk lamp", "Chair, \"oak\""), indexedTitles());
+    }
+
+    @Test
+    void ndjsonRowsAreImportedSkippingBlankLines() throws IOException {
+        String ndjson =
+            "{\"title\":\"Desk lamp\",\"price\":19.9,\"status\":\"IN_STOCK\",\"dateAdded\":\"2024-01-01T10:00:00Z\"}\n" +
+            "\n" +
+            "{\"title\":\"Chair\",\"price\":120,\"status\":\"DISCONTINUED\",\"dateAdded\":\"2024-01-02T10:00:00Z\"," +
+            "\"dateModified\":\"2024-01-03T10:00:00Z\"}\n";
+
+        ProductImportReportDTO report = importProducts(ndjson, FileFormat.NDJSON);
+
+        assertEquals(new ProductImportReportDTO(2, 2, 0, List.of(), false), report);
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            List<Product> products = entityManager.createQuery("select p from Product p order by p.id", Product.class).getResultList();
+            assertEquals(List.of("Desk lamp", "Chair"), products.stream().map(Product::getTitle).toList());
+            assertEquals(Instant.parse("2024-01-01T10:00:00Z"), products.get(0).getDateAdded());
+            assertEquals(Instant.parse("2024-01-03T10:00:00Z"), products.get(1).getDateModified());
+            assertEquals(ProductStatus.DISCONTINUED, products.get(1).getStatus());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    void importedIdsAreAllocatedWithThoseOfTheEntity() throws IOException {
+        importProducts(CSV_HEADER + "Desk lamp,19.90,IN_STOCK,2024-01-01T10:00:00Z,,\n", FileFormat.CSV);
+        Product persisted = new Product().title("Chair").price(BigDecimal.TEN).status(ProductStatus.IN_STOCK).dateAdded(Instant.now());
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.persist(persisted);
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+        importProducts(CSV_HEADER + "Table,90,IN_STOCK,2024-01-01T10:00:00Z,,\n", FileFormat.CSV);
+
+        List<Long> ids = new JdbcTemplate(database).queryForList("select id from product order by title", Long.class);
+        assertEquals(3, ids.stream().distinct().count());
+        // from the sequence of the products, not from sequence_generator
+        assertTrue(ids.stream().allMatch(id -> id > 1_000_000), ids::toString);
+    }
+
+    @Test
+    void malformedAndInvalidRowsAreRejectedWithTheirNumber() throws IOException {
+        String ndjson =
+            "{\"title\":\"Desk lamp\",\"price\":19.9,\"status\":\"IN_STOCK\",\"dateAdded\":\"2024-01-01T10:00:00Z\"}\n" +
+            "{\"title\":\"Chair\",\n" +
+            "{\"title\":\"Chair\",\"price\":120,\"status\":\"SOLD\",\"dateAdded\":\"2024-01-02T10:00:00Z\"}\n" +
+            "{\"id\":5,\"title\":\"Table\",\"price\":90,\"status\":\"IN_STOCK\",\"dateAdded\":\"2024-01-02T10:00:00Z\"}\n" +
+            "{\"title\":\"Pen\",\"price\":0.5,\"status\":\"IN_STOCK\"}\n" +
+            "{\"title\":\"Shelf\",\"price\":45,\"status\":\"IN_STOCK\",\"dateAdded\":\"2024-01-03T10:00:00Z\"}\n";
+
+        ProductImportReportDTO report = importProducts(ndjson, FileFormat.NDJSON);
+
+        assertEquals(6, report.rows());
+        assertEquals(2, report.imported());
+        assertEquals(4, report.failed());
+        assertFalse(report.errorsTruncated());
+        assertEquals(List.of(2L, 3L, 4L, 5L), report.errors().stream().map(ProductImportReportDTO.RowError::row).toList());
+        assertEquals("A new product cannot already have an ID", report.errors().get(2).message());
+        assertEquals("dateAdded: must not be null, price: must be greater than or equal to 1", report.errors().get(3).message());
+        assertEquals(
+            List.of("Desk lamp", "Shelf"),
+            new JdbcTemplate(database).queryForList("select title from product order by id", String.class)
+        );
+    }
+
+    @Test
+    void csvRowWithTooManyColumnsIsRejected() throws IOException {
+        String csv =
+            CSV_HEADER +
+            "Desk lamp,19.90,IN_STOCK,2024-01-01T10:00:00Z,4,,extra\n" +
+            "Chair,120,IN_STOCK,2024-01-02T10:00:00Z,,\n" +
+            "Table,ninety,IN_STOCK,2024-01-02T10:00:00Z,,\n";
+
+        ProductImportReportDTO report = importProducts(csv, FileFormat.CSV);
+
+        assertEquals(3, report.rows());
+        assertEquals(1, report.imported());
+        assertEquals(List.of(1L, 3L), report.errors().stream().map(ProductImportReportDTO.RowError::row).toList());
+    }
+
+    @Test
+    void onlyTheFirstErrorsAreReported() throws IOException {
+        // more rows than a chunk, one in two without a title
+        String csv =
+            CSV_HEADER +
+            IntStream.rangeClosed(1, 2002)
+                .mapToObj(i -> (i % 2 == 0 ? "" : "Product " + i) + ",10,IN_STOCK,2024-01-01T10:00:00Z,,\n")
+                .collect(Collectors.joining());
+
+        ProductImportReportDTO report = importProducts(csv, FileFormat.CSV);
+
+        assertEquals(2002, report.rows());
+        assertEquals(1001, report.imported());
+        assertEquals(1001, report.failed());
+        assertEquals(1000, report.errors().size());
+        assertTrue(report.errorsTruncated());
+        assertEquals(2, report.errors().get(0).row());
+        assertEquals(2000, report.errors().get(999).row());
+    }
+
+    @Test
+    void rowsTheDatabaseRejectsDoNotPreventTheOthersFromBeingImported() throws IOException {
+        // the description is longer than its column, the wish list does not exist
+        String ndjson = IntStream.rangeClosed(1, 10)
+            .mapToObj(i ->
+                "{\"title\":\"Product " +
+                i +
+                "\",\"price\":10,\"status\":\"IN_STOCK\",\"dateAdded\":\"2024-01-01T10:00:00Z\"" +
+                (i == 3 ? ",\"description\":\"" + "d".repeat(300) + "\"" : "") +
+                (i == 8 ? ",\"wishList\":{\"id\":999999}" : "") +
+                "}\n"
+            )
+            .collect(Collectors.joining());
+
+        ProductImportReportDTO report = importProducts(ndjson, FileFormat.NDJSON);
+
+        assertEquals(10, report.rows());
+        assertEquals(8, report.imported());
+        assertEquals(List.of(3L, 8L), report.errors().stream().map(ProductImportReportDTO.RowError::row).toList());
+        assertTrue(report.errors().stream().allMatch(error -> error.message().startsWith("Could not be saved: ")));
+        assertEquals(8, new JdbcTemplate(database).queryForObject("select count(*) from product", Integer.class));
+        // only the committed products
+        assertEquals(8, indexedTitles().size());
+    }
+
+    @Test
+    void chunkFailingForAnotherReasonIsRejectedAsAWhole() throws IOException {
+        doThrow(new IllegalStateException("index unavailable")).when(productSearchService).indexAll(anyList());
+        String csv = CSV_HEADER + "Desk lamp,19.90,IN_STOCK,2024-01-01T10:00:00Z,,\n" + "Chair,120,IN_STOCK,2024-01-02T10:00:00Z,,\n";
+
+        ProductImportReportDTO report = importProducts(csv, FileFormat.CSV);
+
+        assertEquals(0, report.imported());
+        assertEquals(
+            List.of(
+                new ProductImportReportDTO.RowError(1, "Could not be saved: index unavailable"),
+                new ProductImportReportDTO.RowError(2, "Could not be saved: index unavailable")
+            ),
+            report.errors()
+        );
+        verify(productSearchService, times(1)).indexAll(anyList());
+        assertEquals(0, new JdbcTemplate(database).queryForObject("select count(*) from product", Integer.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> indexedTitles() {
+        ArgumentCaptor<List<Product>> products = ArgumentCaptor.forClass(List.class);
+        verify(productSearchService, atLeast(0)).indexAll(products.capture());
+        return products.getAllValues().stream().flatMap(List::stream).map(Product::getTitle).toList();
+    }
+
+    private ProductImportReportDTO importProducts(String input, FileFormat format) throws IOException {
+        return importService().importProducts(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    private ProductImportService importService() {
+        return new ProductImportService(
+            new ObjectMapper().registerModule(new JavaTimeModule()),
+            VALIDATOR,
+            new JpaTransactionManager(entityManagerFactory),
+            new JdbcTemplate(database),
+            SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory),
+            entityManagerFactory,
+            productSearchService
+        );
+    }
+}
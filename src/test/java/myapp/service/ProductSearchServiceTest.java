@@ -0,0 +1,97 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import myapp.domain.Product;
+import myapp.domain.enumeration.ProductStatus;
+import myapp.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductSearchServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSearchService productSearchService;
+
+    private final List<Product> products = new ArrayList<>();
+
+    private static Product product(Long id, String title, String keywords, String description) {
+        return new Product()
+            .id(id)
+            .title(title)
+            .keywords(keywords)
+            .description(description)
+            .price(BigDecimal.TEN)
+            .status(ProductStatus.IN_STOCK)
+            .dateAdded(Instant.now());
+    }
+
+    @BeforeEach
+    public void setUpIndex() {
+        products.add(product(1L, "Retro Game Console", "console, video game", "A console to play old cartridges."));
+        products.add(product(2L, "Game Controller", "gamepad", "Wireless controller compatible with the retro console."));
+        products.add(product(3L, "Wooden Table", "furniture", "A table for your living room."));
+        productSearchService.index(products.get(0));
+        productSearchService.indexAll(products.subList(1, products.size()));
+    }
+
+    private void stubRepository() {
+        when(productRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return products.stream().filter(product -> ids.contains(product.getId())).toList();
+        });
+    }
+
+    @Test
+    public void testSearchRanksTitleMatchesFirst() {
+        stubRepository();
+        Page<Product> page = productSearchService.search("console", PageRequest.of(0, 10));
+
+        assertEquals(2, page.getTotalElements());
+        assertEquals(List.of(1L, 2L), page.getContent().stream().map(Product::getId).toList());
+    }
+
+    @Test
+    public void testSearchRequiresEveryTerm() {
+        stubRepository();
+        Page<Product> page = productSearchService.search("Retro CONTROLLER", PageRequest.of(0, 10));
+
+        assertEquals(List.of(2L), page.getContent().stream().map(Product::getId).toList());
+    }
+
+    @Test
+    public void testSearchPagesRankedResults() {
+        stubRepository();
+        Page<Product> page = productSearchService.search("console", PageRequest.of(1, 1));
+
+        assertEquals(2, page.getTotalElements());
+        assertEquals(List.of(2L), page.getContent().stream().map(Product::getId).toList());
+    }
+
+    @Test
+    public void testIndexReplacesAndRemoveDropsProduct() {
+        productSearchService.index(product(3L, "Oak Table", "furniture", null));
+        assertTrue(productSearchService.search("living", PageRequest.of(0, 10)).isEmpty());
+
+        productSearchService.remove(1L);
+        productSearchService.remove(2L);
+        assertTrue(productSearchService.search("console", PageRequest.of(0, 10)).isEmpty());
+    }
+}
@@ -39,6 +39,15 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductSearchService productSearchService;
+
+    @Mock
+    private SingleFlightService singleFlightService;
+
+    @Mock
+    private EntityTagService entityTagService;
+
     @InjectMocks
     private ProductService productService; // Injects the mock into the service
 
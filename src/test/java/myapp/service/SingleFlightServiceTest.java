@@ -0,0 +1,123 @@
+package myapp.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import myapp.config.ApplicationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class SingleFlightServiceTest {
+
+    private static final int FOLLOWERS = 4;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry registry;
+
+    private ApplicationProperties applicationProperties;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+    }
+
+    @Test
+    void concurrentLookupsOfTheSameKeyShareOneCall() throws InterruptedException {
+        applicationProperties.getSingleFlight().setMaxWaitMillis(10000);
+        SingleFlightService singleFlightService = new SingleFlightService(transactionManager, registry, applicationProperties);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> lookup = () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "value";
+        };
+        ConcurrentLinkedQueue<String> results = new ConcurrentLinkedQueue<>();
+
+        Thread leader = start(() -> results.add(singleFlightService.execute("product", 1L, lookup)));
+        while (calls.get() == 0) {
+            Thread.onSpinWait();
+        }
+        List<Thread> followers = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(start(() -> results.add(singleFlightService.execute("product", 1L, lookup))));
+        }
+        // every follower is parked on the result of the leader
+        while (followers.stream().anyMatch(follower -> follower.getState() != Thread.State.TIMED_WAITING)) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        leader.join();
+        for (Thread follower : followers) {
+            follower.join();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(List.of("value", "value", "value", "value", "value"), List.copyOf(results));
+        assertEquals(1, count("leader"));
+        assertEquals(FOLLOWERS, count("follower"));
+    }
+
+    @Test
+    void followerRunsTheLookupItselfAfterTheMaxWait() throws InterruptedException {
+        applicationProperties.getSingleFlight().setMaxWaitMillis(10);
+        SingleFlightService singleFlightService = new SingleFlightService(transactionManager, registry, applicationProperties);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        Thread leader = start(() ->
+            singleFlightService.execute("category", 1L, () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "slow";
+            })
+        );
+        while (calls.get() == 0) {
+            Thread.onSpinWait();
+        }
+        String result = singleFlightService.execute("category", 1L, () -> "fast");
+        release.countDown();
+        leader.join();
+
+        assertEquals("fast", result);
+        assertEquals(1, count("timeout"));
+    }
+
+    private double count(String role) {
+        return registry
+            .get(SingleFlightService.LOOKUPS_METER_NAME)
+            .tag(SingleFlightService.LOOKUPS_METER_ROLE_DIMENSION, role)
+            .counter()
+            .count();
+    }
+
+    private static Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package myapp.web.filter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import myapp.config.ApplicationProperties;
+import myapp.web.rest.errors.ErrorConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RateLimitFilterTest {
+
+    private SimpleMeterRegistry registry;
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        ApplicationProperties.RateLimit.Policy policy = new ApplicationProperties.RateLimit.Policy();
+        policy.setName("authenticate-login");
+        policy.setMethod("POST");
+        policy.setPath("/api/authenticate");
+        policy.setKey(ApplicationProperties.RateLimit.Key.LOGIN);
+        policy.setCapacity(1);
+        policy.setRefillPerSecond(0.01);
+        ApplicationProperties.RateLimit rateLimit = new ApplicationProperties.RateLimit();
+        rateLimit.setPolicies(List.of(policy));
+        registry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(rateLimit, registry, new ObjectMapper());
+    }
+
+    @Test
+    void loginOverItsRateIsRejectedWhateverItsCase() throws Exception {
+        byte[] first = login("admin");
+        AtomicReference<byte[]> handled = new AtomicReference<>();
+
+        MockHttpServletResponse accepted = filter(request(first), (request, response) ->
+            handled.set(request.getInputStream().readAllBytes())
+        );
+        MockHttpServletResponse rejected = filter(request(login("ADMIN")), (request, response) -> fail("rejected request handled"));
+        MockHttpServletResponse otherLogin = filter(request(login("user")), (request, response) -> {});
+
+        assertEquals(HttpStatus.OK.value(), accepted.getStatus());
+        assertArrayEquals(first, handled.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), rejected.getStatus());
+        assertEquals("100", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON_VALUE, rejected.getContentType());
+        assertTrue(rejected.getContentAsString().contains(ErrorConstants.RATE_LIMITED_TYPE.toString()));
+        assertEquals(HttpStatus.OK.value(), otherLogin.getStatus());
+        assertEquals(
+            1,
+            registry
+                .get(RateLimitFilter.RATE_LIMITED_METER_NAME)
+                .tag(RateLimitFilter.RATE_LIMITED_METER_POLICY_DIMENSION, "authenticate-login")
+                .counter()
+                .count()
+        );
+    }
+
+    @Test
+    void largeBodyOfUnknownLengthIsHandledWhole() throws Exception {
+        String padding = "x".repeat(20000);
+        byte[] body = ("{\"username\":\"admin\",\"password\":\"" + padding + "\"}").getBytes(StandardCharsets.UTF_8);
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/authenticate") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.setContent(body);
+        AtomicReference<String> handled = new AtomicReference<>();
+
+        MockHttpServletResponse response = filter(chunked, (request, ignored) -> {
+            StringBuilder read = new StringBuilder();
+            BufferedReader reader = request.getReader();
+            char[] buffer = new char[1000];
+            for (int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) {
+                read.append(buffer, 0, n);
+            }
+            handled.set(read.toString());
+        });
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(new String(body, StandardCharsets.UTF_8), handled.get());
+    }
+
+    @Test
+    void cachedBodyIsReadThroughAReadListener() throws Exception {
+        byte[] body = login("admin");
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allRead = new AtomicBoolean();
+
+        filter(request(body), (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(
+                new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        byte[] buffer = new byte[16];
+                        while (input.isReady() && !input.isFinished()) {
+                            read.write(buffer, 0, input.read(buffer));
+                        }
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                        allRead.set(true);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        fail(t);
+                    }
+                }
+            );
+        });
+
+        assertArrayEquals(body, read.toByteArray());
+        assertTrue(allRead.get());
+    }
+
+    @Test
+    void clientBehindATrustedProxyHasItsOwnBucket() throws Exception {
+        ApplicationProperties.RateLimit.Policy policy = new ApplicationProperties.RateLimit.Policy();
+        policy.setName("authenticate-ip");
+        policy.setPath("/api/authenticate");
+        policy.setCapacity(1);
+        policy.setRefillPerSecond(0.01);
+        ApplicationProperties.RateLimit rateLimit = new ApplicationProperties.RateLimit();
+        rateLimit.setPolicies(List.of(policy));
+        rateLimit.setTrustedProxies("10\\.0\\.0\\.\\d+");
+        filter = new RateLimitFilter(rateLimit, registry, new ObjectMapper());
+
+        // through the load balancer and an ingress, the client claiming to be another one
+        assertEquals(HttpStatus.OK.value(), filter(forwarded("10.0.0.1", "192.0.2.1, 203.0.113.7, 10.0.0.2"), (r, s) -> {}).getStatus());
+        assertEquals(
+            HttpStatus.TOO_MANY_REQUESTS.value(),
+            filter(forwarded("10.0.0.1", "198.51.100.9, 203.0.113.7", "10.0.0.2"), (r, s) -> {}).getStatus()
+        );
+        assertEquals(HttpStatus.OK.value(), filter(forwarded("10.0.0.1", "203.0.113.8"), (r, s) -> {}).getStatus());
+        // not from a trusted proxy, its header is ignored
+        assertEquals(HttpStatus.OK.value(), filter(forwarded("203.0.113.9", "203.0.113.10"), (r, s) -> {}).getStatus());
+        assertEquals(
+            HttpStatus.TOO_MANY_REQUESTS.value(),
+            filter(forwarded("203.0.113.9", "203.0.113.11"), (r, s) -> {}).getStatus()
+        );
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/authenticate");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body);
+        return request;
+    }
+
+    private static MockHttpServletRequest forwarded(String remoteAddress, String... forwardedFor) {
+        MockHttpServletRequest request = request(login("admin"));
+        request.setRemoteAddr(remoteAddress);
+        for (String header : forwardedFor) {
+            request.addHeader("X-Forwarded-For", header);
+        }
+        return request;
+    }
+
+    private static byte[] login(String username) {
+        return ("{\"username\":\"" + username + "\",\"password\":\"secret\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,166 @@
+package myapp.web.filter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TokenBucketsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    // any time after the origin, buckets start full
+    private static final long NOW = 100 * SECOND;
+
+    @Test
+    void fullBucketServesItsCapacityThenTellsTheWait() {
+        TokenBuckets buckets = new TokenBuckets(3, 1, 100, 4);
+
+        assertEquals(0, buckets.tryAcquire("a", NOW));
+        assertEquals(0, buckets.tryAcquire("a", NOW));
+        assertEquals(0, buckets.tryAcquire("a", NOW));
+        assertEquals(SECOND, buckets.tryAcquire("a", NOW));
+        assertEquals(SECOND / 4, buckets.tryAcquire("a", NOW + 3 * SECOND / 4));
+    }
+
+    @Test
+    void bucketIsRefilledAtItsRateUpToItsCapacity() {
+        TokenBuckets buckets = new TokenBuckets(2, 0.2, 100, 4);
+        assertEquals(0, buckets.tryAcquire("a", NOW));
+        assertEquals(0, buckets.tryAcquire("a", NOW));
+        assertEquals(5 * SECOND, buckets.tryAcquire("a", NOW));
+
+        // one token every 5 seconds
+        assertEquals(0, buckets.tryAcquire("a", NOW + 5 * SECOND));
+        assertEquals(5 * SECOND, buckets.tryAcquire("a", NOW + 5 * SECOND));
+
+        // never more than the capacity, however long the bucket was left alone
+        long later = NOW + 3600 * SECOND;
+        assertEquals(0, buckets.tryAcquire("a", later));
+        assertEquals(0, buckets.tryAcquire("a", later));
+        assertTrue(buckets.tryAcquire("a", later) > 0);
+    }
+
+    @Test
+    void rejectedRequestsDoNotTakeTokens() {
+        TokenBuckets buckets = new TokenBuckets(1, 1, 100, 4);
+        assertEquals(0, buckets.tryAcquire("a", NOW));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buckets.tryAcquire("a", NOW) > 0);
+        }
+
+        assertEquals(0, buckets.tryAcquire("a", NOW + SECOND));
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        TokenBuckets buckets = new TokenBuckets(1, 1, 100, 4);
+
+        assertEquals(0, buckets.tryAcquire("a", NOW));
+        assertTrue(buckets.tryAcquire("a", NOW) > 0);
+        assertEquals(0, buckets.tryAcquire("b", NOW));
+    }
+
+    @Test
+    void fullStripeForgetsTheBucketsFullAgainFirst() {
+        TokenBuckets buckets = new TokenBuckets(3, 1, 2, 1);
+        // empty until NOW + 3 s
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire("busy", NOW));
+        }
+        // full again at NOW + 1 s
+        assertEquals(0, buckets.tryAcquire("idle", NOW));
+
+        assertEquals(0, buckets.tryAcquire("new", NOW + 2 * SECOND));
+
+        assertEquals(List.of("busy", "new"), keys(buckets).stream().sorted().toList());
+        // still remembered: 2 tokens refilled, not a full bucket of 3
+        assertEquals(0, buckets.tryAcquire("busy", NOW + 2 * SECOND));
+        assertEquals(0, buckets.tryAcquire("busy", NOW + 2 * SECOND));
+        assertTrue(buckets.tryAcquire("busy", NOW + 2 * SECOND) > 0);
+    }
+
+    @Test
+    void newKeysShareABucketWhileTheStripeIsFullOfBusyKeys() {
+        TokenBuckets buckets = new TokenBuckets(1, 1, 16, 1);
+        for (int i = 0; i < 16; i++) {
+            assertEquals(0, buckets.tryAcquire("client-" + i, NOW));
+        }
+
+        assertEquals(0, buckets.tryAcquire("client-16", NOW));
+        assertTrue(buckets.tryAcquire("client-17", NOW) > 0);
+
+        assertEquals(16, keys(buckets).size());
+        assertFalse(keys(buckets).contains("client-16"));
+        // room again once the buckets are full again
+        assertEquals(0, buckets.tryAcquire("client-17", NOW + SECOND));
+        assertTrue(keys(buckets).contains("client-17"));
+    }
+
+    @Test
+    void throttledKeyIsNotResetByManyNewKeys() {
+        TokenBuckets buckets = new TokenBuckets(2, 0.01, 16, 1);
+        assertEquals(0, buckets.tryAcquire("admin", NOW));
+        assertEquals(0, buckets.tryAcquire("admin", NOW));
+        assertTrue(buckets.tryAcquire("admin", NOW) > 0);
+
+        for (int i = 0; i < 1000; i++) {
+            buckets.tryAcquire("guess-" + i, NOW + i);
+            assertTrue(keys(buckets).size() <= 16);
+        }
+
+        assertTrue(keys(buckets).contains("admin"));
+        assertTrue(buckets.tryAcquire("admin", NOW + SECOND) > 0);
+    }
+
+    @Test
+    void concurrentRequestsNeverTakeMoreThanTheCapacity() throws InterruptedException {
+        int capacity = 1000;
+        TokenBuckets buckets = new TokenBuckets(capacity, 0.001, 100, 4);
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                await(start);
+                for (int j = 0; j < capacity; j++) {
+                    if (buckets.tryAcquire("shared", NOW) == 0) {
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(capacity, taken.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> keys(TokenBuckets buckets) {
+        List<String> keys = new ArrayList<>();
+        for (Object stripe : (Object[]) ReflectionTestUtils.getField(buckets, "stripes")) {
+            keys.addAll(((Map<String, ?>) ReflectionTestUtils.getField(stripe, "buckets")).keySet());
+        }
+        return keys;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package myapp.web.rest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import myapp.config.MigratedDatabase;
+import myapp.repository.OrderRepository;
+import myapp.service.ExportService;
+import myapp.service.IdempotencyService;
+import myapp.service.OrderService;
+import myapp.service.OrderStatsService;
+import myapp.web.rest.errors.ExceptionTranslator;
+import myapp.web.util.KeysetPaginationUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+public class OrderResourceTest {
+
+    private static final Pattern NEXT_LINK = Pattern.compile("<http://localhost(/api/orders\\?[^>]*)>; rel=\"next\"");
+
+    private static final Instant ORDER_DATE = Instant.parse("2024-03-01T10:00:00Z");
+
+    // with the problem detail mixin, as configured by Spring Boot
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json()
+        .modulesToInstall(new JavaTimeModule(), new Hibernate6Module())
+        .build();
+
+    private static EmbeddedDatabase database;
+
+    private static EntityManagerFactory entityManagerFactory;
+
+    private static MockMvc mockMvc;
+
+    @BeforeAll
+    public static void createDatabase() {
+        database = MigratedDatabase.create();
+        entityManagerFactory = MigratedDatabase.entityManagerFactory(database, Map.of());
+        // built once, as it takes a while
+        OrderRepository orderRepository = new JpaRepositoryFactory(
+            SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory)
+        ).getRepository(OrderRepository.class);
+        OrderStatsService orderStatsService = mock(OrderStatsService.class);
+        OrderResource orderResource = new OrderResource(
+            new OrderService(orderRepository, orderStatsService),
+            orderRepository,
+            mock(ExportService.class),
+            orderStatsService,
+            mock(IdempotencyService.class)
+        );
+        ExceptionTranslator exceptionTranslator = new ExceptionTranslator(new MockEnvironment());
+        ReflectionTestUtils.setField(exceptionTranslator, "applicationName", "sampleApp");
+        mockMvc = MockMvcBuilders.standaloneSetup(orderResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(new MappingJackson2HttpMessageConverter(OBJECT_MAPPER))
+            .build();
+    }
+
+    @AfterAll
+    public static void shutdownDatabase() {
+        entityManagerFactory.close();
+        database.shutdown();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        MigratedDatabase.clear(database);
+    }
+
+    @Test
+    void slicesFollowTheNextLinksUntilTheLast() throws Exception {
+        for (long id = 1; id <= 5; id++) {
+            insertOrder(id, ORDER_DATE.plusSeconds(id));
+        }
+
+        List<List<Long>> slices = new ArrayList<>();
+        String uri = "/api/orders?after=&size=2";
+        while (uri != null) {
+            MockHttpServletResponse response = mockMvc.perform(get(uri)).andReturn().getResponse();
+            assertEquals(200, response.getStatus());
+            slices.add(ids(response));
+            uri = nextUri(response);
+        }
+
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L, 4L), List.of(5L)), slices);
+    }
+
+    @Test
+    void fullLastSliceHasNoNextLink() throws Exception {
+        // as many orders as the size of two slices, the second one is read with the extra row missing
+        for (long id = 1; id <= 4; id++) {
+            insertOrder(id, ORDER_DATE.plusSeconds(id));
+        }
+
+        MockHttpServletResponse first = mockMvc.perform(get("/api/orders?after=&size=2")).andReturn().getResponse();
+        MockHttpServletResponse second = mockMvc.perform(get(nextUri(first))).andReturn().getResponse();
+
+        assertEquals(List.of(1L, 2L), ids(first));
+        assertEquals(List.of(3L, 4L), ids(second));
+        assertNull(second.getHeader(HttpHeaders.LINK));
+        MockHttpServletResponse all = mockMvc.perform(get("/api/orders?after=&size=4")).andReturn().getResponse();
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(all));
+        assertNull(all.getHeader(HttpHeaders.LINK));
+    }
+
+    @Test
+    void ordersOfTheSameDateAreOrderedById() throws Exception {
+        // inserted out of id order, three of them at the same date
+        insertOrder(40, ORDER_DATE);
+        insertOrder(10, ORDER_DATE.plusSeconds(60));
+        insertOrder(30, ORDER_DATE);
+        insertOrder(20, ORDER_DATE);
+        insertOrder(50, ORDER_DATE.minusSeconds(60));
+
+        List<Long> ids = new ArrayList<>();
+        String uri = "/api/orders?after=&size=2";
+        MockHttpServletResponse first = mockMvc.perform(get(uri)).andReturn().getResponse();
+        ids.addAll(ids(first));
+        // the cursor is taken between two orders of the same date
+        MockHttpServletResponse second = mockMvc.perform(get(nextUri(first))).andReturn().getResponse();
+        ids.addAll(ids(second));
+        MockHttpServletResponse third = mockMvc.perform(get(nextUri(second))).andReturn().getResponse();
+        ids.addAll(ids(third));
+
+        assertEquals(List.of(50L, 20L, 30L, 40L, 10L), ids);
+        assertNull(third.getHeader(HttpHeaders.LINK));
+    }
+
+    @Test
+    void invalidCursorIsABadRequest() throws Exception {
+        insertOrder(1, ORDER_DATE);
+        String oneKey = KeysetPaginationUtil.encodeCursor(1L);
+        String notADate = KeysetPaginationUtil.encodeCursor("yesterday", 1L);
+        String notAnId = KeysetPaginationUtil.encodeCursor(ORDER_DATE, "first");
+
+        for (String cursor : List.of("not*a*cursor", oneKey, notADate, notAnId)) {
+            MockHttpServletResponse response = mockMvc.perform(get("/api/orders").param("after", cursor)).andReturn().getResponse();
+
+            assertEquals(400, response.getStatus(), cursor);
+            assertEquals("error.cursorinvalid", OBJECT_MAPPER.readTree(response.getContentAsString()).path("message").asText(), cursor);
+        }
+    }
+
+    private List<Long> ids(MockHttpServletResponse response) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        OBJECT_MAPPER.readTree(response.getContentAsString()).forEach(order -> ids.add(order.path("id").asLong()));
+        return ids;
+    }
+
+    private static String nextUri(MockHttpServletResponse response) {
+        String link = response.getHeader(HttpHeaders.LINK);
+        if (link == null) {
+            return null;
+        }
+        Matcher matcher = NEXT_LINK.matcher(link);
+        assertTrue(matcher.matches(), link);
+        return matcher.group(1);
+    }
+
+    private static void insertOrder(long id, Instant orderDate) {
+        new JdbcTemplate(database).update(
+            "insert into jhi_order (id, order_date, status, total_amount, version) values (?, ?, 'NEW', 10, 0)",
+            id,
+            LocalDateTime.ofInstant(orderDate, ZoneOffset.UTC)
+        );
+    }
+}
@@ -0,0 +1,63 @@
+package myapp.web.rest.errors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import myapp.security.PasswordHashingBusyException;
+import myapp.service.IdempotencyKeyInUseException;
+import myapp.service.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import tech.jhipster.web.rest.errors.ProblemDetailWithCause;
+
+public class ExceptionTranslatorTest {
+
+    private ExceptionTranslator exceptionTranslator;
+
+    @BeforeEach
+    public void setUp() {
+        exceptionTranslator = new ExceptionTranslator(new MockEnvironment());
+        ReflectionTestUtils.setField(exceptionTranslator, "applicationName", "sampleApp");
+    }
+
+    @Test
+    void idempotencyKeyReusedIsUnprocessable() {
+        ResponseEntity<Object> response = handle(new IdempotencyKeyReusedException());
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(ErrorConstants.IDEMPOTENCY_KEY_REUSED_TYPE, problem(response).getType());
+    }
+
+    @Test
+    void idempotencyKeyInUseIsAConflict() {
+        ResponseEntity<Object> response = handle(new IdempotencyKeyInUseException());
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(ErrorConstants.IDEMPOTENCY_KEY_IN_USE_TYPE, problem(response).getType());
+    }
+
+    @Test
+    void passwordHashingBusyIsUnavailableForAWhile() {
+        ResponseEntity<Object> response = handle(new PasswordHashingBusyException(7));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals(ErrorConstants.PASSWORD_HASHING_BUSY_TYPE, problem(response).getType());
+        assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    private ResponseEntity<Object> handle(Exception exception) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        return exceptionTranslator.handleAnyException(exception, new ServletWebRequest(request, new MockHttpServletResponse()));
+    }
+
+    private static ProblemDetailWithCause problem(ResponseEntity<Object> response) {
+        return (ProblemDetailWithCause) response.getBody();
+    }
+}
@@ -0,0 +1,60 @@
+package myapp.web.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+public class KeysetPaginationUtilTest {
+
+    @Test
+    void cursorRoundTripsItsKeys() {
+        Instant orderDate = Instant.parse("2024-03-01T10:15:30.123456Z");
+
+        String cursor = KeysetPaginationUtil.encodeCursor(orderDate, 1042L);
+
+        // safe in a query parameter as it is
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+        String[] keys = KeysetPaginationUtil.decodeCursor(cursor, 2).orElseThrow();
+        assertEquals(orderDate, Instant.parse(keys[0]));
+        assertEquals(1042L, Long.valueOf(keys[1]));
+    }
+
+    @Test
+    void blankCursorIsTheFirstSlice() {
+        assertEquals(Optional.empty(), KeysetPaginationUtil.decodeCursor(null, 1));
+        assertEquals(Optional.empty(), KeysetPaginationUtil.decodeCursor("", 1));
+        assertEquals(Optional.empty(), KeysetPaginationUtil.decodeCursor(" ", 1));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetPaginationUtil.decodeCursor("not a cursor!", 1));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPaginationUtil.decodeCursor(KeysetPaginationUtil.encodeCursor(1L), 2));
+        String threeKeys = Base64.getUrlEncoder().encodeToString("1|2|3".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPaginationUtil.decodeCursor(threeKeys, 2));
+    }
+
+    @Test
+    void sizeIsBounded() {
+        assertEquals(1, KeysetPaginationUtil.boundedSize(-5));
+        assertEquals(1, KeysetPaginationUtil.boundedSize(0));
+        assertEquals(50, KeysetPaginationUtil.boundedSize(50));
+        assertEquals(KeysetPaginationUtil.MAX_SIZE, KeysetPaginationUtil.boundedSize(KeysetPaginationUtil.MAX_SIZE + 1));
+    }
+
+    @Test
+    void nextLinkReplacesTheCursorOfTheRequest() {
+        UriComponentsBuilder request = UriComponentsBuilder.fromUriString("http://localhost/api/orders?after=previous&size=2");
+
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(request, "following");
+
+        assertEquals("<http://localhost/api/orders?size=2&after=following>; rel=\"next\"", headers.getFirst(HttpHeaders.LINK));
+        assertNull(KeysetPaginationUtil.generateKeysetHttpHeaders(request, null).getFirst(HttpHeaders.LINK));
+    }
+}